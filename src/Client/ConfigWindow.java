@@ -68,6 +68,7 @@ import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JColorChooser;
 import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -287,6 +288,7 @@ public class ConfigWindow {
   private JCheckBox bankPanelSortFilterAugmentCheckbox;
   private JLabel bankPanelImportLabel;
   private JLabel bankPanelExportLabel;
+  private JLabel replayPanelBackfillLabel;
 
   //// Notifications tab
   private JCheckBox notificationPanelPMNotifsCheckbox;
@@ -2660,6 +2662,75 @@ public class ConfigWindow {
     replayPanelShowUserFieldCheckbox.setToolTipText(
         "This int field when introduced did absolutely nothing and acts as \"Reserved Bits\" for the metadata.bin format. Users may feel free to use it for whatever they can think of.");
 
+    JPanel replayPanelBackfillPanel = new JPanel();
+    replayPanel.add(replayPanelBackfillPanel);
+    replayPanelBackfillPanel.setLayout(new BoxLayout(replayPanelBackfillPanel, BoxLayout.X_AXIS));
+    replayPanelBackfillPanel.setPreferredSize(new Dimension(0, 37));
+    replayPanelBackfillPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+    replayPanelBackfillPanel.setBorder(new EmptyBorder(7, 0, 0, 0));
+
+    final JButton replayPanelBackfillButton = new JButton("Generate Missing Metadata");
+    replayPanelBackfillButton.setAlignmentY((float) 0.80);
+    replayPanelBackfillButton.setPreferredSize(new Dimension(200, 28));
+    replayPanelBackfillButton.setMinimumSize(new Dimension(200, 28));
+    replayPanelBackfillButton.setMaximumSize(new Dimension(200, 28));
+    replayPanelBackfillButton.setToolTipText(
+        "Generates metadata.bin for every replay in a folder that was recorded before RSC+ saved it");
+    replayPanelBackfillButton.addActionListener(
+        new ActionListener() {
+          @Override
+          public void actionPerformed(ActionEvent e) {
+            if (MetadataBackfill.isRunning()) {
+              MetadataBackfill.cancel();
+              replayPanelBackfillButton.setEnabled(false);
+              return;
+            }
+
+            JFileChooser j;
+            try {
+              j = new JFileChooser(Settings.REPLAY_BASE_PATH.get("custom"));
+            } catch (Exception ex) {
+              j = new JFileChooser(Settings.Dir.REPLAY);
+            }
+            j.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+            if (j.showDialog(frame, "Select Folder") != JFileChooser.APPROVE_OPTION
+                || j.getSelectedFile() == null) return;
+
+            replayPanelBackfillButton.setText("Cancel");
+            setBackfillStatus("Searching for replays...");
+            MetadataBackfill.start(
+                j.getSelectedFile(),
+                new MetadataBackfill.Listener() {
+                  @Override
+                  public void progress(int done, int total, long bytes, long elapsed) {
+                    setBackfillStatus(
+                        String.format(
+                            "%d / %d replays, %.1f MB/s",
+                            done,
+                            total,
+                            bytes / 1024.0f / 1024.0f * 1000.0f / Math.max(elapsed, 1)));
+                  }
+
+                  @Override
+                  public void finished(int generated, int total, boolean cancelled) {
+                    replayPanelBackfillButton.setText("Generate Missing Metadata");
+                    replayPanelBackfillButton.setEnabled(true);
+                    setBackfillStatus(
+                        (cancelled ? "Cancelled, generated " : "Generated ")
+                            + generated
+                            + " of "
+                            + total);
+                  }
+                });
+          }
+        });
+    replayPanelBackfillPanel.add(replayPanelBackfillButton);
+
+    replayPanelBackfillLabel = new JLabel("");
+    replayPanelBackfillLabel.setAlignmentY((float) 0.7);
+    replayPanelBackfillLabel.setBorder(new EmptyBorder(0, 0, 7, 0));
+    replayPanelBackfillPanel.add(replayPanelBackfillLabel);
+
     /*
      * Presets tab
      */
@@ -3170,6 +3241,13 @@ public class ConfigWindow {
     return checkbox;
   }
 
+  private void setBackfillStatus(String status) {
+    replayPanelBackfillLabel.setText(
+        "<html><head><style>p{font-size:10px;padding-left:7px;}</style></head><p><strong>Status:</strong>&nbsp;"
+            + status.replace(" ", "&nbsp;") // non-breaking space prevents newline
+            + "</p></html>");
+  }
+
   /**
    * Adds a preconfigured JButton to the specified container using the specified alignment
    * constraint. Does not modify the button's border.
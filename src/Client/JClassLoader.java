@@ -18,18 +18,60 @@
  */
 package Client;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 
 /** Deals with fetching, loading, and patching a modified RSC jar. */
 public class JClassLoader extends ClassLoader {
 
+  /**
+   * Only patch classes when the game first loads them, instead of patching the whole jar up front.
+   * The patched class cache is neither written nor needed in this mode.
+   */
+  public static boolean lazyPatching = false;
+
+  /** Number of classes listed by name in the startup report */
+  private static final int REPORT_SLOWEST = 5;
+
   /** Stores class names and the corresponding class byte data */
   private final Map<String, byte[]> m_classData = new HashMap<>();
 
+  /** Unpatched class data of classes that haven't been loaded yet, only used by lazy patching */
+  private final Map<String, byte[]> m_unpatchedData = new HashMap<>();
+
+  private final Map<String, ClassTiming> m_timings = new ConcurrentHashMap<>();
+  private long m_fetchTime = 0;
+  private boolean m_fromCache = false;
+
+  /** Time spent on one class, in nanoseconds */
+  public static class ClassTiming {
+    /** Reading the class from the jar */
+    public volatile long read;
+    /** Applying the patches and linking their tables */
+    public volatile long patch;
+    /** Writing the patched class file */
+    public volatile long write;
+    /** Defining the class, which parses and checks the class file */
+    public volatile long define;
+
+    public long total() {
+      return read + patch + write + define;
+    }
+  }
+
   /**
    * Fetches the game jar and loads and patches the classes
    *
@@ -38,46 +80,232 @@ public class JClassLoader extends ClassLoader {
    */
   public boolean fetch(String jarURL) {
     Logger.Info("Fetching Jar: " + jarURL);
+    long fetchStart = System.nanoTime();
 
     try {
-      JarInputStream in = new JarInputStream(Launcher.getResourceAsStream(jarURL));
+      InputStream jarIn = Launcher.getResourceAsStream(jarURL);
+      byte[] jar = Util.readAllBytes(jarIn);
+      jarIn.close();
       Launcher.getInstance().setProgress(1, 1);
 
+      // Classes have to be patched again to disassemble them
+      byte[] cacheKey =
+          Settings.DISASSEMBLE.get(Settings.currentProfile)
+              ? null
+              : PatchedClassCache.computeKey(jar);
+      if (PatchedClassCache.load(cacheKey, m_classData)) {
+        Logger.Info("Loaded " + m_classData.size() + " patched classes from cache");
+        m_fromCache = true;
+        return true;
+      }
+
+      JarInputStream in = new JarInputStream(new ByteArrayInputStream(jar));
+
+      // Read every class first so they can be patched in parallel
+      List<String> names = new ArrayList<String>();
+      List<byte[]> classes = new ArrayList<byte[]>();
       JarEntry entry;
+      long readStart = System.nanoTime();
       while ((entry = in.getNextJarEntry()) != null) {
-        // Check if file is needed
         String name = entry.getName();
-
-        // Read class to byte array
-        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
-        byte[] data = new byte[1024];
-        int readSize;
-        while ((readSize = in.read(data, 0, data.length)) != -1) bOut.write(data, 0, readSize);
-        byte[] classData = bOut.toByteArray();
-        bOut.close();
+        byte[] classData = Util.readAllBytes(in);
 
         Logger.Info("Loading file: " + name);
-        Launcher.getInstance().setStatus("Loading " + name + "...");
-
         if (name.endsWith(".class")) {
           name = name.substring(0, name.indexOf(".class"));
-          classData = JClassPatcher.getInstance().patch(classData);
-          m_classData.put(name, classData);
+          getTiming(name).read = System.nanoTime() - readStart;
+          names.add(name);
+          classes.add(classData);
         }
+        readStart = System.nanoTime();
       }
       in.close();
+
+      if (lazyPatching) {
+        for (int i = 0; i < names.size(); i++) m_unpatchedData.put(names.get(i), classes.get(i));
+        Logger.Info("Indexed " + names.size() + " classes to patch when they are loaded");
+        return true;
+      }
+
+      patchClasses(names, classes);
+
+      PatchedClassCache.save(cacheKey, m_classData);
     } catch (Exception e) {
       e.printStackTrace();
       return false;
+    } finally {
+      m_fetchTime = System.nanoTime() - fetchStart;
     }
     return true;
   }
 
+  /**
+   * Patches classes on a pool bounded to the number of processors. Classes are linked in jar order
+   * once patched, so the patched bytes are the same as when patching them one at a time.
+   */
+  private void patchClasses(List<String> names, final List<byte[]> classes) throws Exception {
+    final JClassPatcher patcher = JClassPatcher.getInstance();
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+    try {
+      List<Future<JClassPatcher.PatchedClass>> patching =
+          new ArrayList<Future<JClassPatcher.PatchedClass>>();
+      for (int i = 0; i < names.size(); i++) {
+        final byte[] classData = classes.get(i);
+        final ClassTiming timing = getTiming(names.get(i));
+        patching.add(
+            pool.submit(
+                new Callable<JClassPatcher.PatchedClass>() {
+                  @Override
+                  public JClassPatcher.PatchedClass call() {
+                    long start = System.nanoTime();
+                    JClassPatcher.PatchedClass patched = patcher.patchClass(classData);
+                    timing.patch += System.nanoTime() - start;
+                    return patched;
+                  }
+                }));
+      }
+
+      List<Future<byte[]>> writing = new ArrayList<Future<byte[]>>();
+      for (int i = 0; i < names.size(); i++) {
+        Launcher.getInstance().setStatus("Patching " + names.get(i) + ".class...");
+        final JClassPatcher.PatchedClass patched = getResult(patching.get(i));
+        final ClassTiming timing = getTiming(names.get(i));
+
+        long start = System.nanoTime();
+        patcher.link(patched);
+        timing.patch += System.nanoTime() - start;
+
+        writing.add(
+            pool.submit(
+                new Callable<byte[]>() {
+                  @Override
+                  public byte[] call() {
+                    long start = System.nanoTime();
+                    byte[] data = patcher.write(patched);
+                    timing.write = System.nanoTime() - start;
+                    return data;
+                  }
+                }));
+      }
+
+      for (int i = 0; i < names.size(); i++) {
+        m_classData.put(names.get(i), getResult(writing.get(i)));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static <T> T getResult(Future<T> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      // Rethrow what the patch threw
+      if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+      throw e;
+    }
+  }
+
+  /** Patches a class that was indexed by lazy patching, returns null if there is no such class */
+  private byte[] patchLazily(String name) {
+    byte[] classData = m_unpatchedData.remove(name);
+    if (classData == null) return null;
+
+    ClassTiming timing = getTiming(name);
+    JClassPatcher patcher = JClassPatcher.getInstance();
+
+    long start = System.nanoTime();
+    JClassPatcher.PatchedClass patched = patcher.patchClass(classData);
+    patcher.link(patched);
+    timing.patch = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    byte[] data = patcher.write(patched);
+    timing.write = System.nanoTime() - start;
+
+    m_classData.put(name, data);
+    return data;
+  }
+
   @Override
   public final Class<?> findClass(String name) {
     byte[] data = m_classData.get(name);
+    if (data == null) data = patchLazily(name);
     if (data == null) return null;
 
-    return defineClass(name, data, 0, data.length);
+    long start = System.nanoTime();
+    Class<?> c = defineClass(name, data, 0, data.length);
+    getTiming(name).define = System.nanoTime() - start;
+    return c;
+  }
+
+  private ClassTiming getTiming(String name) {
+    ClassTiming timing = m_timings.get(name);
+    if (timing == null) {
+      timing = new ClassTiming();
+      ClassTiming existing = m_timings.putIfAbsent(name, timing);
+      if (existing != null) timing = existing;
+    }
+    return timing;
+  }
+
+  /** Returns the time spent on each class so far, by class name */
+  public Map<String, ClassTiming> getTimings() {
+    return Collections.unmodifiableMap(m_timings);
+  }
+
+  /**
+   * Writes where the time spent loading the game classes went to the log. Classes the game hasn't
+   * asked for yet count as never loaded, so this is called once the first login screen is drawn.
+   */
+  public void logReport() {
+    long read = 0;
+    long patch = 0;
+    long write = 0;
+    long define = 0;
+    int defined = 0;
+    int classes = m_classData.size() + m_unpatchedData.size();
+    List<Map.Entry<String, ClassTiming>> timings =
+        new ArrayList<Map.Entry<String, ClassTiming>>(m_timings.entrySet());
+    for (Map.Entry<String, ClassTiming> entry : timings) {
+      ClassTiming timing = entry.getValue();
+      read += timing.read;
+      patch += timing.patch;
+      write += timing.write;
+      define += timing.define;
+      if (timing.define > 0) defined++;
+    }
+
+    Logger.Info(
+        String.format(
+            "Game classes: fetched in %.1fms%s, %d defined, %d not loaded by the login screen",
+            m_fetchTime / 1e6,
+            m_fromCache ? " from cache" : lazyPatching ? " with lazy patching" : "",
+            defined,
+            classes - defined));
+    Logger.Info(
+        String.format(
+            "Game classes: read %.1fms, patch %.1fms, write %.1fms, define %.1fms",
+            read / 1e6, patch / 1e6, write / 1e6, define / 1e6));
+
+    Collections.sort(
+        timings,
+        new Comparator<Map.Entry<String, ClassTiming>>() {
+          @Override
+          public int compare(Map.Entry<String, ClassTiming> a, Map.Entry<String, ClassTiming> b) {
+            return Long.compare(b.getValue().total(), a.getValue().total());
+          }
+        });
+    for (int i = 0; i < Math.min(REPORT_SLOWEST, timings.size()); i++) {
+      ClassTiming timing = timings.get(i).getValue();
+      Logger.Info(
+          String.format(
+              "  %s.class: read %.2fms, patch %.2fms, write %.2fms, define %.2fms",
+              timings.get(i).getKey(),
+              timing.read / 1e6,
+              timing.patch / 1e6,
+              timing.write / 1e6,
+              timing.define / 1e6));
+    }
   }
 }
@@ -58,18 +58,118 @@ public class JClassPatcher {
   public static List<String> ExceptionSignatures = new ArrayList<String>();
   public static List<String> InstructionBytecode = new ArrayList<String>();
 
-  private Printer printer = new Textifier();
-  private TraceMethodVisitor mp = new TraceMethodVisitor(printer);
+  /** Class being patched by the current thread */
+  private final ThreadLocal<PatchedClass> patching = new ThreadLocal<PatchedClass>();
+
+  /**
+   * A class that has been patched but not written yet.
+   *
+   * <p>Patches running on different threads can't know how many entries other classes will add to
+   * {@link #ExceptionSignatures} and {@link #InstructionBytecode}, so each class numbers its own
+   * entries from 0 and {@link #link} moves them to the end of the shared tables.
+   */
+  public static class PatchedClass {
+    private final ClassNode node;
+    private final List<String> exceptionSignatures = new ArrayList<String>();
+    private final List<IntInsnNode> exceptionIndexes = new ArrayList<IntInsnNode>();
+    private final List<String> instructionBytecode = new ArrayList<String>();
+    private final List<IntInsnNode> instructionIndexes = new ArrayList<IntInsnNode>();
+    private boolean linked = false;
+
+    private PatchedClass(ClassNode node) {
+      this.node = node;
+    }
+
+    public String getName() {
+      return node.name;
+    }
+  }
 
   private JClassPatcher() {
     // Empty private constructor to prevent extra instances from being created.
   }
 
+  /** Patches a class, must only be used when classes are patched one at a time */
   public byte[] patch(byte[] data) {
+    PatchedClass patched = patchClass(data);
+    link(patched);
+    return write(patched);
+  }
+
+  /**
+   * Applies the patches to a class without touching any shared state, so classes can be patched
+   * on several threads
+   *
+   * @param data the class file
+   * @return the patched class, to be passed to {@link #link} and then {@link #write}
+   */
+  public PatchedClass patchClass(byte[] data) {
     ClassReader reader = new ClassReader(data);
     ClassNode node = new ClassNode();
     reader.accept(node, ClassReader.SKIP_DEBUG);
 
+    PatchedClass patched = new PatchedClass(node);
+    patching.set(patched);
+    try {
+      applyPatches(node);
+    } finally {
+      patching.remove();
+    }
+    return patched;
+  }
+
+  /**
+   * Adds the table entries of a patched class to the shared tables. Classes must be linked one at
+   * a time and in the same order every launch, so the tables always come out the same.
+   */
+  public synchronized void link(PatchedClass patched) {
+    if (patched.linked) return;
+    patched.linked = true;
+
+    int base = ExceptionSignatures.size();
+    for (IntInsnNode index : patched.exceptionIndexes) index.operand += base;
+    ExceptionSignatures.addAll(patched.exceptionSignatures);
+
+    base = InstructionBytecode.size();
+    for (int i = 0; i < patched.instructionIndexes.size(); i += 2) {
+      IntInsnNode high = patched.instructionIndexes.get(i);
+      IntInsnNode low = patched.instructionIndexes.get(i + 1);
+      int index = base + ((high.operand << 16) | low.operand);
+      high.operand = (index >> 16) & 0xFFFF;
+      low.operand = index & 0xFFFF;
+    }
+    InstructionBytecode.addAll(patched.instructionBytecode);
+  }
+
+  /** Writes a linked class, classes can be written on several threads */
+  public byte[] write(PatchedClass patched) {
+    if (!patched.linked) throw new IllegalStateException(patched.getName() + " isn't linked");
+    ClassNode node = patched.node;
+
+    if (Settings.DISASSEMBLE.get(Settings.currentProfile)) {
+      Settings.Dir.DUMP = Dir.JAR + "/" + Settings.DISASSEMBLE_DIRECTORY.get("custom");
+      Util.makeDirectory(Dir.DUMP);
+      Logger.Info("Disassembling file: " + node.name + ".class");
+      dumpClass(node);
+    }
+
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    node.accept(writer);
+    return writer.toByteArray();
+  }
+
+  /** Records an entry in the exception signature table and pushes its index before the node */
+  private void addExceptionSignature(
+      ClassNode node, MethodNode methodNode, AbstractInsnNode before) {
+    PatchedClass patched = patching.get();
+    IntInsnNode index = new IntInsnNode(Opcodes.SIPUSH, patched.exceptionSignatures.size());
+    patched.exceptionSignatures.add(node.name + "." + methodNode.name + methodNode.desc);
+    patched.exceptionIndexes.add(index);
+    methodNode.instructions.insertBefore(before, index);
+  }
+
+  private void applyPatches(ClassNode node) {
+
     if (node.name.equals("ua")) patchRenderer(node);
     else if (node.name.equals("e")) patchApplet(node);
     else if (node.name.equals("qa")) patchMenu(node);
@@ -83,20 +183,9 @@ public class JClassPatcher {
     // Patch applied to all classes
     patchGeneric(node);
 
-    if (Settings.DISASSEMBLE.get(Settings.currentProfile)) {
-      Settings.Dir.DUMP = Dir.JAR + "/" + Settings.DISASSEMBLE_DIRECTORY.get("custom");
-      Util.makeDirectory(Dir.DUMP);
-      Logger.Info("Disassembling file: " + node.name + ".class");
-      dumpClass(node);
-    }
-
     // Dev Bytecode tracer, do not leave these uncommented in live builds!
     // if (node.name.equals("client")) patchTracer(node);
     // if (node.name.equals("lb")) patchTracer(node);
-
-    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-    node.accept(writer);
-    return writer.toByteArray();
   }
 
   private void patchGeneric(ClassNode node) {
@@ -134,9 +223,7 @@ public class JClassPatcher {
           }
         }
         if (insnNode.getOpcode() == Opcodes.ATHROW) {
-          int index = ExceptionSignatures.size();
-          ExceptionSignatures.add(node.name + "." + methodNode.name + methodNode.desc);
-          methodNode.instructions.insertBefore(insnNode, new IntInsnNode(Opcodes.SIPUSH, index));
+          addExceptionSignature(node, methodNode, insnNode);
           methodNode.instructions.insertBefore(
               insnNode,
               new MethodInsnNode(
@@ -4868,9 +4955,7 @@ public class JClassPatcher {
 
           if (insnNode.getOpcode() == Opcodes.INVOKESTATIC
               && nextNode.getOpcode() == Opcodes.ATHROW) {
-            int index = ExceptionSignatures.size();
-            ExceptionSignatures.add(node.name + "." + methodNode.name + methodNode.desc);
-            methodNode.instructions.insertBefore(nextNode, new IntInsnNode(Opcodes.SIPUSH, index));
+            addExceptionSignature(node, methodNode, nextNode);
             methodNode.instructions.insertBefore(
                 nextNode,
                 new MethodInsnNode(
@@ -5021,14 +5106,17 @@ public class JClassPatcher {
       if (insnNode.getType() == AbstractInsnNode.FRAME
           || insnNode.getType() == AbstractInsnNode.LABEL) continue;
 
-      int index = InstructionBytecode.size();
+      PatchedClass patched = patching.get();
+      int index = patched.instructionBytecode.size();
       String instruction = decodeInstruction(insnNode).replaceAll("\n", "").replaceAll("    ", "");
       instruction = node.name + "." + methodNode.name + methodNode.desc + ": " + instruction;
-      InstructionBytecode.add(instruction);
-      methodNode.instructions.insertBefore(
-          insnNode, new IntInsnNode(Opcodes.SIPUSH, (index >> 16) & 0xFFFF));
-      methodNode.instructions.insertBefore(
-          insnNode, new IntInsnNode(Opcodes.SIPUSH, index & 0xFFFF));
+      patched.instructionBytecode.add(instruction);
+      IntInsnNode high = new IntInsnNode(Opcodes.SIPUSH, (index >> 16) & 0xFFFF);
+      IntInsnNode low = new IntInsnNode(Opcodes.SIPUSH, index & 0xFFFF);
+      patched.instructionIndexes.add(high);
+      patched.instructionIndexes.add(low);
+      methodNode.instructions.insertBefore(insnNode, high);
+      methodNode.instructions.insertBefore(insnNode, low);
       methodNode.instructions.insertBefore(
           insnNode,
           new MethodInsnNode(Opcodes.INVOKESTATIC, "Game/Client", "TracerHandler", "(II)V"));
@@ -5231,10 +5319,10 @@ public class JClassPatcher {
   }
 
   private String decodeInstruction(AbstractInsnNode insnNode) {
-    insnNode.accept(mp);
+    Printer printer = new Textifier();
+    insnNode.accept(new TraceMethodVisitor(printer));
     StringWriter sw = new StringWriter();
     printer.print(new PrintWriter(sw));
-    printer.getText().clear();
     return sw.toString();
   }
 
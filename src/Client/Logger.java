@@ -28,13 +28,34 @@ import java.io.PrintWriter;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
 import org.fusesource.jansi.AnsiConsole;
 
-/** A simple logger */
+/**
+ * A simple logger
+ *
+ * <p>Messages are checked against the log verbosity on the calling thread, then queued and
+ * formatted and written by a background thread, so logging never blocks on the console or log.txt.
+ */
 public class Logger {
   private static PrintWriter m_logWriter;
   private static int levelFixedWidth = 0;
-  private static String m_uncoloredMessage = "";
+
+  private static final Pattern ANSI_CODES = Pattern.compile("\u001B\\[[;\\d]*m");
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  /** Time the writer thread waits for new messages before checking again */
+  private static final long WRITER_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private static final ConcurrentLinkedQueue<Event> m_events = new ConcurrentLinkedQueue<Event>();
+  private static final Object m_writeLock = new Object();
+  private static volatile Thread m_writerThread = null;
+
+  // Only used while holding m_writeLock
+  private static final DateFormat m_dateFormat = new SimpleDateFormat("HH:mm:ss");
 
   public enum Type {
     ERROR(0, "error", true, true),
@@ -60,6 +81,19 @@ public class Logger {
     public boolean showTimestamp;
   }
 
+  /** A message waiting to be formatted, opcode messages keep their raw packet until then */
+  private static class Event {
+    Type type;
+    long time;
+    String message;
+    String uncoloredMessage;
+
+    int timestamp;
+    String direction;
+    int opcode;
+    byte[] data;
+  }
+
   public static void start() {
     AnsiConsole.systemInstall();
     File file = new File(Settings.Dir.JAR + "/log.txt");
@@ -67,9 +101,39 @@ public class Logger {
       m_logWriter = new PrintWriter(new FileOutputStream(file));
     } catch (Exception e) {
     }
+
+    if (m_writerThread == null) {
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  for (; ; ) {
+                    writeQueued();
+                    LockSupport.parkNanos(WRITER_IDLE_NANOS);
+                  }
+                }
+              },
+              "Logger");
+      thread.setDaemon(true);
+      m_writerThread = thread;
+      thread.start();
+
+      // Write anything still queued when the client exits
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  new Runnable() {
+                    @Override
+                    public void run() {
+                      writeQueued();
+                    }
+                  }));
+    }
   }
 
   public static void stop() {
+    writeQueued();
     try {
       m_logWriter.close();
     } catch (Exception e) {
@@ -77,35 +141,92 @@ public class Logger {
     AnsiConsole.systemUninstall();
   }
 
+  /** Returns if messages of the given type are currently logged */
+  public static boolean isEnabled(Type type) {
+    SettingsSnapshot settings = Settings.snapshot();
+    // Everything is logged until the settings are loaded
+    return settings == null || type.id <= settings.LOG_VERBOSITY;
+  }
+
   public static void Log(Type type, String message) {
+    Log(type, message, null);
+  }
+
+  private static void Log(Type type, String message, String uncoloredMessage) {
+    if (message == null || !isEnabled(type)) return;
+
+    Event event = new Event();
+    event.type = type;
+    event.time = System.currentTimeMillis();
+    event.message = message;
+    event.uncoloredMessage = uncoloredMessage;
+    queue(event);
+  }
+
+  private static void queue(Event event) {
+    m_events.add(event);
+
+    Thread thread = m_writerThread;
+    if (thread != null) LockSupport.unpark(thread);
+    else writeQueued(); // Not started yet, write on the calling thread
+  }
+
+  /** Formats and writes every queued message, then flushes log.txt once */
+  private static void writeQueued() {
+    synchronized (m_writeLock) {
+      boolean wrote = false;
+      Event event;
+      while ((event = m_events.poll()) != null) {
+        write(event);
+        wrote = true;
+      }
+
+      if (wrote) {
+        try {
+          m_logWriter.flush();
+        } catch (Exception e) {
+        }
+      }
+    }
+  }
+
+  private static void write(Event event) {
     try {
-      if (type.id > Settings.LOG_VERBOSITY.get(Settings.currentProfile) || message == null) return;
+      String message = event.message;
+      if (message == null) message = formatOpcode(event);
+      if (message == null) return;
 
-      DateFormat dateFormat = new SimpleDateFormat("HH:mm:ss");
+      // Settings that are still loading log plain messages
+      SettingsSnapshot settings = Settings.snapshot();
+      boolean colorize = settings != null && settings.COLORIZE_CONSOLE_TEXT;
       String msg = ansi().render(message).toString();
       String extra = "";
 
-      if (!Settings.COLORIZE_CONSOLE_TEXT.get(Settings.currentProfile)) {
-        if (m_uncoloredMessage.length() > 0) {
-          msg = m_uncoloredMessage;
-          m_uncoloredMessage = "";
+      String uncoloredMessage = event.uncoloredMessage;
+      if (!colorize) {
+        if (uncoloredMessage != null && uncoloredMessage.length() > 0) {
+          msg = uncoloredMessage;
+          uncoloredMessage = null;
         } else {
           // Remove colorized text
-          msg = msg.replaceAll("\u001B\\[[;\\d]*m", "");
+          msg = ANSI_CODES.matcher(msg).replaceAll("");
         }
       }
 
-      if ((type.showLevel || Settings.LOG_FORCE_LEVEL.get(Settings.currentProfile))
-          && Settings.LOG_SHOW_LEVEL.get(Settings.currentProfile)) {
+      Type type = event.type;
+      if (settings != null
+          && (type.showLevel || settings.LOG_FORCE_LEVEL)
+          && settings.LOG_SHOW_LEVEL) {
         // Uppercase and pad level for monospace fonts
         StringBuilder levelText = new StringBuilder(type.name.toUpperCase());
         while (levelText.length() < levelFixedWidth) levelText.insert(0, " ");
 
         extra += "[" + levelText + "]";
       }
-      if ((type.showTimestamp || Settings.LOG_FORCE_TIMESTAMPS.get(Settings.currentProfile))
-          && Settings.LOG_SHOW_TIMESTAMPS.get(Settings.currentProfile)) {
-        extra += "[" + dateFormat.format(new Date()) + "]";
+      if (settings != null
+          && (type.showTimestamp || settings.LOG_FORCE_TIMESTAMPS)
+          && settings.LOG_SHOW_TIMESTAMPS) {
+        extra += "[" + m_dateFormat.format(new Date(event.time)) + "]";
       }
 
       if (extra.length() > 0) msg = extra + " " + msg;
@@ -114,18 +235,15 @@ public class Logger {
       else System.err.println(msg);
 
       try {
-        if (m_uncoloredMessage.length() > 0) {
-          msg = m_uncoloredMessage;
-          m_uncoloredMessage = "";
+        if (uncoloredMessage != null && uncoloredMessage.length() > 0) {
+          msg = uncoloredMessage;
         } else {
           // Remove colorized text
-          if (Settings.COLORIZE_CONSOLE_TEXT.get(Settings.currentProfile))
-            msg = msg.replaceAll("\u001B\\[[;\\d]*m", "");
+          if (colorize) msg = ANSI_CODES.matcher(msg).replaceAll("");
         }
 
-        // Output to log file
+        // Output to log file, flushed once the queue is empty
         m_logWriter.write(msg + "\r\n");
-        m_logWriter.flush();
       } catch (Exception e) {
       }
     } catch (Exception e) {
@@ -152,8 +270,7 @@ public class Logger {
   }
 
   public static void Chat(String message, String messageOriginal) {
-    m_uncoloredMessage = messageOriginal;
-    Log(Type.CHAT, message);
+    Log(Type.CHAT, message, messageOriginal);
   }
 
   public static void Info(String message) {
@@ -165,17 +282,35 @@ public class Logger {
   }
 
   public static void Opcode(int timestamp, String type, int opcode, byte[] data) {
+    if (!type.equals(" IN") && !type.equals("OUT")) {
+      Log(Type.ERROR, "It's gotta be either \" IN\" or \"OUT\", man");
+      return;
+    }
+    if (!isEnabled(Type.OPCODE)) return;
+
+    // Formatting is left to the writer thread, only the packet is copied since callers reuse it
+    Event event = new Event();
+    event.type = Type.OPCODE;
+    event.time = System.currentTimeMillis();
+    event.timestamp = timestamp;
+    event.direction = type;
+    event.opcode = opcode;
+    event.data = data != null ? data.clone() : null;
+    queue(event);
+  }
+
+  private static String formatOpcode(Event event) {
     try {
+      byte[] data = event.data;
       String data_length;
       char[] hexChars;
       // convert data to hex string
       if (data != null) {
-        final char[] hexArray = "0123456789ABCDEF".toCharArray();
         hexChars = new char[data.length * 3];
         for (int j = 0; j < data.length; j++) {
           int v = data[j] & 0xFF;
-          hexChars[j * 3] = hexArray[v >>> 4];
-          hexChars[j * 3 + 1] = hexArray[v & 0x0F];
+          hexChars[j * 3] = HEX_DIGITS[v >>> 4];
+          hexChars[j * 3 + 1] = HEX_DIGITS[v & 0x0F];
           hexChars[j * 3 + 2] = ' ';
         }
 
@@ -184,35 +319,22 @@ public class Logger {
         data_length = "0";
         hexChars = new char[20];
       }
-      if (type.equals(" IN")) {
-        if (true) { // opcode != 79 && opcode != 191) { //TODO unfilter these, add a way for the
-          // user
-          // to filter them... possibly a way to filter arbitrary opcodes
-          Log(
-              Type.OPCODE,
-              String.format(
-                      "[@|red %.2f|@] %s_OP: @|red %s (%d)|@ data_len: @|red %s|@ data: ",
-                      timestamp / 50.0, type, incomingOpcodeMap.get(opcode), opcode, data_length)
-                  + new String(hexChars));
-        }
-      } else if (type.equals("OUT")) {
-        if (true) { // opcode != 67) { //TODO unfilter this, add a way for the user to filter it.
-          Log(
-              Type.OPCODE,
-              String.format(
-                      "[@|red %.2f|@] %s_OP: @|red %s (%d)|@ data_len: @|red %s|@ data: ",
-                      timestamp / 50.0, type, outgoingOpcodeMap.get(opcode), opcode, data_length)
-                  + new String(hexChars));
-        }
-      } else {
-        Log(Type.ERROR, "It's gotta be either \" IN\" or \"OUT\", man");
-      }
+      // TODO: add a way for the user to filter arbitrary opcodes, such as 79 and 191 in or 67 out
+      String opcodeName =
+          event.direction.equals(" IN")
+              ? incomingOpcodeMap.get(event.opcode)
+              : outgoingOpcodeMap.get(event.opcode);
+      return String.format(
+              "[@|red %.2f|@] %s_OP: @|red %s (%d)|@ data_len: @|red %s|@ data: ",
+              event.timestamp / 50.0, event.direction, opcodeName, event.opcode, data_length)
+          + new String(hexChars);
     } catch (Exception e) {
       try {
         System.out.println("Opcode logger died, here's the report:");
         e.printStackTrace();
       } catch (Exception e2) {
       }
+      return null;
     }
   }
 }
@@ -0,0 +1,93 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Client;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Grid of square cells over a map floor, holding the indexes of the objects positioned in each
+ * cell, so an area of the map can be drawn without going through every object.
+ */
+public class MapGrid {
+  private final int cellSize;
+  private final int columns;
+  private final int rows;
+  private final int[][] cells;
+  private final int[] cellSizes;
+
+  public MapGrid(int width, int height, int cellSize) {
+    this.cellSize = cellSize;
+    this.columns = (width + cellSize - 1) / cellSize;
+    this.rows = (height + cellSize - 1) / cellSize;
+    this.cells = new int[columns * rows][];
+    this.cellSizes = new int[columns * rows];
+  }
+
+  /** Adds the index of an object at the position, positions outside of the map are clamped */
+  public void add(int x, int y, int index) {
+    int cell = getRow(y) * columns + getColumn(x);
+    int[] indexes = cells[cell];
+    if (indexes == null) {
+      indexes = cells[cell] = new int[8];
+    } else if (cellSizes[cell] == indexes.length) {
+      indexes = cells[cell] = Arrays.copyOf(indexes, indexes.length * 2);
+    }
+    indexes[cellSizes[cell]++] = index;
+  }
+
+  /**
+   * Returns the indexes of the objects in the cells that overlap the area, sorted if they were
+   * added in ascending order
+   */
+  public int[] query(Rectangle area) {
+    int firstColumn = getColumn(area.x);
+    int lastColumn = getColumn(area.x + area.width);
+    int firstRow = getRow(area.y);
+    int lastRow = getRow(area.y + area.height);
+
+    int count = 0;
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++)
+        count += cellSizes[row * columns + column];
+    }
+
+    int[] indexes = new int[count];
+    int offset = 0;
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        int cell = row * columns + column;
+        if (cellSizes[cell] == 0) continue;
+        System.arraycopy(cells[cell], 0, indexes, offset, cellSizes[cell]);
+        offset += cellSizes[cell];
+      }
+    }
+    // Objects are drawn in the same order no matter which cells they were in
+    if (lastColumn > firstColumn || lastRow > firstRow) Arrays.sort(indexes);
+    return indexes;
+  }
+
+  private int getColumn(int x) {
+    return Math.min(Math.max(Math.floorDiv(x, cellSize), 0), columns - 1);
+  }
+
+  private int getRow(int y) {
+    return Math.min(Math.max(Math.floorDiv(y, cellSize), 0), rows - 1);
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Finds the map objects whose name contains a search, by looking through the distinct names
+ * instead of every object.
+ *
+ * <p>Thousands of map objects share a few hundred names. Objects are grouped by their lower case
+ * name, and a search that extends the previous one only looks through the names that matched it.
+ */
+public class MapSearchIndex {
+  private static final int[] NONE = new int[0];
+
+  private final HashMap<String, Name> nameLookup = new HashMap<String, Name>();
+  private final ArrayList<Name> names = new ArrayList<Name>();
+  private final HashMap<Integer, int[]> idEntries = new HashMap<Integer, int[]>();
+  private int size = 0;
+
+  private String lastText = null;
+  private Name[] lastNames = new Name[0];
+
+  /** A lower case name and the objects that have it */
+  private static class Name {
+    final String name;
+    int[] entries = new int[4];
+    int count = 0;
+
+    Name(String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * Adds the next object, its index is the number of objects added before it
+   *
+   * @param name name the object is found by, or null if it can't be searched for
+   * @param id number the object is also found by, or -1
+   */
+  public void add(String name, int id) {
+    int index = size++;
+    if (name == null) return;
+
+    String lowerCaseName = name.toLowerCase();
+    Name entry = nameLookup.get(lowerCaseName);
+    if (entry == null) {
+      entry = new Name(lowerCaseName);
+      nameLookup.put(lowerCaseName, entry);
+      names.add(entry);
+    }
+    if (entry.count == entry.entries.length)
+      entry.entries = Arrays.copyOf(entry.entries, entry.count * 2);
+    entry.entries[entry.count++] = index;
+
+    if (id != -1) {
+      int[] entries = idEntries.get(id);
+      entries = entries == null ? new int[] {index} : Arrays.copyOf(entries, entries.length + 1);
+      entries[entries.length - 1] = index;
+      idEntries.put(id, entries);
+    }
+
+    lastText = null;
+  }
+
+  /** Returns the number of objects added */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the indexes of the objects whose name contains the text or whose id matches, in
+   * ascending order. Nothing matches an empty text.
+   *
+   * @param text lower case text to search for
+   * @param id id to search for, or -1
+   */
+  public int[] search(String text, int id) {
+    if (text.length() == 0) return NONE;
+
+    Name[] matchingNames = findNames(text);
+    int[] ids = id != -1 && idEntries.containsKey(id) ? idEntries.get(id) : NONE;
+
+    int count = ids.length;
+    for (Name name : matchingNames) count += name.count;
+
+    int[] indexes = new int[count];
+    System.arraycopy(ids, 0, indexes, 0, ids.length);
+    int offset = ids.length;
+    for (Name name : matchingNames) {
+      System.arraycopy(name.entries, 0, indexes, offset, name.count);
+      offset += name.count;
+    }
+    Arrays.sort(indexes);
+
+    // An object found by both its id and its name is only returned once
+    int unique = 0;
+    for (int i = 0; i < count; i++) {
+      if (unique == 0 || indexes[i] != indexes[unique - 1]) indexes[unique++] = indexes[i];
+    }
+    return unique == count ? indexes : Arrays.copyOf(indexes, unique);
+  }
+
+  private Name[] findNames(String text) {
+    if (text.equals(lastText)) return lastNames;
+
+    // Names that contain the new text also contained the last one
+    boolean narrowing = lastText != null && text.contains(lastText);
+    int candidates = narrowing ? lastNames.length : names.size();
+    Name[] matching = new Name[candidates];
+    int count = 0;
+    for (int i = 0; i < candidates; i++) {
+      Name name = narrowing ? lastNames[i] : names.get(i);
+      if (name.name.contains(text)) matching[count++] = name;
+    }
+
+    lastText = text;
+    lastNames = Arrays.copyOf(matching, count);
+    return lastNames;
+  }
+}
@@ -0,0 +1,184 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Client;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Map floors rendered in square tiles as they come into view, instead of one image per floor.
+ *
+ * <p>Only the most recently drawn tiles are kept, and the images of evicted tiles are reused for
+ * the next tiles rendered. Tiles are in map pixels and scaled when drawn, so zooming doesn't
+ * render them again.
+ */
+public abstract class MapTileCache {
+  public static final int TILE_SIZE = 256;
+
+  private final GraphicsConfiguration configuration;
+  private final int mapWidth;
+  private final int mapHeight;
+  private final int maxTiles;
+  private final LinkedHashMap<Long, BufferedImage> tiles;
+  private final ArrayList<BufferedImage> spare = new ArrayList<BufferedImage>();
+
+  public MapTileCache(
+      GraphicsConfiguration configuration, int mapWidth, int mapHeight, final int maxTiles) {
+    this.configuration = configuration;
+    this.mapWidth = mapWidth;
+    this.mapHeight = mapHeight;
+    this.maxTiles = maxTiles;
+    this.tiles =
+        new LinkedHashMap<Long, BufferedImage>(maxTiles * 2, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            if (size() <= maxTiles) return false;
+            recycle(eldest.getValue());
+            return true;
+          }
+        };
+  }
+
+  /**
+   * Renders the part of a floor inside the bounds. The graphics are translated to map pixels and
+   * clipped to the bounds.
+   */
+  protected abstract void renderTile(Graphics2D g, int plane, Rectangle bounds);
+
+  /**
+   * Draws the tiles of a floor that are in view, rendering the ones that aren't cached
+   *
+   * @param cameraX left edge of the view, in scaled pixels
+   * @param cameraY top edge of the view, in scaled pixels
+   * @param zoom scale the map is drawn at
+   */
+  public synchronized void draw(
+      Graphics2D g,
+      int plane,
+      int cameraX,
+      int cameraY,
+      float zoom,
+      int viewWidth,
+      int viewHeight) {
+    int scaledTileSize = (int) (TILE_SIZE * zoom);
+    int firstX = Math.max(0, Math.floorDiv(cameraX, scaledTileSize));
+    int firstY = Math.max(0, Math.floorDiv(cameraY, scaledTileSize));
+    int lastX = Math.min(getTilesX() - 1, Math.floorDiv(cameraX + viewWidth - 1, scaledTileSize));
+    int lastY = Math.min(getTilesY() - 1, Math.floorDiv(cameraY + viewHeight - 1, scaledTileSize));
+
+    for (int tileY = firstY; tileY <= lastY; tileY++) {
+      for (int tileX = firstX; tileX <= lastX; tileX++) {
+        BufferedImage tile = getTile(plane, tileX, tileY);
+        int x = (int) (tileX * TILE_SIZE * zoom);
+        int y = (int) (tileY * TILE_SIZE * zoom);
+        g.drawImage(
+            tile,
+            x - cameraX,
+            y - cameraY,
+            (int) ((tileX * TILE_SIZE + tile.getWidth()) * zoom) - x,
+            (int) ((tileY * TILE_SIZE + tile.getHeight()) * zoom) - y,
+            null);
+      }
+    }
+  }
+
+  /** Drops the tiles of a floor that overlap the area, in map pixels */
+  public synchronized void invalidate(int plane, Rectangle area) {
+    if (tiles.isEmpty()) return;
+
+    int firstX = Math.max(0, Math.floorDiv(area.x, TILE_SIZE));
+    int firstY = Math.max(0, Math.floorDiv(area.y, TILE_SIZE));
+    int lastX = Math.min(getTilesX() - 1, Math.floorDiv(area.x + area.width, TILE_SIZE));
+    int lastY = Math.min(getTilesY() - 1, Math.floorDiv(area.y + area.height, TILE_SIZE));
+    for (int tileY = firstY; tileY <= lastY; tileY++) {
+      for (int tileX = firstX; tileX <= lastX; tileX++) {
+        BufferedImage tile = tiles.remove(getKey(plane, tileX, tileY));
+        if (tile != null) recycle(tile);
+      }
+    }
+  }
+
+  /** Drops every tile */
+  public synchronized void invalidateAll() {
+    Iterator<BufferedImage> it = tiles.values().iterator();
+    while (it.hasNext()) {
+      recycle(it.next());
+      it.remove();
+    }
+  }
+
+  private BufferedImage getTile(int plane, int tileX, int tileY) {
+    long key = getKey(plane, tileX, tileY);
+    BufferedImage tile = tiles.get(key);
+    if (tile != null) return tile;
+
+    Rectangle bounds =
+        new Rectangle(
+            tileX * TILE_SIZE,
+            tileY * TILE_SIZE,
+            Math.min(TILE_SIZE, mapWidth - tileX * TILE_SIZE),
+            Math.min(TILE_SIZE, mapHeight - tileY * TILE_SIZE));
+    tile = createImage(bounds.width, bounds.height);
+
+    Graphics2D g = tile.createGraphics();
+    g.translate(-bounds.x, -bounds.y);
+    g.setClip(bounds.x, bounds.y, bounds.width, bounds.height);
+    renderTile(g, plane, bounds);
+    g.dispose();
+
+    tiles.put(key, tile);
+    return tile;
+  }
+
+  private BufferedImage createImage(int width, int height) {
+    for (int i = spare.size() - 1; i >= 0; i--) {
+      BufferedImage image = spare.get(i);
+      if (image.getWidth() == width && image.getHeight() == height) {
+        spare.remove(i);
+        return image;
+      }
+    }
+    return configuration.createCompatibleImage(width, height, Transparency.OPAQUE);
+  }
+
+  private void recycle(BufferedImage image) {
+    // Edge tiles are smaller, they're rare enough to not be worth keeping
+    if (image.getWidth() == TILE_SIZE && image.getHeight() == TILE_SIZE && spare.size() < 8)
+      spare.add(image);
+  }
+
+  private int getTilesX() {
+    return (mapWidth + TILE_SIZE - 1) / TILE_SIZE;
+  }
+
+  private int getTilesY() {
+    return (mapHeight + TILE_SIZE - 1) / TILE_SIZE;
+  }
+
+  private static long getKey(int plane, int tileX, int tileY) {
+    return ((long) plane << 32) | (tileX << 16) | tileY;
+  }
+}
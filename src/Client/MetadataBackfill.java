@@ -0,0 +1,176 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Client;
+
+import Game.Replay;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.SwingUtilities;
+
+/**
+ * Generates metadata.bin for every replay below a folder that was recorded before it existed.
+ *
+ * <p>Each replay has to be fully decompressed to find its length, so replays are handled in
+ * parallel on a pool bounded to the number of processors.
+ */
+public class MetadataBackfill {
+  /** Time between progress updates */
+  private static final long PROGRESS_INTERVAL = 250;
+
+  private static Thread thread = null;
+  private static volatile boolean cancelled = false;
+
+  /** Receives backfill progress on the event dispatch thread */
+  public interface Listener {
+    /**
+     * Called periodically while replays are being processed
+     *
+     * @param done replays checked so far
+     * @param total replays that need metadata
+     * @param bytes compressed replay data read so far
+     * @param elapsed milliseconds since the backfill started
+     */
+    void progress(int done, int total, long bytes, long elapsed);
+
+    /** Called once every replay has been processed or the backfill was cancelled */
+    void finished(int generated, int total, boolean cancelled);
+  }
+
+  /**
+   * Starts generating metadata for every replay below the folder
+   *
+   * @param folder the folder to search
+   * @param listener listener receiving progress on the event dispatch thread
+   * @return false if a backfill is already running
+   */
+  public static synchronized boolean start(final File folder, final Listener listener) {
+    if (isRunning()) return false;
+
+    cancelled = false;
+    thread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                backfill(folder, listener);
+              }
+            },
+            "MetadataBackfill");
+    thread.setDaemon(true);
+    thread.start();
+    return true;
+  }
+
+  /** Stops the backfill, replays that are already being processed are still completed */
+  public static void cancel() {
+    cancelled = true;
+  }
+
+  public static synchronized boolean isRunning() {
+    return thread != null && thread.isAlive();
+  }
+
+  private static void backfill(File folder, final Listener listener) {
+    final long startTime = System.currentTimeMillis();
+
+    List<File> folders = new ArrayList<File>();
+    Util.listf(folder.getAbsolutePath(), folders);
+    folders.add(folder.getAbsoluteFile());
+
+    List<String> replays = new ArrayList<String>();
+    for (File replayFolder : folders) {
+      String path = replayFolder.getAbsolutePath();
+      if (Replay.isValid(path) && !new File(path + "/metadata.bin").exists()) replays.add(path);
+    }
+
+    final int total = replays.size();
+    Logger.Info("Backfilling metadata for " + total + " replays in " + folder.getAbsolutePath());
+
+    final AtomicInteger done = new AtomicInteger();
+    final AtomicInteger generated = new AtomicInteger();
+    final AtomicLong bytes = new AtomicLong();
+
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+    for (final String path : replays) {
+      pool.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              if (cancelled) return;
+              if (Replay.checkAndGenerateMetadata(path)) generated.incrementAndGet();
+              bytes.addAndGet(new File(path + "/in.bin.gz").length());
+              done.incrementAndGet();
+            }
+          });
+    }
+
+    pool.shutdown();
+    try {
+      while (!pool.awaitTermination(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS)) {
+        postProgress(listener, done.get(), total, bytes.get(), startTime);
+      }
+    } catch (InterruptedException e) {
+      cancelled = true;
+      pool.shutdownNow();
+    }
+    postProgress(listener, done.get(), total, bytes.get(), startTime);
+
+    long elapsed = Math.max(System.currentTimeMillis() - startTime, 1);
+    Logger.Info(
+        String.format(
+            "Generated metadata for %d of %d replays in %.1fs (%.1f replays/s, %.1f MB/s)%s",
+            generated.get(),
+            total,
+            elapsed / 1000.0f,
+            done.get() * 1000.0f / elapsed,
+            bytes.get() / 1024.0f / 1024.0f * 1000.0f / elapsed,
+            cancelled ? ", cancelled" : ""));
+
+    final int generatedCount = generated.get();
+    final boolean wasCancelled = cancelled;
+    SwingUtilities.invokeLater(
+        new Runnable() {
+          @Override
+          public void run() {
+            listener.finished(generatedCount, total, wasCancelled);
+          }
+        });
+  }
+
+  private static void postProgress(
+      final Listener listener,
+      final int done,
+      final int total,
+      final long bytes,
+      final long startTime) {
+    final long elapsed = System.currentTimeMillis() - startTime;
+    SwingUtilities.invokeLater(
+        new Runnable() {
+          @Override
+          public void run() {
+            listener.progress(done, total, bytes, elapsed);
+          }
+        });
+  }
+}
@@ -0,0 +1,208 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * On-disk copy of the classes patched by {@link JClassPatcher}, so they don't have to be patched
+ * again on the next launch.
+ *
+ * <p>The cache is keyed by a hash of the game jar, the patcher's own class file, the client version
+ * and every setting the patches depend on, so a change to any of them patches the jar again. The
+ * cache also holds the tables the patches fill in while running, such as {@link
+ * JClassPatcher#ExceptionSignatures}, and a checksum of its contents.
+ */
+public class PatchedClassCache {
+  private static final int MAGIC = 0x52435043; // "RCPC"
+  private static final int FORMAT_VERSION = 1;
+
+  private static File getCacheFile() {
+    return new File(Settings.Dir.JAR + "/patched_classes.bin");
+  }
+
+  /**
+   * Computes the cache key for a game jar with the current client and settings
+   *
+   * @param jar the unpatched game jar
+   * @return the key, or null if it can't be computed and the cache shouldn't be used
+   */
+  public static byte[] computeKey(byte[] jar) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(jar);
+      digest.update(readPatcherClass());
+
+      ByteArrayOutputStream settings = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(settings);
+      out.writeDouble(Settings.VERSION_NUMBER);
+      out.writeBoolean(Settings.javaVersion >= 9 || Settings.javaVersion == -1);
+      out.writeBoolean(Settings.SAVE_LOGININFO.get(Settings.currentProfile));
+      out.writeBoolean(Settings.PATCH_GENDER.get(Settings.currentProfile));
+      out.close();
+      digest.update(settings.toByteArray());
+
+      return digest.digest();
+    } catch (Exception e) {
+      Logger.Warn("Unable to compute the patched class cache key");
+      return null;
+    }
+  }
+
+  /**
+   * Loads the cached classes if they were patched with the same key
+   *
+   * @param key the key returned by {@link #computeKey}
+   * @param classData map receiving class names and their patched bytes
+   * @return false if the cache is missing, outdated or damaged, classData is left empty then
+   */
+  public static boolean load(byte[] key, Map<String, byte[]> classData) {
+    File file = getCacheFile();
+    if (key == null || !file.exists()) return false;
+
+    Map<String, byte[]> classes = new HashMap<String, byte[]>();
+    List<String> exceptionSignatures = new ArrayList<String>();
+    List<String> instructionBytecode = new ArrayList<String>();
+    try {
+      CRC32 crc = new CRC32();
+      DataInputStream in =
+          new DataInputStream(
+              new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), crc));
+      try {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return false;
+
+        byte[] cachedKey = new byte[in.readUnsignedByte()];
+        in.readFully(cachedKey);
+        if (!Arrays.equals(key, cachedKey)) {
+          Logger.Info("Patched class cache is outdated");
+          return false;
+        }
+
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          String name = in.readUTF();
+          byte[] data = new byte[in.readInt()];
+          in.readFully(data);
+          classes.put(name, data);
+        }
+        readStrings(in, exceptionSignatures);
+        readStrings(in, instructionBytecode);
+
+        long checksum = crc.getValue();
+        if (in.readLong() != checksum) {
+          Logger.Warn("Patched class cache is damaged");
+          return false;
+        }
+      } finally {
+        in.close();
+      }
+    } catch (Exception e) {
+      Logger.Warn("Patched class cache is unreadable");
+      return false;
+    }
+
+    classData.putAll(classes);
+    JClassPatcher.ExceptionSignatures.addAll(exceptionSignatures);
+    JClassPatcher.InstructionBytecode.addAll(instructionBytecode);
+    return true;
+  }
+
+  /**
+   * Saves freshly patched classes along with the tables the patcher filled in
+   *
+   * @param key the key returned by {@link #computeKey}
+   * @param classData class names and their patched bytes
+   */
+  public static void save(byte[] key, Map<String, byte[]> classData) {
+    if (key == null) return;
+
+    File file = getCacheFile();
+    File tempFile = new File(file.getPath() + ".tmp");
+    try {
+      CRC32 crc = new CRC32();
+      DataOutputStream out =
+          new DataOutputStream(
+              new CheckedOutputStream(
+                  new BufferedOutputStream(new FileOutputStream(tempFile)), crc));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeByte(key.length);
+        out.write(key);
+
+        out.writeInt(classData.size());
+        for (Map.Entry<String, byte[]> entry : classData.entrySet()) {
+          out.writeUTF(entry.getKey());
+          out.writeInt(entry.getValue().length);
+          out.write(entry.getValue());
+        }
+        writeStrings(out, JClassPatcher.ExceptionSignatures);
+        writeStrings(out, JClassPatcher.InstructionBytecode);
+
+        out.writeLong(crc.getValue());
+      } finally {
+        out.close();
+      }
+      Util.replaceFile(tempFile, file);
+    } catch (Exception e) {
+      tempFile.delete();
+      Logger.Warn("Unable to save the patched class cache");
+    }
+  }
+
+  private static void readStrings(DataInputStream in, List<String> strings) throws IOException {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) strings.add(in.readUTF());
+  }
+
+  private static void writeStrings(DataOutputStream out, List<String> strings)
+      throws IOException {
+    out.writeInt(strings.size());
+    for (String string : strings) out.writeUTF(string);
+  }
+
+  /** Reads the patcher's class file, so changing the patches invalidates the cache */
+  private static byte[] readPatcherClass() throws IOException {
+    InputStream in = JClassPatcher.class.getResourceAsStream("JClassPatcher.class");
+    if (in == null) throw new IOException("JClassPatcher.class not found");
+    try {
+      return Util.readAllBytes(in);
+    } finally {
+      in.close();
+    }
+  }
+}
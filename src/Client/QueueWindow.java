@@ -636,9 +636,15 @@ public class QueueWindow {
   public static void copyQueueToTable() {
     Logger.Debug("copyQueueToTable called");
     model.getDataVector().removeAllElements();
-    for (int i=0; i < ReplayQueue.queue.size(); i++) {
+    appendQueueToTable();
+  }
+
+  /** Adds rows for queue entries that are not in the table yet */
+  public static void appendQueueToTable() {
+    int firstRow = model.getRowCount();
+    for (int i = firstRow; i < ReplayQueue.queue.size(); i++) {
       String replayFolder = ReplayQueue.queue.get(i).getAbsolutePath();
-      Object[] metadata = Replay.readMetadata(replayFolder);
+      Object[] metadata = ReplayCatalog.getMetadata(replayFolder);
 
       model.addRow(new Object[] {
               ReplayQueue.currentIndex - 1 == i ? "▶" : "",
@@ -0,0 +1,384 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Client;
+
+import Game.Replay;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+
+/**
+ * Persistent index of replay folders and their metadata.
+ *
+ * <p>Folders are validated on a worker pool and only re-read when their modification time or
+ * in.bin.gz size changed since the catalog was last saved.
+ */
+public class ReplayCatalog {
+  private static final int MAGIC = 0x52504354; // "RPCT"
+  private static final int FORMAT_VERSION = 1;
+
+  /** Number of replays handed to the listener at once */
+  private static final int BATCH_SIZE = 256;
+
+  /** Maximum time results are held back before being handed to the listener */
+  private static final long BATCH_INTERVAL = 100;
+
+  private static final Entry BROKEN = new Entry();
+
+  private static final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+  private static boolean loaded = false;
+  private static volatile boolean dirty = false;
+  private static ExecutorService pool = null;
+
+  public static class Entry {
+    public String path;
+    public long mtime;
+    public long size;
+    public int length;
+    public long dateModified;
+    public String world;
+    public byte conversionSettings;
+    public int userField;
+    public int version;
+
+    public boolean isMembers() {
+      // First bit of the user field is set for F2P replays
+      return (userField & (1 << 31)) == 0;
+    }
+
+    /** Returns the metadata in the same layout as {@link Replay#readMetadata(String)} */
+    public Object[] toMetadata() {
+      return new Object[] {length, dateModified, world, conversionSettings, userField};
+    }
+  }
+
+  /** Receives scan results on the event dispatch thread */
+  public interface Listener {
+    /** Called with the next batch of replays, in the same order a full sort would give */
+    void replaysFound(List<File> replays);
+
+    /** Called once every folder has been checked */
+    void scanFinished(int replayCount, boolean foundBrokenReplay);
+  }
+
+  /**
+   * Scans the folders and every folder below them for replays in the background
+   *
+   * @param folderInputs folders to scan
+   * @param listener listener receiving the results on the event dispatch thread
+   */
+  public static void scan(final List<File> folderInputs, final Listener listener) {
+    Thread thread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                scan(folderInputs, listener, true);
+              }
+            },
+            "ReplayCatalog");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Scans the folders and every folder below them for replays, blocking until done
+   *
+   * @param folderInputs folders to scan
+   * @param foundBrokenReplay set to true when a replay without keys was found, may be null
+   * @return the replay folders, sorted alphabetically
+   */
+  public static List<File> findReplays(List<File> folderInputs, final boolean[] foundBrokenReplay) {
+    final List<File> replayFolders = new ArrayList<File>();
+    scan(
+        folderInputs,
+        new Listener() {
+          @Override
+          public void replaysFound(List<File> replays) {
+            replayFolders.addAll(replays);
+          }
+
+          @Override
+          public void scanFinished(int replayCount, boolean foundBroken) {
+            if (foundBrokenReplay != null) foundBrokenReplay[0] = foundBroken;
+          }
+        },
+        false);
+    return replayFolders;
+  }
+
+  /**
+   * Returns the metadata of a replay folder, using the catalog when the folder is unchanged
+   *
+   * @param replayFolder the replay folder
+   * @return the metadata in the same layout as {@link Replay#readMetadata(String)}
+   */
+  public static Object[] getMetadata(String replayFolder) {
+    Entry entry = entries.get(replayFolder);
+    File folder = new File(replayFolder);
+    if (entry != null && entry.mtime == folder.lastModified() && entry.size == getSize(folder))
+      return entry.toMetadata();
+    return Replay.readMetadata(replayFolder);
+  }
+
+  private static void scan(List<File> folderInputs, final Listener listener, boolean async) {
+    load();
+
+    // Walking the tree is cheap compared to validating folders, so sort everything up front and
+    // hand out results in order as the workers finish them
+    List<File> folders = new ArrayList<File>();
+    for (File folderInput : folderInputs) {
+      if (folderInput == null) continue;
+      Util.listf(folderInput.getAbsolutePath(), folders);
+      folders.add(new File(folderInput.getAbsolutePath()));
+    }
+    Collections.sort(folders);
+
+    ExecutorService executor = getPool();
+    List<Future<Entry>> results = new ArrayList<Future<Entry>>(folders.size());
+    for (final File folder : folders) {
+      results.add(
+          executor.submit(
+              new Callable<Entry>() {
+                @Override
+                public Entry call() {
+                  return lookup(folder);
+                }
+              }));
+    }
+
+    int replayCount = 0;
+    boolean foundBroken = false;
+    List<File> batch = new ArrayList<File>();
+    long lastBatch = System.currentTimeMillis();
+    for (int i = 0; i < results.size(); i++) {
+      Entry entry;
+      try {
+        entry = results.get(i).get();
+      } catch (Exception e) {
+        Logger.Warn("Unable to check replay folder " + folders.get(i));
+        continue;
+      }
+
+      if (entry == BROKEN) {
+        foundBroken = true;
+      } else if (entry != null) {
+        batch.add(folders.get(i));
+        replayCount++;
+      }
+
+      long time = System.currentTimeMillis();
+      if (batch.size() >= BATCH_SIZE || (batch.size() > 0 && time - lastBatch >= BATCH_INTERVAL)) {
+        deliver(listener, batch, async);
+        batch = new ArrayList<File>();
+        lastBatch = time;
+      }
+    }
+    if (batch.size() > 0) deliver(listener, batch, async);
+
+    if (dirty) save();
+
+    final int count = replayCount;
+    final boolean broken = foundBroken;
+    Runnable finish =
+        new Runnable() {
+          @Override
+          public void run() {
+            listener.scanFinished(count, broken);
+          }
+        };
+    if (async) SwingUtilities.invokeLater(finish);
+    else finish.run();
+  }
+
+  private static void deliver(final Listener listener, final List<File> batch, boolean async) {
+    if (!async) {
+      listener.replaysFound(batch);
+      return;
+    }
+
+    SwingUtilities.invokeLater(
+        new Runnable() {
+          @Override
+          public void run() {
+            listener.replaysFound(batch);
+          }
+        });
+  }
+
+  /** Returns the catalog entry of a folder, BROKEN for replays without keys, or null */
+  private static Entry lookup(File folder) {
+    String path = folder.getAbsolutePath();
+    if (!Replay.isValid(path)) return Replay.isBroken(path) ? BROKEN : null;
+
+    Entry entry = entries.get(path);
+    if (entry != null && entry.mtime == folder.lastModified() && entry.size == getSize(folder))
+      return entry;
+
+    Replay.checkAndGenerateMetadata(path);
+
+    entry = new Entry();
+    entry.path = path;
+    // Read after generating metadata, since writing metadata.bin updates the folder
+    entry.mtime = folder.lastModified();
+    entry.size = getSize(folder);
+    Object[] metadata = Replay.readMetadata(path);
+    entry.length = (int) metadata[0];
+    entry.dateModified = (long) metadata[1];
+    entry.world = (String) metadata[2];
+    entry.conversionSettings = (byte) metadata[3];
+    entry.userField = (int) metadata[4];
+    entry.version = readVersion(path);
+
+    entries.put(path, entry);
+    dirty = true;
+    return entry;
+  }
+
+  private static long getSize(File folder) {
+    return new File(folder, "in.bin.gz").length();
+  }
+
+  private static int readVersion(String path) {
+    try {
+      DataInputStream version =
+          new DataInputStream(new FileInputStream(new File(path + "/version.bin")));
+      int ret = version.readInt();
+      version.close();
+      return ret;
+    } catch (Exception e) {
+      return -1;
+    }
+  }
+
+  private static synchronized ExecutorService getPool() {
+    if (pool == null) {
+      final AtomicInteger threadCount = new AtomicInteger();
+      pool =
+          Executors.newFixedThreadPool(
+              Math.max(1, Runtime.getRuntime().availableProcessors()),
+              new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                  Thread thread =
+                      new Thread(runnable, "ReplayCatalog-" + threadCount.incrementAndGet());
+                  thread.setDaemon(true);
+                  return thread;
+                }
+              });
+    }
+    return pool;
+  }
+
+  private static File getCatalogFile() {
+    return new File(Settings.Dir.JAR + "/replay_catalog.bin");
+  }
+
+  private static synchronized void load() {
+    if (loaded) return;
+    loaded = true;
+
+    File file = getCatalogFile();
+    if (!file.exists()) return;
+
+    try {
+      DataInputStream in =
+          new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return;
+
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          Entry entry = new Entry();
+          entry.path = in.readUTF();
+          entry.mtime = in.readLong();
+          entry.size = in.readLong();
+          entry.length = in.readInt();
+          entry.dateModified = in.readLong();
+          entry.world = in.readUTF();
+          entry.conversionSettings = in.readByte();
+          entry.userField = in.readInt();
+          entry.version = in.readInt();
+          entries.put(entry.path, entry);
+        }
+      } finally {
+        in.close();
+      }
+    } catch (Exception e) {
+      Logger.Warn("Replay catalog is unreadable, rebuilding it");
+      entries.clear();
+    }
+  }
+
+  private static synchronized void save() {
+    dirty = false;
+
+    // Forget replays that were moved or deleted
+    List<Entry> saved = new ArrayList<Entry>();
+    for (Entry entry : entries.values()) {
+      if (new File(entry.path, "in.bin.gz").exists()) saved.add(entry);
+      else entries.remove(entry.path);
+    }
+
+    File file = getCatalogFile();
+    File tempFile = new File(file.getPath() + ".tmp");
+    try {
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(saved.size());
+        for (Entry entry : saved) {
+          out.writeUTF(entry.path);
+          out.writeLong(entry.mtime);
+          out.writeLong(entry.size);
+          out.writeInt(entry.length);
+          out.writeLong(entry.dateModified);
+          out.writeUTF(entry.world);
+          out.writeByte(entry.conversionSettings);
+          out.writeInt(entry.userField);
+          out.writeInt(entry.version);
+        }
+      } finally {
+        out.close();
+      }
+      Util.replaceFile(tempFile, file);
+    } catch (Exception e) {
+      tempFile.delete();
+      Logger.Warn("Unable to save the replay catalog");
+    }
+  }
+}
@@ -339,6 +339,9 @@ public class Settings {
 
   public static ArrayList<String> presetTable = new ArrayList<String>();
 
+  private static volatile SettingsSnapshot snapshot = null;
+  private static SettingsWriter configWriter = null;
+
   private Settings() {
     // Empty private constructor to prevent instantiation.
   }
@@ -2319,6 +2322,9 @@ public class Settings {
           getPropBoolean(props, "worldmap_show_chunk_labelling", false);
       WorldMapWindow.showOtherFloors = getPropBoolean(props, "worldmap_show_other_floors", true);
 
+      // Class loading
+      JClassLoader.lazyPatching = getPropBoolean(props, "lazy_class_patching", false);
+
       updateInjectedVariables(); // TODO remove this function
 
       // Keybinds
@@ -2377,6 +2383,9 @@ public class Settings {
         }
       }
 
+      // Read back anything that was saved but not written yet
+      flushSave();
+
       FileInputStream in = new FileInputStream(Dir.JAR + "/config.ini");
       props.load(in);
       in.close();
@@ -2569,7 +2578,7 @@ public class Settings {
     }
   }
 
-  /** Writes all setting variables to config.ini. */
+  /** Writes all setting variables to config.ini in the background. */
   public static void save() {
     updateInjectedVariables(); // TODO remove this function
     if (currentProfile.equals("custom")) {
@@ -2930,15 +2939,27 @@ public class Settings {
       props.setProperty(
           "worldmap_show_other_floors", Boolean.toString(WorldMapWindow.showOtherFloors));
 
-      FileOutputStream out = new FileOutputStream(Dir.JAR + "/config.ini");
-      props.store(out, "---rscplus config---");
-      out.close();
+      // Class loading
+      props.setProperty("lazy_class_patching", Boolean.toString(JClassLoader.lazyPatching));
+
+      getConfigWriter().save(props);
     } catch (Exception e) {
       e.printStackTrace();
       Logger.Error("Unable to save settings");
     }
   }
 
+  /** Writes config.ini now if a save is still waiting to be written */
+  public static void flushSave() {
+    getConfigWriter().flush();
+  }
+
+  private static synchronized SettingsWriter getConfigWriter() {
+    if (configWriter == null)
+      configWriter = new SettingsWriter(new File(Dir.JAR, "config.ini"), "---rscplus config---");
+    return configWriter;
+  }
+
   private static int getPropIntForKeyModifier(KeybindSet kbs) {
     switch (kbs.modifier) {
       case NONE:
@@ -3824,6 +3845,27 @@ public class Settings {
     CAMERA_MOVABLE_BOOL = CAMERA_MOVABLE.get(currentProfile);
     USE_JAGEX_FONTS_BOOL = USE_JAGEX_FONTS.get(currentProfile);
     DISABLE_RANDOM_CHAT_COLOUR_BOOL = DISABLE_RANDOM_CHAT_COLOUR.get(currentProfile);
+    refreshSnapshot();
+  }
+
+  /**
+   * Returns the settings of the current profile for code that runs every frame, read once and kept
+   * for the frame instead of looking each setting up in its map.
+   *
+   * @return the snapshot, or null if the settings haven't been loaded yet
+   */
+  public static SettingsSnapshot snapshot() {
+    SettingsSnapshot current = snapshot;
+    if (current != null && !current.profile.equals(currentProfile)) {
+      refreshSnapshot();
+      current = snapshot;
+    }
+    return current;
+  }
+
+  /** Rebuilds the snapshot, must be called after changing a setting without saving */
+  public static void refreshSnapshot() {
+    snapshot = new SettingsSnapshot(currentProfile);
   }
 
   public static void outputInjectedVariables() {
@@ -0,0 +1,146 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Client;
+
+/**
+ * Values of the settings read every frame, copied out of the {@link Settings} maps for one profile.
+ *
+ * <p>A snapshot never changes once built. {@link Settings#refreshSnapshot()} replaces it whenever
+ * settings are saved or the profile changes, so code that holds on to a snapshot for a frame sees
+ * consistent values without looking anything up in the maps.
+ */
+public class SettingsSnapshot {
+  public final String profile;
+
+  public final boolean COLORIZE_CONSOLE_TEXT;
+  public final boolean LOG_SHOW_LEVEL;
+  public final boolean LOG_FORCE_LEVEL;
+  public final boolean LOG_SHOW_TIMESTAMPS;
+  public final boolean LOG_FORCE_TIMESTAMPS;
+  public final boolean CUSTOM_CLIENT_SIZE;
+  public final boolean SOFTWARE_CURSOR;
+  public final boolean FPS_LIMIT_ENABLED;
+  public final boolean DEBUG;
+  public final boolean CUSTOM_MUSIC;
+  public final boolean JOYSTICK_ENABLED;
+  public final boolean RS2HD_SKY;
+  public final boolean CUSTOM_SKYBOX_OVERWORLD_ENABLED;
+  public final boolean CUSTOM_SKYBOX_UNDERGROUND_ENABLED;
+  public final boolean SHOW_RSCPLUS_BUTTONS;
+  public final boolean RSCPLUS_BUTTONS_FUNCTIONAL;
+  public final boolean WIKI_LOOKUP_ON_MAGIC_BOOK;
+  public final boolean WIKI_LOOKUP_ON_HBAR;
+  public final boolean MOTIVATIONAL_QUOTES_BUTTON;
+  public final boolean HISCORES_LOOKUP_BUTTON;
+  public final boolean TOGGLE_XP_BAR_ON_STATS_BUTTON;
+  public final boolean PATCH_HBAR_512_LAST_PIXEL;
+  public final boolean SHOW_HP_PRAYER_FATIGUE_OVERLAY;
+  public final boolean SHOW_COMBAT_INFO;
+  public final boolean SHOW_BUFFS;
+  public final boolean SHOW_LAST_MENU_ACTION;
+  public final boolean SHOW_MOUSE_TOOLTIP;
+  public final boolean SHOW_EXTENDED_TOOLTIP;
+  public final boolean SHOW_INVCOUNT;
+  public final boolean SHOW_INVCOUNT_COLOURS;
+  public final boolean SHOW_RETRO_FPS;
+  public final boolean SHOW_ITEM_GROUND_OVERLAY;
+  public final boolean SHOW_PLAYER_NAME_OVERLAY;
+  public final boolean SHOW_PLAYER_POSITION;
+  public final boolean SHOW_FRIEND_NAME_OVERLAY;
+  public final boolean SHOW_NPC_NAME_OVERLAY;
+  public final boolean EXTEND_IDS_OVERLAY;
+  public final boolean SHOW_HITBOX;
+  public final boolean FATIGUE_ALERT;
+  public final boolean INVENTORY_FULL_ALERT;
+  public final boolean LAG_INDICATOR;
+  public final boolean TRIGGER_ALERTS_REPLAY;
+  public final boolean RECORD_AUTOMATICALLY;
+  public final boolean SHOW_SEEK_BAR;
+  public final boolean SHOW_PLAYER_CONTROLS;
+  public final boolean SPEEDRUNNER_MODE_ACTIVE;
+
+  public final int LOG_VERBOSITY;
+  public final int FOV;
+  public final int FPS_LIMIT;
+  public final int CUSTOM_SKYBOX_OVERWORLD_COLOUR;
+  public final int CUSTOM_SKYBOX_UNDERGROUND_COLOUR;
+  public final int LOW_HP_NOTIF_VALUE;
+  public final int FATIGUE_NOTIF_VALUE;
+  public final int WORLD;
+
+  SettingsSnapshot(String profile) {
+    this.profile = profile;
+
+    COLORIZE_CONSOLE_TEXT = Settings.COLORIZE_CONSOLE_TEXT.get(profile);
+    LOG_SHOW_LEVEL = Settings.LOG_SHOW_LEVEL.get(profile);
+    LOG_FORCE_LEVEL = Settings.LOG_FORCE_LEVEL.get(profile);
+    LOG_SHOW_TIMESTAMPS = Settings.LOG_SHOW_TIMESTAMPS.get(profile);
+    LOG_FORCE_TIMESTAMPS = Settings.LOG_FORCE_TIMESTAMPS.get(profile);
+    CUSTOM_CLIENT_SIZE = Settings.CUSTOM_CLIENT_SIZE.get(profile);
+    SOFTWARE_CURSOR = Settings.SOFTWARE_CURSOR.get(profile);
+    FPS_LIMIT_ENABLED = Settings.FPS_LIMIT_ENABLED.get(profile);
+    DEBUG = Settings.DEBUG.get(profile);
+    CUSTOM_MUSIC = Settings.CUSTOM_MUSIC.get(profile);
+    JOYSTICK_ENABLED = Settings.JOYSTICK_ENABLED.get(profile);
+    RS2HD_SKY = Settings.RS2HD_SKY.get(profile);
+    CUSTOM_SKYBOX_OVERWORLD_ENABLED = Settings.CUSTOM_SKYBOX_OVERWORLD_ENABLED.get(profile);
+    CUSTOM_SKYBOX_UNDERGROUND_ENABLED = Settings.CUSTOM_SKYBOX_UNDERGROUND_ENABLED.get(profile);
+    SHOW_RSCPLUS_BUTTONS = Settings.SHOW_RSCPLUS_BUTTONS.get(profile);
+    RSCPLUS_BUTTONS_FUNCTIONAL = Settings.RSCPLUS_BUTTONS_FUNCTIONAL.get(profile);
+    WIKI_LOOKUP_ON_MAGIC_BOOK = Settings.WIKI_LOOKUP_ON_MAGIC_BOOK.get(profile);
+    WIKI_LOOKUP_ON_HBAR = Settings.WIKI_LOOKUP_ON_HBAR.get(profile);
+    MOTIVATIONAL_QUOTES_BUTTON = Settings.MOTIVATIONAL_QUOTES_BUTTON.get(profile);
+    HISCORES_LOOKUP_BUTTON = Settings.HISCORES_LOOKUP_BUTTON.get(profile);
+    TOGGLE_XP_BAR_ON_STATS_BUTTON = Settings.TOGGLE_XP_BAR_ON_STATS_BUTTON.get(profile);
+    PATCH_HBAR_512_LAST_PIXEL = Settings.PATCH_HBAR_512_LAST_PIXEL.get(profile);
+    SHOW_HP_PRAYER_FATIGUE_OVERLAY = Settings.SHOW_HP_PRAYER_FATIGUE_OVERLAY.get(profile);
+    SHOW_COMBAT_INFO = Settings.SHOW_COMBAT_INFO.get(profile);
+    SHOW_BUFFS = Settings.SHOW_BUFFS.get(profile);
+    SHOW_LAST_MENU_ACTION = Settings.SHOW_LAST_MENU_ACTION.get(profile);
+    SHOW_MOUSE_TOOLTIP = Settings.SHOW_MOUSE_TOOLTIP.get(profile);
+    SHOW_EXTENDED_TOOLTIP = Settings.SHOW_EXTENDED_TOOLTIP.get(profile);
+    SHOW_INVCOUNT = Settings.SHOW_INVCOUNT.get(profile);
+    SHOW_INVCOUNT_COLOURS = Settings.SHOW_INVCOUNT_COLOURS.get(profile);
+    SHOW_RETRO_FPS = Settings.SHOW_RETRO_FPS.get(profile);
+    SHOW_ITEM_GROUND_OVERLAY = Settings.SHOW_ITEM_GROUND_OVERLAY.get(profile);
+    SHOW_PLAYER_NAME_OVERLAY = Settings.SHOW_PLAYER_NAME_OVERLAY.get(profile);
+    SHOW_PLAYER_POSITION = Settings.SHOW_PLAYER_POSITION.get(profile);
+    SHOW_FRIEND_NAME_OVERLAY = Settings.SHOW_FRIEND_NAME_OVERLAY.get(profile);
+    SHOW_NPC_NAME_OVERLAY = Settings.SHOW_NPC_NAME_OVERLAY.get(profile);
+    EXTEND_IDS_OVERLAY = Settings.EXTEND_IDS_OVERLAY.get(profile);
+    SHOW_HITBOX = Settings.SHOW_HITBOX.get(profile);
+    FATIGUE_ALERT = Settings.FATIGUE_ALERT.get(profile);
+    INVENTORY_FULL_ALERT = Settings.INVENTORY_FULL_ALERT.get(profile);
+    LAG_INDICATOR = Settings.LAG_INDICATOR.get(profile);
+    TRIGGER_ALERTS_REPLAY = Settings.TRIGGER_ALERTS_REPLAY.get(profile);
+    RECORD_AUTOMATICALLY = Settings.RECORD_AUTOMATICALLY.get(profile);
+    SHOW_SEEK_BAR = Settings.SHOW_SEEK_BAR.get(profile);
+    SHOW_PLAYER_CONTROLS = Settings.SHOW_PLAYER_CONTROLS.get(profile);
+    SPEEDRUNNER_MODE_ACTIVE = Settings.SPEEDRUNNER_MODE_ACTIVE.get(profile);
+
+    LOG_VERBOSITY = Settings.LOG_VERBOSITY.get(profile);
+    FOV = Settings.FOV.get(profile);
+    FPS_LIMIT = Settings.FPS_LIMIT.get(profile);
+    CUSTOM_SKYBOX_OVERWORLD_COLOUR = Settings.CUSTOM_SKYBOX_OVERWORLD_COLOUR.get(profile);
+    CUSTOM_SKYBOX_UNDERGROUND_COLOUR = Settings.CUSTOM_SKYBOX_UNDERGROUND_COLOUR.get(profile);
+    LOW_HP_NOTIF_VALUE = Settings.LOW_HP_NOTIF_VALUE.get(profile);
+    FATIGUE_NOTIF_VALUE = Settings.FATIGUE_NOTIF_VALUE.get(profile);
+    WORLD = Settings.WORLD.get(profile);
+  }
+}
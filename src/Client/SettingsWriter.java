@@ -0,0 +1,127 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Client;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Writes a properties file on a background thread.
+ *
+ * <p>Saves only hand over the properties to write. The writer waits until no save has come in for
+ * {@link #DELAY} ms, so a burst of saves is written once, then writes a temporary file and moves it
+ * over the old one, so an interrupted write never leaves a partial file behind.
+ */
+public class SettingsWriter {
+  /** Time without saves before the latest one is written */
+  public static final long DELAY = 500;
+
+  private final File file;
+  private final String comments;
+  private final Object writeLock = new Object();
+  private Properties pending = null;
+  private long writeTime = 0;
+  private Thread thread = null;
+
+  public SettingsWriter(File file, String comments) {
+    this.file = file;
+    this.comments = comments;
+  }
+
+  /** Queues the properties to be written, replacing any that haven't been written yet */
+  public synchronized void save(Properties props) {
+    pending = props;
+    writeTime = System.currentTimeMillis() + DELAY;
+    if (thread == null) start();
+    notifyAll();
+  }
+
+  /** Writes queued properties now, returns once they are on disk */
+  public void flush() {
+    synchronized (writeLock) {
+      Properties props;
+      synchronized (this) {
+        props = pending;
+        pending = null;
+      }
+      if (props != null) write(props);
+    }
+  }
+
+  private void write(Properties props) {
+    File temp = new File(file.getPath() + ".tmp");
+    try {
+      FileOutputStream out = new FileOutputStream(temp);
+      try {
+        props.store(out, comments);
+        out.getFD().sync();
+      } finally {
+        out.close();
+      }
+      Util.replaceFile(temp, file);
+    } catch (IOException e) {
+      e.printStackTrace();
+      Logger.Error("Unable to save " + file.getName());
+      temp.delete();
+    }
+  }
+
+  private void start() {
+    thread =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                runWriter();
+              }
+            },
+            "SettingsWriter");
+    thread.setDaemon(true);
+    thread.start();
+
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    flush();
+                  }
+                }));
+  }
+
+  private void runWriter() {
+    for (; ; ) {
+      synchronized (this) {
+        try {
+          while (pending == null) wait();
+
+          // Later saves push the write back
+          long delay;
+          while ((delay = writeTime - System.currentTimeMillis()) > 0) wait(delay);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+      flush();
+    }
+  }
+}
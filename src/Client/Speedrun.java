@@ -193,6 +193,7 @@ public class Speedrun {
 
   public static void endTheRun() {
     Settings.SPEEDRUNNER_MODE_ACTIVE.put(Settings.currentProfile, false);
+    Settings.refreshSnapshot();
     endTheRUNNN = true;
     saveAndQuitSpeedrun();
   }
@@ -22,7 +22,9 @@ import Game.Replay;
 import Game.ReplayQueue;
 import java.awt.*;
 import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -325,6 +327,20 @@ public class Util {
     return -1;
   }
 
+  /**
+   * Reads the rest of a stream without closing it.
+   *
+   * @param in the stream to read
+   * @return the data read
+   */
+  public static byte[] readAllBytes(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] data = new byte[8192];
+    int readSize;
+    while ((readSize = in.read(data, 0, data.length)) != -1) out.write(data, 0, readSize);
+    return out.toByteArray();
+  }
+
   /**
    * Gets the URL to the RSC jav_config.ws file for a given world.
    *
@@ -468,47 +484,30 @@ public class Util {
   }
 
   public static List<File> getAllReplays(List<File> folderInputs) {
-    ReplayQueue.foundBrokenReplay = false;
-    List<File> potentialReplayFolders = new ArrayList<File>();
-    List<File> replayFolders = new ArrayList<File>();
-
-    for (File folderInputFile : folderInputs) {
-      if (folderInputFile != null) {
-        String folderInput = folderInputFile.getAbsolutePath();
-        listf(folderInput, potentialReplayFolders);
-        if (Replay.isValid(folderInput)) {
-          Replay.checkAndGenerateMetadata(folderInput);
-          replayFolders.add(new File(folderInput));
-        } else {
-          if (Replay.isBroken(folderInput)) {
-            ReplayQueue.foundBrokenReplay = true;
-          }
-        }
-      }
-    }
-    for (File file : potentialReplayFolders) {
-      if (Replay.isValid(file.getAbsolutePath())) {
-        Replay.checkAndGenerateMetadata(file.getAbsolutePath());
-        replayFolders.add(file);
-      } else {
-        if (Replay.isBroken(file.getAbsolutePath())) {
-          ReplayQueue.foundBrokenReplay = true;
-        }
-      }
-    }
-
-    Collections.sort(
-        replayFolders,
-        new Comparator<File>() {
-          @Override
-          public int compare(File file2, File file1) {
-            // sorts alphabetically
-            return file2.compareTo(file1);
-          }
-        });
+    boolean[] foundBrokenReplay = new boolean[1];
+    List<File> replayFolders = ReplayCatalog.findReplays(folderInputs, foundBrokenReplay);
+    ReplayQueue.foundBrokenReplay = foundBrokenReplay[0];
     return replayFolders;
   }
 
+  /**
+   * Replaces a file with another one, atomically if the file system supports it
+   *
+   * @param source the new file
+   * @param target the file to replace
+   */
+  public static void replaceFile(File source, File target) throws IOException {
+    try {
+      Files.move(
+          source.toPath(),
+          target.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
   public static int getReplayEnding(File replay) {
     int timestamp_ret = 0;
 
@@ -10,8 +10,10 @@ import java.io.*;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.plaf.nimbus.NimbusLookAndFeel;
@@ -112,10 +114,32 @@ public class WorldMapWindow {
   private static ArrayList<MapGlyph> mapGlyphs = new ArrayList<MapGlyph>();
   private static ArrayList<MapLink> mapLinks = new ArrayList<MapLink>();
 
-  private static BufferedImage[] mapImageBuffer;
-  private static boolean[] mapImageUpdate;
-
-  private static Object renderLock = new Object();
+  /** Tiles kept at most, enough for a whole floor */
+  private static final int MAP_TILES_MAX = 128;
+
+  private static MapTileCache mapTiles;
+
+  // Glyph circles are drawn once and copied, a circle drawn clipped by a tile edge gets a different
+  // outline
+  private static BufferedImage glyphBackground;
+  private static BufferedImage glyphBackgroundHighlighted;
+
+  // Indexes of the objects highlighted on the map tiles, which lag behind searchText until results
+  // are found
+  private static final int[] NO_HIGHLIGHTS = new int[0];
+  private static int[] highlightedGlyphs = NO_HIGHLIGHTS;
+  private static int[] highlightedLabels = NO_HIGHLIGHTS;
+  private static int[] highlightedSceneries = NO_HIGHLIGHTS;
+  private static int[] highlightedBoundaries = NO_HIGHLIGHTS;
+
+  // Lookups over the map objects, built when first needed after the objects are loaded
+  private static MapSearchIndex glyphSearch;
+  private static MapSearchIndex labelSearch;
+  private static MapSearchIndex scenerySearch;
+  private static MapSearchIndex boundarySearch;
+  private static MapGrid[] sceneryGrids;
+  private static MapGrid[] boundaryGrids;
+  private static HashMap<Integer, MapScenery> sceneryCoords = new HashMap<Integer, MapScenery>();
 
   private static String legendText[] = {
     "Rare Trees",
@@ -243,193 +267,364 @@ public class WorldMapWindow {
     GraphicsDevice graphicsDevice = graphicsEnvironment.getDefaultScreenDevice();
     GraphicsConfiguration graphicsConfiguration = graphicsDevice.getDefaultConfiguration();
 
-    // If the source image has no alpha info use Transparency.OPAQUE instead
-
-    mapImageBuffer = new BufferedImage[4];
-    for (int i = 0; i < 4; i++)
-      mapImageBuffer[i] =
-          graphicsConfiguration.createCompatibleImage(
-              2448 + 1, 2736 + 1, Transparency.OPAQUE); // + 1 coords for border
-    mapImageUpdate = new boolean[4];
-    // mapImageBuffer = new BufferedImage(2448, 2736, BufferedImage.TYPE_INT_RGB);
+    mapTiles =
+        new MapTileCache(
+            graphicsConfiguration, 2448 + 1, 2736 + 1, MAP_TILES_MAX) { // + 1 coords for border
+          @Override
+          protected void renderTile(Graphics2D g, int plane, Rectangle bounds) {
+            renderMapTile(g, plane, bounds);
+          }
+        };
   }
 
   private static MapScenery getSceneryAtCoord(int x, int y) {
-    for (MapScenery scenery : mapSceneries) {
-      if (scenery.x == x && scenery.y == y) return scenery;
-    }
-    return null;
+    return sceneryCoords.get(getCoordKey(x, y));
   }
 
-  private static void updateMapFloorRender(int plane, boolean force) {
-    if (!force && mapImageUpdate[plane]) return;
-
-    int mapWidth = mapImageBuffer[plane].getWidth();
-    int mapHeight = mapImageBuffer[plane].getHeight();
+  private static int getCoordKey(int x, int y) {
+    return (x << 16) | (y & 0xFFFF);
+  }
 
-    Graphics2D g = (Graphics2D) mapImageBuffer[plane].getGraphics();
+  private static void renderMapTile(Graphics2D g, int plane, Rectangle bounds) {
+    int mapWidth = planes[plane].getWidth(null) + 1;
+    int mapHeight = planes[plane].getHeight(null) + 1;
 
-    if (showOtherFloors || planeIndex == 0) g.setColor(color_water);
+    if (showOtherFloors || plane == 0) g.setColor(color_water);
     else g.setColor(Color.black);
 
-    synchronized (renderLock) {
-      g.fillRect(0, 0, mapWidth, mapHeight);
+    g.fillRect(0, 0, mapWidth, mapHeight);
 
-      if (showOtherFloors) {
-        if (plane == 3) {
-          g.drawImage(planes[0], 0, 0, null);
-          setAlpha(g, 0.8f);
+    if (showOtherFloors) {
+      if (plane == 3) {
+        g.drawImage(planes[0], 0, 0, null);
+        setAlpha(g, 0.8f);
+        g.setColor(Color.black);
+        g.fillRect(0, 0, mapWidth, mapHeight);
+        setAlpha(g, 1.0f);
+      } else {
+        for (int i = 0; i < plane; i++) {
+          g.drawImage(planes[i], 0, 0, null);
+          setAlpha(g, 0.5f);
           g.setColor(Color.black);
           g.fillRect(0, 0, mapWidth, mapHeight);
           setAlpha(g, 1.0f);
-        } else {
-          for (int i = 0; i < plane; i++) {
-            g.drawImage(planes[i], 0, 0, null);
-            setAlpha(g, 0.5f);
-            g.setColor(Color.black);
-            g.fillRect(0, 0, mapWidth, mapHeight);
-            setAlpha(g, 1.0f);
-          }
         }
       }
-      g.drawImage(planes[plane], 0, 0, null);
-
-      if (showScenery) {
-        for (MapScenery scenery : mapSceneries) {
-          Rectangle p = convertWorldCoordsToMapRaw(scenery.x, scenery.y);
-          if (p.width != plane) continue;
-
-          if (scenery.isSearchable()
-              && searchText.length() > 0
-              && (searchNumber == scenery.id
-                  || scenery.searchName.toLowerCase().contains(searchText.toLowerCase())))
-            g.setColor(Renderer.color_item_highlighted);
-          else if (p.height == 0 && (scenery.id == 0 || scenery.id == 1))
-            g.setColor(color_scenery_tree);
-          else if (p.height == 1
-              && (scenery.id == 70
-                  || scenery.id == 205
-                  || scenery.id == 38
-                  || scenery.id == 4
-                  || scenery.id == 208
-                  || scenery.id == 108)) g.setColor(color_scenery_deadtree);
-          else if (plane == 0 || plane == 3) g.setColor(color_scenery_normal);
-          else g.setColor(color_scenery_indoors);
-
-          // Renderer.drawShadowText(g, scenery.id + "", p.x, p.y - 16, Renderer.color_text, true);
-          drawMapPoint(g, p.x, p.y);
-        }
+    }
+    g.drawImage(planes[plane], 0, 0, null);
+
+    // Points reach a few pixels past their map position
+    Rectangle gridArea =
+        new Rectangle(bounds.x - 8, bounds.y - 8, bounds.width + 16, bounds.height + 16);
+
+    if (showScenery) {
+      for (int index : getMapGrids(mapSceneries, true)[plane].query(gridArea)) {
+        MapScenery scenery = mapSceneries.get(index);
+        Rectangle p = scenery.mapPosition;
+        if (!bounds.intersects(getPointBounds(p))) continue;
+
+        if (scenery.highlighted) g.setColor(Renderer.color_item_highlighted);
+        else if (p.height == 0 && (scenery.id == 0 || scenery.id == 1))
+          g.setColor(color_scenery_tree);
+        else if (p.height == 1
+            && (scenery.id == 70
+                || scenery.id == 205
+                || scenery.id == 38
+                || scenery.id == 4
+                || scenery.id == 208
+                || scenery.id == 108)) g.setColor(color_scenery_deadtree);
+        else if (plane == 0 || plane == 3) g.setColor(color_scenery_normal);
+        else g.setColor(color_scenery_indoors);
+
+        // Renderer.drawShadowText(g, scenery.id + "", p.x, p.y - 16, Renderer.color_text, true);
+        drawMapPoint(g, p.x, p.y);
       }
+    }
 
-      for (MapScenery boundary : mapBoundaries) {
-        Rectangle p = convertWorldCoordsToMapRaw(boundary.x, boundary.y);
-        if (p.width != plane) continue;
+    for (int index : getMapGrids(mapBoundaries, false)[plane].query(gridArea)) {
+      MapScenery boundary = mapBoundaries.get(index);
+      Rectangle p = boundary.mapPosition;
+      if (!bounds.intersects(getPointBounds(p))) continue;
 
-        if (boundary.isSearchable()
-            && searchText.length() > 0
-            && (boundarySearchNumber == boundary.id
-                || boundary.searchName.toLowerCase().contains(searchText.toLowerCase()))) {
-          g.setColor(Renderer.color_low);
-          drawMapBoundary(g, p.x, p.y, boundary.dir);
-        }
+      if (boundary.highlighted) {
+        g.setColor(Renderer.color_low);
+        drawMapBoundary(g, p.x, p.y, boundary.dir);
       }
+    }
 
-      for (MapLink link : mapLinks) {
-        Rectangle p = convertWorldCoordsToMapRaw(link.loc.x, link.loc.y);
-        if (p.width != plane) continue;
+    for (MapLink link : mapLinks) {
+      Rectangle p = convertWorldCoordsToMapRaw(link.loc.x, link.loc.y);
+      if (p.width != plane) continue;
+
+      int x = p.x;
+      int y = p.y;
+      int w = link.loc.width;
+      int h = link.loc.height;
+      g.setColor(Renderer.color_text);
+      g.fillOval(x, y, w, h);
+      g.setColor(Renderer.color_shadow);
+      g.drawOval(x, y, w, h);
+    }
 
-        int x = p.x;
-        int y = p.y;
-        int w = link.loc.width;
-        int h = link.loc.height;
-        g.setColor(Renderer.color_text);
-        g.fillOval(x, y, w, h);
-        g.setColor(Renderer.color_shadow);
-        g.drawOval(x, y, w, h);
-      }
+    // Only draw labels and glyphs for floor 0
+    if (plane == 0) {
+      if (showIcons) {
+        for (MapGlyph glyph : mapGlyphs) {
+          if (glyph.id == -1 || !bounds.intersects(getGlyphBounds(glyph))) continue;
 
-      // Only draw labels and glyphs for floor 0
-      if (plane == 0) {
-        if (showIcons) {
-          for (MapGlyph glyph : mapGlyphs) {
-            if (glyph.id == -1) continue;
-
-            int glyphX = glyph.x;
-            int glyphY = glyph.y;
-
-            Color glyphBackgroundColor = Renderer.color_text;
-            if (searchText.length() > 0
-                && legendText[glyph.id].toLowerCase().contains(searchText.toLowerCase()))
-              glyphBackgroundColor = Renderer.color_item_highlighted;
-
-            g.setColor(glyphBackgroundColor);
-            g.fillOval(glyphX, glyphY, 14, 14);
-            g.setColor(Renderer.color_shadow);
-            g.drawOval(glyphX, glyphY, 14, 14);
-            g.drawImage(
-                legends[glyph.id],
-                glyphX + (7 - legends[glyph.id].getWidth(null) / 2),
-                glyphY + (7 - legends[glyph.id].getHeight(null) / 2),
-                null);
-          }
-        }
+          int glyphX = glyph.x;
+          int glyphY = glyph.y;
 
-        if (showLabels) {
-          for (MapLabel label : mapLabels) drawMapLabel(g, label.x, label.y, label);
+          g.drawImage(getGlyphBackground(glyph.highlighted), glyphX - 1, glyphY - 1, null);
+          g.drawImage(
+              legends[glyph.id],
+              glyphX + (7 - legends[glyph.id].getWidth(null) / 2),
+              glyphY + (7 - legends[glyph.id].getHeight(null) / 2),
+              null);
         }
       }
 
-      int chunkSize = 48 * 3;
-
-      if (renderChunkGrid) {
-        if (planeIndex == 0) g.setColor(Renderer.color_shadow);
-        else g.setColor(Renderer.color_prayer);
-        setAlpha(g, 0.5f);
-        for (int x = 0; x <= mapWidth; x += chunkSize) g.drawLine(x, 0, x, mapHeight);
-        for (int y = 0; y <= mapHeight; y += chunkSize) g.drawLine(0, y, mapWidth, y);
-        setAlpha(g, 1.0f);
+      if (showLabels) {
+        for (MapLabel label : mapLabels) {
+          if (bounds.intersects(getLabelBounds(label))) drawMapLabel(g, label.x, label.y, label);
+        }
       }
+    }
 
-      if (renderChunkLabelling) {
-        for (int x = 0; x < AreaDefinition.SIZE_X; x++) {
-          for (int y = 0; y < AreaDefinition.SIZE_Y; y++) {
-            int indexX = AreaDefinition.SIZE_X - x - 1;
-            int indexY = y;
-            int drawX = x * chunkSize + 4;
-            int drawY = y * chunkSize + 12;
-            g.setFont(Renderer.font_main);
-
-            int chunkX = indexX + AreaDefinition.REGION_X_OFFSET;
-            int chunkY = indexY + AreaDefinition.REGION_Y_OFFSET;
-
-            String music = Client.areaDefinitions[planeIndex][chunkX][chunkY].music.trackname;
+    int chunkSize = 48 * 3;
 
-            if (!Client.areaDefinitions[planeIndex][chunkX][chunkY].hasLand) continue;
+    if (renderChunkGrid) {
+      if (plane == 0) g.setColor(Renderer.color_shadow);
+      else g.setColor(Renderer.color_prayer);
+      setAlpha(g, 0.5f);
+      for (int x = 0; x <= mapWidth; x += chunkSize) g.drawLine(x, 0, x, mapHeight);
+      for (int y = 0; y <= mapHeight; y += chunkSize) g.drawLine(0, y, mapWidth, y);
+      setAlpha(g, 1.0f);
+    }
 
-            if (music.length() == 0 || !Settings.CUSTOM_MUSIC.get(Settings.currentProfile)) {
-              Renderer.drawColoredText(
-                  g, "@yel@" + planeIndex + "" + chunkX + "" + chunkY, drawX, drawY, false);
-            } else {
-              Renderer.drawColoredText(
-                  g,
-                  "@yel@" + planeIndex + "" + chunkX + "" + chunkY + ": @cya@" + music,
-                  drawX,
-                  drawY,
-                  false);
-            }
+    if (renderChunkLabelling) {
+      for (int x = 0; x < AreaDefinition.SIZE_X; x++) {
+        for (int y = 0; y < AreaDefinition.SIZE_Y; y++) {
+          int indexX = AreaDefinition.SIZE_X - x - 1;
+          int indexY = y;
+          int drawX = x * chunkSize + 4;
+          int drawY = y * chunkSize + 12;
+          // The label is one line of text starting at its chunk, but may run into the next ones
+          if (drawX > bounds.x + bounds.width
+              || drawY - chunkSize / 4 > bounds.y + bounds.height
+              || drawY + chunkSize / 4 < bounds.y) continue;
+          g.setFont(Renderer.font_main);
+
+          int chunkX = indexX + AreaDefinition.REGION_X_OFFSET;
+          int chunkY = indexY + AreaDefinition.REGION_Y_OFFSET;
+
+          String music = Client.areaDefinitions[plane][chunkX][chunkY].music.trackname;
+
+          if (!Client.areaDefinitions[plane][chunkX][chunkY].hasLand) continue;
+
+          if (music.length() == 0 || !Settings.CUSTOM_MUSIC.get(Settings.currentProfile)) {
+            Renderer.drawColoredText(
+                g, "@yel@" + plane + "" + chunkX + "" + chunkY, drawX, drawY, false);
+          } else {
+            Renderer.drawColoredText(
+                g,
+                "@yel@" + plane + "" + chunkX + "" + chunkY + ": @cya@" + music,
+                drawX,
+                drawY,
+                false);
           }
         }
       }
     }
+  }
+
+  private static BufferedImage getGlyphBackground(boolean highlighted) {
+    if (glyphBackground == null) {
+      glyphBackground = createGlyphBackground(Renderer.color_text);
+      glyphBackgroundHighlighted = createGlyphBackground(Renderer.color_item_highlighted);
+    }
+    return highlighted ? glyphBackgroundHighlighted : glyphBackground;
+  }
 
+  private static BufferedImage createGlyphBackground(Color color) {
+    BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = image.createGraphics();
+    g.setColor(color);
+    g.fillOval(1, 1, 14, 14);
+    g.setColor(Renderer.color_shadow);
+    g.drawOval(1, 1, 14, 14);
     g.dispose();
-    mapImageUpdate[plane] = true;
+    return image;
   }
 
+  /** Renders the map again, for when anything other than search highlights changed */
   private static void updateMapRender() {
-    for (int i = 0; i < 4; i++) mapImageUpdate[i] = false;
+    setHighlights(false);
+    mapTiles.invalidateAll();
+  }
+
+  /** Renders again only the map tiles with something that is highlighted differently */
+  private static void updateSearchHighlights() {
+    setHighlights(true);
+  }
+
+  /** Highlights the objects found by searchText, rendering their tiles again if asked to */
+  private static void setHighlights(boolean invalidate) {
+    buildSearchIndexes();
+    String text = searchText.toLowerCase();
+
+    int[] glyphs = glyphSearch.search(text, -1);
+    for (int index : highlightedGlyphs) mapGlyphs.get(index).highlighted = false;
+    for (int index : glyphs) mapGlyphs.get(index).highlighted = true;
+    if (invalidate && showIcons) {
+      for (int index : getChangedIndexes(highlightedGlyphs, glyphs))
+        mapTiles.invalidate(0, getGlyphBounds(mapGlyphs.get(index)));
+    }
+    highlightedGlyphs = glyphs;
+
+    int[] labels = labelSearch.search(text, -1);
+    for (int index : highlightedLabels) mapLabels.get(index).highlighted = false;
+    for (int index : labels) mapLabels.get(index).highlighted = true;
+    if (invalidate && showLabels) {
+      for (int index : getChangedIndexes(highlightedLabels, labels))
+        mapTiles.invalidate(0, getLabelBounds(mapLabels.get(index)));
+    }
+    highlightedLabels = labels;
+
+    int[] sceneries = scenerySearch.search(text, searchNumber);
+    for (int index : highlightedSceneries) mapSceneries.get(index).highlighted = false;
+    for (int index : sceneries) mapSceneries.get(index).highlighted = true;
+    if (invalidate && showScenery) {
+      getMapGrids(mapSceneries, true);
+      for (int index : getChangedIndexes(highlightedSceneries, sceneries)) {
+        Rectangle p = mapSceneries.get(index).mapPosition;
+        mapTiles.invalidate(p.width, getPointBounds(p));
+      }
+    }
+    highlightedSceneries = sceneries;
+
+    int[] boundaries = boundarySearch.search(text, boundarySearchNumber);
+    for (int index : highlightedBoundaries) mapBoundaries.get(index).highlighted = false;
+    for (int index : boundaries) mapBoundaries.get(index).highlighted = true;
+    if (invalidate) {
+      getMapGrids(mapBoundaries, false);
+      for (int index : getChangedIndexes(highlightedBoundaries, boundaries)) {
+        Rectangle p = mapBoundaries.get(index).mapPosition;
+        mapTiles.invalidate(p.width, getPointBounds(p));
+      }
+    }
+    highlightedBoundaries = boundaries;
+  }
+
+  /** Returns the indexes in only one of the two sorted arrays */
+  private static int[] getChangedIndexes(int[] prev, int[] next) {
+    int[] changed = new int[prev.length + next.length];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < prev.length || j < next.length) {
+      if (j == next.length || (i < prev.length && prev[i] < next[j])) changed[count++] = prev[i++];
+      else if (i == prev.length || next[j] < prev[i]) changed[count++] = next[j++];
+      else {
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(changed, count);
+  }
+
+  private static void buildSearchIndexes() {
+    if (glyphSearch == null) {
+      glyphSearch = new MapSearchIndex();
+      for (MapGlyph glyph : mapGlyphs)
+        glyphSearch.add(glyph.id != -1 ? legendText[glyph.id] : null, -1);
+    }
+    if (labelSearch == null) {
+      labelSearch = new MapSearchIndex();
+      for (MapLabel label : mapLabels) labelSearch.add(label.getSearchName(), -1);
+    }
+    if (scenerySearch == null) {
+      scenerySearch = new MapSearchIndex();
+      for (MapScenery scenery : mapSceneries) scenerySearch.add(scenery.searchName, scenery.id);
+    }
+    if (boundarySearch == null) {
+      boundarySearch = new MapSearchIndex();
+      for (MapScenery boundary : mapBoundaries)
+        boundarySearch.add(boundary.searchName, boundary.id);
+    }
+  }
+
+  /** Returns the grid of each floor over the scenery or boundaries, building it if needed */
+  private static MapGrid[] getMapGrids(ArrayList<MapScenery> objects, boolean scenery) {
+    MapGrid[] grids = scenery ? sceneryGrids : boundaryGrids;
+    if (grids != null) return grids;
+
+    int mapWidth = planes[0].getWidth(null) + 1;
+    int mapHeight = planes[0].getHeight(null) + 1;
+    grids = new MapGrid[planes.length];
+    for (int i = 0; i < grids.length; i++)
+      grids[i] = new MapGrid(mapWidth, mapHeight, MapTileCache.TILE_SIZE);
+    for (int i = 0; i < objects.size(); i++) {
+      MapScenery object = objects.get(i);
+      object.mapPosition = convertWorldCoordsToMapRaw(object.x, object.y);
+      if (object.mapPosition.width < grids.length)
+        grids[object.mapPosition.width].add(object.mapPosition.x, object.mapPosition.y, i);
+    }
+
+    if (scenery) sceneryGrids = grids;
+    else boundaryGrids = grids;
+    return grids;
+  }
+
+  /** Area a scenery point or boundary drawn at the map position covers */
+  private static Rectangle getPointBounds(Rectangle p) {
+    return new Rectangle(p.x - 1, p.y - 2, 6, 6);
+  }
+
+  private static Rectangle getGlyphBounds(MapGlyph glyph) {
+    Rectangle bounds = new Rectangle(glyph.x - 1, glyph.y - 1, 16, 16);
+    Image legend = legends[glyph.id];
+    bounds.add(
+        new Rectangle(
+            glyph.x + (7 - legend.getWidth(null) / 2),
+            glyph.y + (7 - legend.getHeight(null) / 2),
+            legend.getWidth(null),
+            legend.getHeight(null)));
+    return bounds;
+  }
+
+  /** Area covered by a label and its shadow as drawn by drawMapLabel() */
+  private static Rectangle getLabelBounds(MapLabel label) {
+    if (label.bounds != null) return label.bounds;
+
+    Font font = label.bold ? fontsBold[label.size] : fonts[label.size];
+    FontMetrics metrics = mapView.getFontMetrics(font);
+    String[] lines = label.text.split("\n");
+    int width = 0;
+    if (label.centered) {
+      for (String line : lines) width = Math.max(width, metrics.stringWidth(line));
+    }
+
+    Rectangle bounds = null;
+    int y = label.y;
+    for (String line : lines) {
+      int lineWidth = metrics.stringWidth(line);
+      int offsetX = label.centered ? lineWidth / 2 : 0;
+      int baseline = y + metrics.getHeight() / 2;
+      // The shadow adds a pixel on every side, and a few more cover overhanging glyphs
+      Rectangle lineBounds =
+          new Rectangle(
+              label.x - offsetX + width / 2 - 4,
+              baseline - metrics.getMaxAscent() - 4,
+              lineWidth + 8,
+              metrics.getMaxAscent() + metrics.getMaxDescent() + 8);
+      if (bounds == null) bounds = lineBounds;
+      else bounds.add(lineBounds);
+      y += metrics.getHeight();
+    }
 
-    updateMapFloorRender(planeIndex, false);
+    label.bounds = bounds;
+    return bounds;
   }
 
   private static void setAlpha(Graphics2D g, float alpha) {
@@ -464,7 +659,7 @@ public class WorldMapWindow {
 
     if (searchText.length() == 0) {
       searchResults = null;
-      if (updateMap) updateMapRender();
+      if (updateMap) updateSearchHighlights();
       return;
     }
 
@@ -482,83 +677,34 @@ public class WorldMapWindow {
     } catch (Exception e) {
     }
 
-    ArrayList<SearchResult> results = new ArrayList<SearchResult>();
-    for (SearchResult glyph : mapGlyphs) {
-      if (glyph.isSearchable()
-          && glyph.getSearchName().toLowerCase().contains(searchText.toLowerCase())) {
-        results.add(glyph);
-        if (results.size() > SEARCH_RESULTS_LIMIT) {
-          searchOverflow = true;
-          searchResults = null;
-          if (updateMap) {
-            searchText = "";
-            updateMapRender();
-            searchText = prevSearchText;
-          }
-          return;
-        }
-      }
-    }
-
-    for (SearchResult label : mapLabels) {
-      if (label.isSearchable()
-          && label.getSearchName().toLowerCase().contains(searchText.toLowerCase())) {
-        results.add(label);
-        if (results.size() > SEARCH_RESULTS_LIMIT) {
-          searchOverflow = true;
-          searchResults = null;
-          if (updateMap) {
-            searchText = "";
-            updateMapRender();
-            searchText = prevSearchText;
-          }
-          return;
-        }
-      }
-    }
+    buildSearchIndexes();
+    String text = searchText.toLowerCase();
+    int[] glyphs = glyphSearch.search(text, -1);
+    int[] labels = labelSearch.search(text, -1);
+    int[] sceneries = scenerySearch.search(text, searchNumber);
+    int[] boundaries = boundarySearch.search(text, boundarySearchNumber);
 
-    for (SearchResult scenery : mapSceneries) {
-      MapScenery sceneryObj = (MapScenery) scenery;
-      if (scenery.isSearchable()
-          && (sceneryObj.id == searchNumber
-              || scenery.getSearchName().toLowerCase().contains(searchText.toLowerCase()))) {
-        results.add(scenery);
-        if (results.size() > SEARCH_RESULTS_LIMIT) {
-          searchOverflow = true;
-          searchResults = null;
-          if (updateMap) {
-            searchText = "";
-            updateMapRender();
-            searchText = prevSearchText;
-          }
-          return;
-        }
+    if (glyphs.length + labels.length + sceneries.length + boundaries.length
+        > SEARCH_RESULTS_LIMIT) {
+      searchOverflow = true;
+      searchResults = null;
+      if (updateMap) {
+        searchText = "";
+        updateSearchHighlights();
+        searchText = prevSearchText;
       }
+      return;
     }
 
-    for (SearchResult boundary : mapBoundaries) {
-      MapScenery sceneryObj = (MapScenery) boundary;
-      if (boundary.isSearchable()
-          && (sceneryObj.id == boundarySearchNumber
-              || boundary.getSearchName().toLowerCase().contains(searchText.toLowerCase()))) {
-        results.add(boundary);
-        if (results.size() > SEARCH_RESULTS_LIMIT) {
-          searchOverflow = true;
-          searchResults = null;
-          if (updateMap) {
-            searchText = "";
-            updateMapRender();
-            searchText = prevSearchText;
-          }
-          return;
-        }
-      }
-    }
+    ArrayList<SearchResult> results = new ArrayList<SearchResult>();
+    for (int index : glyphs) results.add(mapGlyphs.get(index));
+    for (int index : labels) results.add(mapLabels.get(index));
+    for (int index : sceneries) results.add(mapSceneries.get(index));
+    for (int index : boundaries) results.add(mapBoundaries.get(index));
 
     // Sort search if player is logged in
     if (playerPlane != -1) Collections.sort(results, new SearchResultComparator());
 
-    SearchResult[] prevResults = searchResults;
     searchResults = new SearchResult[results.size()];
     searchResults = results.toArray(searchResults);
     searchIndex = 0;
@@ -566,9 +712,9 @@ public class WorldMapWindow {
 
     if (!searchValid && updateMap) {
       searchText = "";
-      updateMapRender();
-    } else if (searchValid && (prevResults == null || searchResults.length != prevResults.length)) {
-      updateMapRender();
+      updateSearchHighlights();
+    } else if (searchValid) {
+      updateSearchHighlights();
     }
     searchText = prevSearchText;
   }
@@ -964,19 +1110,19 @@ public class WorldMapWindow {
               if (process(p, showLabelsBounds)) {
                 showLabels = !showLabels;
                 Settings.save();
-                updateMapFloorRender(0, true);
+                updateMapRender();
               }
 
               if (process(p, showSceneryBounds)) {
                 showScenery = !showScenery;
                 Settings.save();
-                updateMapFloorRender(0, true);
+                updateMapRender();
               }
 
               if (process(p, showIconsBounds)) {
                 showIcons = !showIcons;
                 Settings.save();
-                updateMapFloorRender(0, true);
+                updateMapRender();
               }
 
               if (planeIndex != 0) {
@@ -1091,6 +1237,11 @@ public class WorldMapWindow {
   }
 
   public static void initAssets() {
+    glyphSearch = null;
+    labelSearch = null;
+    highlightedGlyphs = NO_HIGHLIGHTS;
+    highlightedLabels = NO_HIGHLIGHTS;
+
     // Load labels
     mapLabels.clear();
     try {
@@ -1277,6 +1428,10 @@ public class WorldMapWindow {
 
   public static void initScenery() {
     mapSceneries.clear();
+    sceneryCoords.clear();
+    scenerySearch = null;
+    sceneryGrids = null;
+    highlightedSceneries = NO_HIGHLIGHTS;
 
     // Load Scenery
     try {
@@ -1383,6 +1538,9 @@ public class WorldMapWindow {
         }
 
         mapSceneries.add(scenery);
+        // The first object loaded at a position is the one found there
+        Integer key = getCoordKey(scenery.x, scenery.y);
+        if (!sceneryCoords.containsKey(key)) sceneryCoords.put(key, scenery);
       }
       in.close();
     } catch (Exception e) {
@@ -1392,6 +1550,9 @@ public class WorldMapWindow {
 
   public static void initBoundaries() {
     mapBoundaries.clear();
+    boundarySearch = null;
+    boundaryGrids = null;
+    highlightedBoundaries = NO_HIGHLIGHTS;
 
     // Load Boundaries
     try {
@@ -1483,7 +1644,6 @@ public class WorldMapWindow {
     planeIndex = floor;
     if (planeIndex < 0) planeIndex = 3;
     if (planeIndex > 3) planeIndex = 0;
-    updateMapFloorRender(planeIndex, false);
   }
 
   private static int getZoomInt(int val) {
@@ -1670,9 +1830,7 @@ public class WorldMapWindow {
 
       // Highlight searched names
       Color labelColor = label.color;
-      if (searchText.length() > 0
-          && label.text.replaceAll("\n", " ").toLowerCase().contains(searchText.toLowerCase()))
-        labelColor = Renderer.color_item_highlighted;
+      if (label.highlighted) labelColor = Renderer.color_item_highlighted;
 
       Renderer.drawShadowText(g, line, x - offsetX + width / 2, y + offsetY, labelColor, false);
       y += height;
@@ -1764,17 +1922,8 @@ public class WorldMapWindow {
         }
       }
 
-      synchronized (renderLock) {
-        int bufferWidth = getZoomInt(mapImageBuffer[planeIndex].getWidth());
-        int bufferHeight = getZoomInt(mapImageBuffer[planeIndex].getHeight());
-        g.drawImage(
-            mapImageBuffer[planeIndex],
-            -cameraPosition.x,
-            -cameraPosition.y,
-            bufferWidth,
-            bufferHeight,
-            null);
-      }
+      mapTiles.draw(
+          g, planeIndex, cameraPosition.x, cameraPosition.y, zoom, canvasWidth, canvasHeight);
 
       Rectangle hoverTilePoint = convertWorldCoordsToMap(prevMousePointMap.x, prevMousePointMap.y);
       g.setColor(Renderer.color_low);
@@ -2007,6 +2156,7 @@ public class WorldMapWindow {
     int x;
     int y;
     int id;
+    boolean highlighted;
 
     @Override
     public String getSearchName() {
@@ -2039,6 +2189,8 @@ public class WorldMapWindow {
     int id;
     String searchName;
     int dir = -1;
+    boolean highlighted;
+    Rectangle mapPosition;
 
     @Override
     public String getSearchName() {
@@ -2076,6 +2228,8 @@ public class WorldMapWindow {
     boolean centered;
     boolean bold;
     Color color;
+    Rectangle bounds;
+    boolean highlighted;
 
     @Override
     public String getSearchName() {
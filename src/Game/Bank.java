@@ -30,6 +30,7 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import javax.swing.JFileChooser;
 import javax.swing.filechooser.FileFilter;
@@ -43,6 +44,26 @@ public class Bank {
   private static int[] tmpNewBankItems = new int[256];
   private static int[] tmpNewBankItemsCount = new int[256];
   private static int tmpNewBankCount = 0;
+  private static long[] sortKeys = new long[256];
+
+  // Sort key of every item in the view, rank << 32 | slot, or only the slot when it isn't sorted
+  private static long[] viewKeys = new long[256];
+  private static int viewValue = 0;
+
+  // Filters and sort the view was built with, updates are only applied in place while they match
+  private static boolean viewValid = false;
+  private static boolean[] viewButtonActive = new boolean[12];
+  private static int[] viewButtonMode = new int[12];
+  private static String viewSearchWord = "";
+  private static Integer[] viewUserBankSort = null;
+  private static int[] viewRanks = null;
+  private static boolean viewSorted = false;
+
+  // Slot changed by the last UPDATE_BANK_ITEM packet, and the bank from before it to find it with
+  private static int updatedSlot = 0;
+  private static boolean updatedSlotRemoved = false;
+  private static int[] previousBankItems = new int[256];
+  private static int[] previousBankItemCounts = new int[256];
 
   private static int[] sideBarDimensions = new int[8];
   private static boolean[] hoveringOverButton = new boolean[12];
@@ -82,11 +103,17 @@ public class Bank {
       // Always done no matter the user settings, so don't change those functions...!
       if (opcode == SHOW_BANK) {
         readShowBankPacket();
+        doFilterSort();
       } else { // UPDATE_BANK_ITEM
+        int previousCount = bankNumberOfItemsActual;
+        System.arraycopy(bankItemsActual, 0, previousBankItems, 0, previousCount);
+        System.arraycopy(bankItemCountsActual, 0, previousBankItemCounts, 0, previousCount);
         readUpdateBankItemPacket();
+        findUpdatedSlot(previousCount);
+        if (!updateView()) {
+          doFilterSort();
+        }
       }
-
-      doFilterSort();
       processed = true;
 
       if (Settings.SHOW_BANK_VALUE.get(Settings.currentProfile)) {
@@ -123,10 +150,11 @@ public class Bank {
       if (shouldWriteInventory) {
         writeInventoryToEndOfBank();
       }
-      if (Settings.SHOW_BANK_VALUE.get(Settings.currentProfile)) {
-        calculateBankValue();
-      }
+      // Always calculated, updateView() keeps it up to date from here
+      calculateBankValue();
+      saveViewState();
     } else {
+      viewValid = false;
       // This is why I have the comments to not mess with
       // readShowBankPacket() & readUpdateBankItemPacket()
       // When SORT_FILTER_BANK is off, we still handle the bank behaviour,
@@ -145,92 +173,96 @@ public class Bank {
   }
 
   private static boolean filterBank() {
-    boolean shouldWriteInventory = true;
     // place only those items matching the criteria
     for (int i = 0; i < bankNumberOfItemsActual; i++) {
-      boolean shouldInclude = false;
-      int filterCount = 0;
-      if (buttonActive[1]) { // runes/weapons/armour
-        switch (buttonMode[1]) {
-          case 1:
-            shouldInclude |=
-                intInOrderedArray(bankItemsActual[i], BankSorters.runesWeaponsArmourSorted);
-            break;
-        }
+      bankItemsShown[i] = isShown(bankItemsActual[i], bankItemCountsActual[i]);
+    }
+    return bankNumberOfItemsActual == 0 || writesInventory();
+  }
 
-        shouldWriteInventory = false;
-        ++filterCount;
+  /** Whether the current filters show an item from the bank */
+  private static boolean isShown(int itemId, int itemCount) {
+    boolean shouldInclude = false;
+    int filterCount = 0;
+    if (buttonActive[1]) { // runes/weapons/armour
+      switch (buttonMode[1]) {
+        case 1:
+          shouldInclude |= BankIndex.contains(BankIndex.RUNES_WEAPONS_ARMOUR, itemId);
+          break;
       }
-      if (buttonActive[2]) { // food/potions
-        switch (buttonMode[2]) {
-          case 1:
-            shouldInclude |= intInOrderedArray(bankItemsActual[i], BankSorters.foodPotionsSorted);
-            break;
-          case 2:
-            shouldInclude |= intInOrderedArray(bankItemsActual[i], BankSorters.herblawSorted);
-            break;
-        }
-        shouldWriteInventory = false;
-        ++filterCount;
+      ++filterCount;
+    }
+    if (buttonActive[2]) { // food/potions
+      switch (buttonMode[2]) {
+        case 1:
+          shouldInclude |= BankIndex.contains(BankIndex.FOOD_POTIONS, itemId);
+          break;
+        case 2:
+          shouldInclude |= BankIndex.contains(BankIndex.HERBLAW, itemId);
+          break;
       }
-      if (buttonActive[3]) { // resources/tools
-        switch (buttonMode[3]) {
-          case 1:
-            shouldInclude |=
-                intInOrderedArray(bankItemsActual[i], BankSorters.toolsResourcesSorted);
-            break;
-          case 2:
-            shouldInclude |= intInOrderedArray(bankItemsActual[i], BankSorters.toolsSorted);
-            break;
-          case 3:
-            shouldInclude |= intInOrderedArray(bankItemsActual[i], BankSorters.resourcesSorted);
-            break;
-        }
-        shouldWriteInventory = false;
-        ++filterCount;
+      ++filterCount;
+    }
+    if (buttonActive[3]) { // resources/tools
+      switch (buttonMode[3]) {
+        case 1:
+          shouldInclude |= BankIndex.contains(BankIndex.TOOLS_RESOURCES, itemId);
+          break;
+        case 2:
+          shouldInclude |= BankIndex.contains(BankIndex.TOOLS, itemId);
+          break;
+        case 3:
+          shouldInclude |= BankIndex.contains(BankIndex.RESOURCES, itemId);
+          break;
       }
-      if (buttonActive[4]) { // search term
-        // TODO: could search for e.g. "salarin" and get items for that?
-        // TODO: could add new filter that makes this a blacklist instead of a whitelist
-        if (!Settings.SEARCH_BANK_WORD.get("custom").equals("")) {
-          String[] searchTerms = Settings.SEARCH_BANK_WORD.get("custom").split(",");
-          for (String searchTerm : searchTerms) {
-            if (!searchTerm.equals("")) {
-              shouldInclude |=
-                  Item.item_name[bankItemsActual[i]]
-                      .toLowerCase()
-                      .contains(searchTerm.trim().toLowerCase());
-            }
-          }
-          shouldWriteInventory = false;
-          ++filterCount;
-        }
+      ++filterCount;
+    }
+    if (buttonActive[4]) { // search term
+      // TODO: could search for e.g. "salarin" and get items for that?
+      // TODO: could add new filter that makes this a blacklist instead of a whitelist
+      if (!Settings.SEARCH_BANK_WORD.get("custom").equals("")) {
+        shouldInclude |= BankIndex.matchesSearch(itemId);
+        ++filterCount;
       }
+    }
 
-      if (buttonActive[0]) { // inventory
-        if (buttonMode[0] == 1) {
-          // show inventory items (even if filtered)
-          for (int invIdx = 0; invIdx < Client.inventory_count; invIdx++) {
-            if (bankItemsActual[i] == Client.inventory_items[invIdx]) {
-              shouldInclude = true;
-              break;
-            }
+    if (buttonActive[0]) { // inventory
+      if (buttonMode[0] == 1) {
+        // show inventory items (even if filtered)
+        for (int invIdx = 0; invIdx < Client.inventory_count; invIdx++) {
+          if (itemId == Client.inventory_items[invIdx]) {
+            shouldInclude = true;
+            break;
           }
-          shouldWriteInventory = true;
-          ++filterCount;
-        } else if (buttonMode[0] == 2) {
-          // inventory history
-          // TODO: this is a bit unpredictable & could be made better.
-          shouldInclude |= intInArray(bankItemsActual[i], Client.inventory_items);
-          shouldWriteInventory = true;
-          ++filterCount;
-        } else if (buttonMode[0] == 3) {
-          // no inventory items shown
-          shouldWriteInventory = false;
         }
+        ++filterCount;
+      } else if (buttonMode[0] == 2) {
+        // inventory history
+        // TODO: this is a bit unpredictable & could be made better.
+        shouldInclude |= intInArray(itemId, Client.inventory_items);
+        ++filterCount;
       }
+    }
 
-      bankItemsShown[i] = (shouldInclude || filterCount == 0) && bankItemCountsActual[i] > 0;
+    return (shouldInclude || filterCount == 0) && itemCount > 0;
+  }
+
+  /** Whether the current filters append inventory items missing from the bank to its end */
+  private static boolean writesInventory() {
+    boolean shouldWriteInventory = true;
+    if (buttonActive[1] || buttonActive[2] || buttonActive[3]) {
+      shouldWriteInventory = false;
+    }
+    if (buttonActive[4] && !Settings.SEARCH_BANK_WORD.get("custom").equals("")) {
+      shouldWriteInventory = false;
+    }
+    if (buttonActive[0]) {
+      if (buttonMode[0] == 1 || buttonMode[0] == 2) {
+        shouldWriteInventory = true;
+      } else if (buttonMode[0] == 3) {
+        // no inventory items shown
+        shouldWriteInventory = false;
+      }
     }
     return shouldWriteInventory;
   }
@@ -245,6 +277,7 @@ public class Bank {
     }
     idx = 0;
     boolean sortedBank = false;
+    int[] ranks = null;
 
     if (buttonActive[6]) {
       switch (buttonMode[6]) {
@@ -252,29 +285,11 @@ public class Bank {
           // release date sort
           // TODO: this is technically just item ID sort.
           // A few exceptions do exist to the Item ID = Release Date rule.
-          for (int itemId = 0; itemId < 1290; itemId++) {
-            for (int i = 0; i < bankNumberOfItemsActual; i++) {
-              if (bankItemsActual[i] == itemId && bankItemsShown[i]) {
-                tmpNewBankItems[idx] = bankItemsActual[i];
-                tmpNewBankItemsCount[idx] = bankItemCountsActual[i];
-                ++idx;
-                break;
-              }
-            }
-          }
+          ranks = BankIndex.RELEASE_DATE;
           break;
         case 2:
           // item id sort rev
-          for (int itemId = 1289; itemId >= 0; itemId--) {
-            for (int i = 0; i < bankNumberOfItemsActual; i++) {
-              if (bankItemsActual[i] == itemId && bankItemsShown[i]) {
-                tmpNewBankItems[idx] = bankItemsActual[i];
-                tmpNewBankItemsCount[idx] = bankItemCountsActual[i];
-                ++idx;
-                break;
-              }
-            }
-          }
+          ranks = BankIndex.RELEASE_DATE_REVERSE;
           break;
       }
       sortedBank = true;
@@ -282,31 +297,11 @@ public class Bank {
       switch (buttonMode[7]) {
         case 1:
           // alch value sort
-          for (int valueIdx = 0; valueIdx < BankSorters.mostValuableItems.length; valueIdx++) {
-            for (int i = 0; i < bankNumberOfItemsActual; i++) {
-              if (bankItemsActual[i] == BankSorters.mostValuableItems[valueIdx]
-                  && bankItemsShown[i]) {
-                tmpNewBankItems[idx] = bankItemsActual[i];
-                tmpNewBankItemsCount[idx] = bankItemCountsActual[i];
-                ++idx;
-                break;
-              }
-            }
-          }
+          ranks = BankIndex.VALUE;
           break;
         case 2:
           // alch value sort rev
-          for (int valueIdx = BankSorters.mostValuableItems.length - 1; valueIdx >= 0; valueIdx--) {
-            for (int i = 0; i < bankNumberOfItemsActual; i++) {
-              if (bankItemsActual[i] == BankSorters.mostValuableItems[valueIdx]
-                  && bankItemsShown[i]) {
-                tmpNewBankItems[idx] = bankItemsActual[i];
-                tmpNewBankItemsCount[idx] = bankItemCountsActual[i];
-                ++idx;
-                break;
-              }
-            }
-          }
+          ranks = BankIndex.VALUE_REVERSE;
           break;
       }
       sortedBank = true;
@@ -314,100 +309,28 @@ public class Bank {
       switch (buttonMode[8]) {
         case 1:
           // Alphabetical sort
-          for (int valueIdx = 0; valueIdx < BankSorters.itemsAlphabetical.length; valueIdx++) {
-            for (int i = 0; i < bankNumberOfItemsActual; i++) {
-              if (bankItemsActual[i] == BankSorters.itemsAlphabetical[valueIdx]
-                  && bankItemsShown[i]) {
-                tmpNewBankItems[idx] = bankItemsActual[i];
-                tmpNewBankItemsCount[idx] = bankItemCountsActual[i];
-                ++idx;
-                break;
-              }
-            }
-          }
+          ranks = BankIndex.ALPHABETICAL;
           break;
         case 2:
           // Reverse Alphabetical sort
-          for (int valueIdx = BankSorters.itemsAlphabetical.length - 1; valueIdx >= 0; valueIdx--) {
-            for (int i = 0; i < bankNumberOfItemsActual; i++) {
-              if (bankItemsActual[i] == BankSorters.itemsAlphabetical[valueIdx]
-                  && bankItemsShown[i]) {
-                tmpNewBankItems[idx] = bankItemsActual[i];
-                tmpNewBankItemsCount[idx] = bankItemCountsActual[i];
-                ++idx;
-                break;
-              }
-            }
-          }
+          ranks = BankIndex.ALPHABETICAL_REVERSE;
           break;
       }
       sortedBank = true;
     } else if (buttonActive[9]) {
-      boolean[] addedToSortedBank = new boolean[1290];
-      // Efficiency sort
+      // Efficiency sort, items without a defined order come after by item id
       // TODO: depends on user settings which efficient layout they want typeSortNice first
-      for (int valueIdx = 0; valueIdx < BankSorters.typeSortNice.length; valueIdx++) {
-        for (int i = 0; i < bankNumberOfItemsActual; i++) {
-          if (bankItemsActual[i] == BankSorters.typeSortNice[valueIdx]
-              && bankItemsShown[i]
-              && !addedToSortedBank[BankSorters.typeSortNice[valueIdx]]) {
-            addedToSortedBank[BankSorters.typeSortNice[valueIdx]] = true;
-            tmpNewBankItems[idx] = bankItemsActual[i];
-            tmpNewBankItemsCount[idx] = bankItemCountsActual[i];
-            ++idx;
-            break;
-          }
-        }
-      }
-
-      // add any items that exist in bank and don't have a defined order
-      for (int itemId = 0; itemId < 1290; itemId++) {
-        for (int i = 0; i < bankNumberOfItemsActual; i++) {
-          if (bankItemsActual[i] == itemId && bankItemsShown[i] && !addedToSortedBank[itemId]) {
-            tmpNewBankItems[idx] = bankItemsActual[i];
-            tmpNewBankItemsCount[idx] = bankItemCountsActual[i];
-            ++idx;
-            break;
-          }
-        }
-      }
-
+      ranks = BankIndex.EFFICIENCY;
       sortedBank = true;
     } else if (buttonActive[10]) {
-      // User defined order
-      boolean[] addedToSortedBank = new boolean[1290];
+      // User defined order, items without a defined order come after by item id
       Integer[] userBankSort = Settings.USER_BANK_SORT.get(Client.player_name);
       if (userBankSort == null) {
         importBankCsv(null);
         userBankSort = Settings.USER_BANK_SORT.get(Client.player_name);
       }
       if (userBankSort != null) {
-        for (int i = 0; i < userBankSort.length && userBankSort[i] != null; i++) {
-          for (int j = 0; j < bankNumberOfItemsActual; j++) {
-            if (bankItemsActual[j] == userBankSort[i]
-                && bankItemsShown[j]
-                && !addedToSortedBank[userBankSort[i]]) {
-              tmpNewBankItems[idx] = bankItemsActual[j];
-              tmpNewBankItemsCount[idx] = bankItemCountsActual[j];
-              addedToSortedBank[userBankSort[i]] = true;
-              ++idx;
-              break;
-            }
-          }
-        }
-
-        // add any items that exist in bank and don't have a defined order
-        for (int itemId = 0; itemId < 1290; itemId++) {
-          for (int i = 0; i < bankNumberOfItemsActual; i++) {
-            if (bankItemsActual[i] == itemId && bankItemsShown[i] && !addedToSortedBank[itemId]) {
-              tmpNewBankItems[idx] = bankItemsActual[i];
-              tmpNewBankItemsCount[idx] = bankItemCountsActual[i];
-              ++idx;
-              break;
-            }
-          }
-        }
-
+        ranks = BankIndex.userRanks(userBankSort);
         sortedBank = true;
       } else {
         Client.displayMessage(
@@ -419,10 +342,37 @@ public class Bank {
       }
     }
 
+    if (ranks != null) {
+      // Sort the shown slots by the rank of their item, then by slot
+      int count = 0;
+      for (int i = 0; i < bankNumberOfItemsActual; i++) {
+        int itemId = bankItemsActual[i];
+        if (!bankItemsShown[i] || itemId < 0 || itemId >= ranks.length || ranks[itemId] < 0)
+          continue;
+        sortKeys[count++] = viewKey(ranks[itemId], i);
+      }
+      Arrays.sort(sortKeys, 0, count);
+
+      // Every item is shown once, from its first slot
+      long lastRank = -1;
+      for (int i = 0; i < count; i++) {
+        long rank = sortKeys[i] >>> 32;
+        if (rank == lastRank) continue;
+        lastRank = rank;
+
+        int slot = (int) sortKeys[i];
+        viewKeys[idx] = sortKeys[i];
+        tmpNewBankItems[idx] = bankItemsActual[slot];
+        tmpNewBankItemsCount[idx] = bankItemCountsActual[slot];
+        ++idx;
+      }
+    }
+
     // still apply filter even if no sort is applied
     if (!sortedBank) {
       for (int i = 0; i < bankNumberOfItemsActual; i++) {
         if (bankItemsShown[i]) {
+          viewKeys[idx] = i;
           tmpNewBankItems[idx] = bankItemsActual[i];
           tmpNewBankItemsCount[idx] = bankItemCountsActual[i];
           idx++;
@@ -430,6 +380,198 @@ public class Bank {
       }
     }
     tmpNewBankCount = idx;
+    viewRanks = ranks;
+    viewSorted = sortedBank;
+  }
+
+  private static long viewKey(int rank, int slot) {
+    return ((long) rank << 32) | slot;
+  }
+
+  /**
+   * Finds the slot the last UPDATE_BANK_ITEM packet changed by comparing the bank with its copy
+   * from before the packet. A removed slot shifts the ones after it down, so the first slot that
+   * differs is the one removed, or the last one if none differ.
+   *
+   * @param previousCount the number of bank slots before the packet
+   */
+  private static void findUpdatedSlot(int previousCount) {
+    updatedSlotRemoved = bankNumberOfItemsActual < previousCount;
+    if (bankNumberOfItemsActual > previousCount) {
+      updatedSlot = bankNumberOfItemsActual - 1;
+      return;
+    }
+
+    updatedSlot = bankNumberOfItemsActual;
+    for (int i = 0; i < bankNumberOfItemsActual; i++) {
+      if (bankItemsActual[i] != previousBankItems[i]
+          || bankItemCountsActual[i] != previousBankItemCounts[i]) {
+        updatedSlot = i;
+        break;
+      }
+    }
+  }
+
+  /**
+   * Applies the slot changed by the last UPDATE_BANK_ITEM packet to the filtered and sorted view.
+   * The item is removed from or inserted into the view at its sorted position, and only the
+   * entries from there on are written to the client, instead of filtering and sorting the bank
+   * again.
+   *
+   * @return false if the view has to be built again with {@link #doFilterSort()}
+   */
+  private static boolean updateView() {
+    if (!viewValid || !viewStateMatches()) return false;
+    // Which items are shown depends on the inventory, which isn't tracked here
+    if (buttonActive[0] && (buttonMode[0] == 1 || buttonMode[0] == 2)) return false;
+    // An empty bank always writes the inventory, see filterBank()
+    if (bankNumberOfItemsActual == 0) return false;
+
+    int slot = updatedSlot;
+    // The packet set a slot to what it already held
+    if (!updatedSlotRemoved && slot >= bankNumberOfItemsActual) return true;
+    int oldCount = tmpNewBankCount;
+    int oldClientCount = Client.count_items_bank;
+
+    int position = -1;
+    for (int i = 0; i < oldCount; i++) {
+      if ((int) viewKeys[i] == slot) {
+        position = i;
+        break;
+      }
+    }
+
+    int from;
+    int to;
+    if (updatedSlotRemoved) {
+      if (slot > bankNumberOfItemsActual) return false;
+      // A sorted view shows an item once, another slot of it may have to take its place
+      if (position >= 0 && slotOf(tmpNewBankItems[position], -1) >= 0) return false;
+
+      if (position >= 0) removeFromView(position);
+      // The slots after the removed one moved down
+      for (int i = 0; i < tmpNewBankCount; i++) {
+        if ((int) viewKeys[i] > slot) viewKeys[i]--;
+      }
+      from = position >= 0 ? position : tmpNewBankCount;
+      to = tmpNewBankCount;
+    } else {
+      int itemId = bankItemsActual[slot];
+      int itemCount = bankItemCountsActual[slot];
+      if (slotOf(itemId, slot) >= 0) return false;
+      if (position >= 0
+          && tmpNewBankItems[position] != itemId
+          && slotOf(tmpNewBankItems[position], slot) >= 0) return false;
+
+      long key = -1;
+      if (isShown(itemId, itemCount)) {
+        if (viewRanks != null) {
+          if (itemId < viewRanks.length && viewRanks[itemId] >= 0)
+            key = viewKey(viewRanks[itemId], slot);
+        } else if (!viewSorted) {
+          key = slot;
+        }
+      }
+
+      if (position >= 0 && key == viewKeys[position] && tmpNewBankItems[position] == itemId) {
+        // Only the amount changed
+        viewValue += itemValue(itemId, itemCount - tmpNewBankItemsCount[position]);
+        tmpNewBankItemsCount[position] = itemCount;
+        from = position;
+        to = position + 1;
+      } else {
+        from = tmpNewBankCount;
+        if (position >= 0) {
+          removeFromView(position);
+          from = position;
+        }
+        if (key >= 0) {
+          int insertAt = -Arrays.binarySearch(viewKeys, 0, tmpNewBankCount, key) - 1;
+          insertIntoView(insertAt, key, itemId, itemCount);
+          from = Math.min(from, insertAt);
+        }
+        to = tmpNewBankCount;
+      }
+    }
+
+    writeViewToClient(from, to, oldCount, oldClientCount);
+    if (Settings.SHOW_BANK_VALUE.get(Settings.currentProfile)) {
+      bankValue = String.format("Bank Value: (%d gp)", viewValue);
+    }
+    return true;
+  }
+
+  private static boolean viewStateMatches() {
+    if (!Settings.SORT_FILTER_BANK.get(Settings.currentProfile)) return false;
+    if (!Arrays.equals(buttonActive, viewButtonActive)) return false;
+    if (!Arrays.equals(buttonMode, viewButtonMode)) return false;
+    if (!Settings.SEARCH_BANK_WORD.get("custom").equals(viewSearchWord)) return false;
+    return !buttonActive[10] || Settings.USER_BANK_SORT.get(Client.player_name) == viewUserBankSort;
+  }
+
+  private static void saveViewState() {
+    System.arraycopy(buttonActive, 0, viewButtonActive, 0, buttonActive.length);
+    System.arraycopy(buttonMode, 0, viewButtonMode, 0, buttonMode.length);
+    viewSearchWord = Settings.SEARCH_BANK_WORD.get("custom");
+    viewUserBankSort = Settings.USER_BANK_SORT.get(Client.player_name);
+    viewValid = true;
+  }
+
+  /** Returns the first bank slot holding the item other than the one skipped, or -1 */
+  private static int slotOf(int itemId, int skipSlot) {
+    for (int i = 0; i < bankNumberOfItemsActual; i++) {
+      if (i != skipSlot && bankItemsActual[i] == itemId) return i;
+    }
+    return -1;
+  }
+
+  private static void removeFromView(int position) {
+    viewValue -= itemValue(tmpNewBankItems[position], tmpNewBankItemsCount[position]);
+    int moved = tmpNewBankCount - position - 1;
+    System.arraycopy(viewKeys, position + 1, viewKeys, position, moved);
+    System.arraycopy(tmpNewBankItems, position + 1, tmpNewBankItems, position, moved);
+    System.arraycopy(tmpNewBankItemsCount, position + 1, tmpNewBankItemsCount, position, moved);
+    --tmpNewBankCount;
+    tmpNewBankItems[tmpNewBankCount] = 0;
+    tmpNewBankItemsCount[tmpNewBankCount] = 0;
+  }
+
+  private static void insertIntoView(int position, long key, int itemId, int itemCount) {
+    int moved = tmpNewBankCount - position;
+    System.arraycopy(viewKeys, position, viewKeys, position + 1, moved);
+    System.arraycopy(tmpNewBankItems, position, tmpNewBankItems, position + 1, moved);
+    System.arraycopy(tmpNewBankItemsCount, position, tmpNewBankItemsCount, position + 1, moved);
+    viewKeys[position] = key;
+    tmpNewBankItems[position] = itemId;
+    tmpNewBankItemsCount[position] = itemCount;
+    ++tmpNewBankCount;
+    viewValue += itemValue(itemId, itemCount);
+  }
+
+  /**
+   * Writes the view entries in [from, to) to the client, clears the entries the view no longer
+   * covers and appends the inventory again
+   */
+  private static void writeViewToClient(int from, int to, int oldCount, int oldClientCount) {
+    for (int i = from; i < to; i++) {
+      Client.bank_items[i] = tmpNewBankItems[i];
+      Client.bank_items_count[i] = tmpNewBankItemsCount[i];
+      Client.new_bank_items[i] = tmpNewBankItems[i];
+      Client.new_bank_items_count[i] = tmpNewBankItemsCount[i];
+    }
+    for (int i = tmpNewBankCount; i < oldCount; i++) {
+      Client.new_bank_items[i] = 0;
+      Client.new_bank_items_count[i] = 0;
+    }
+    Client.count_items_bank = tmpNewBankCount;
+    Client.new_count_items_bank = tmpNewBankCount;
+    if (writesInventory()) {
+      writeInventoryToEndOfBank();
+    }
+    for (int i = Client.count_items_bank; i < oldClientCount; i++) {
+      Client.bank_items[i] = 0;
+      Client.bank_items_count[i] = 0;
+    }
   }
 
   private static void writeInventoryToEndOfBank() {
@@ -475,12 +617,17 @@ public class Bank {
       if (itemId > 1289) {
         Logger.Info("itemId " + itemId + " at position " + idx + " @|red fwehhhh|@");
       } else {
-        value += BankSorters.itemValues[itemId] * Client.new_bank_items_count[idx];
+        value += itemValue(itemId, Client.new_bank_items_count[idx]);
       }
     }
+    viewValue = value;
     bankValue = String.format("Bank Value: (%d gp)", value);
   }
 
+  private static int itemValue(int itemId, int itemCount) {
+    return itemId > 1289 ? 0 : BankSorters.itemValues[itemId] * itemCount;
+  }
+
   private static void resetSearch() {
     Client.new_bank_items = bankItemsActual.clone();
     Client.new_bank_items_count = bankItemCountsActual.clone();
@@ -1240,15 +1387,6 @@ public class Bank {
     return false;
   }
 
-  private static boolean intInOrderedArray(int id, int[] array) {
-    for (int i = 0; i < array.length && i <= array[i]; i++) {
-      if (id == array[i]) {
-        return true;
-      }
-    }
-    return false;
-  }
-
   public static String pluralize(int count) {
     if (count == 1) return count + " pc";
     else return count + " pcs";
@@ -0,0 +1,161 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Game;
+
+import Client.Settings;
+import java.util.Arrays;
+
+/**
+ * Lookup tables built from {@link BankSorters} for filtering and sorting the bank.
+ *
+ * <p>Each sort order is a rank per item id, so sorting the bank is one primitive sort of its
+ * slots instead of a scan of the bank for every item in the order. A rank of -1 leaves the item
+ * out, like items missing from the order's list were always left out.
+ */
+class BankIndex {
+  /** Items with ids below this are added after the listed ones by orders that include every item */
+  private static final int ITEM_COUNT = 1290;
+
+  static final int[] RELEASE_DATE = idRanks(false);
+  static final int[] RELEASE_DATE_REVERSE = idRanks(true);
+  static final int[] VALUE = listRanks(BankSorters.mostValuableItems, false, false);
+  static final int[] VALUE_REVERSE = listRanks(BankSorters.mostValuableItems, true, false);
+  static final int[] ALPHABETICAL = listRanks(BankSorters.itemsAlphabetical, false, false);
+  static final int[] ALPHABETICAL_REVERSE = listRanks(BankSorters.itemsAlphabetical, true, false);
+  static final int[] EFFICIENCY = listRanks(BankSorters.typeSortNice, false, true);
+
+  static final boolean[] RUNES_WEAPONS_ARMOUR = members(BankSorters.runesWeaponsArmourSorted);
+  static final boolean[] FOOD_POTIONS = members(BankSorters.foodPotionsSorted);
+  static final boolean[] HERBLAW = members(BankSorters.herblawSorted);
+  static final boolean[] TOOLS_RESOURCES = members(BankSorters.toolsResourcesSorted);
+  static final boolean[] TOOLS = members(BankSorters.toolsSorted);
+  static final boolean[] RESOURCES = members(BankSorters.resourcesSorted);
+
+  private static Integer[] userOrder = null;
+  private static int[] userRanks = null;
+
+  private static String[] lowerCaseNamesSource = null;
+  private static String[] lowerCaseNames = null;
+
+  private static String searchWord = null;
+  private static String[] searchTerms = new String[0];
+
+  /** Returns the ranks of a user defined bank order, rebuilt when the order is replaced */
+  static int[] userRanks(Integer[] order) {
+    if (order != userOrder) {
+      int length = 0;
+      while (length < order.length && order[length] != null) length++;
+      int[] list = new int[length];
+      for (int i = 0; i < length; i++) list[i] = order[i];
+
+      userRanks = listRanks(list, false, true);
+      userOrder = order;
+    }
+    return userRanks;
+  }
+
+  static boolean contains(boolean[] members, int itemId) {
+    return itemId >= 0 && itemId < members.length && members[itemId];
+  }
+
+  /** Returns if the item's name contains any of the terms in the bank search word */
+  static boolean matchesSearch(int itemId) {
+    String[] terms = getSearchTerms();
+    if (terms.length == 0) return false;
+
+    String name = getLowerCaseName(itemId);
+    for (String term : terms) {
+      if (name.contains(term)) return true;
+    }
+    return false;
+  }
+
+  private static String[] getSearchTerms() {
+    String word = Settings.SEARCH_BANK_WORD.get("custom");
+    if (!word.equals(searchWord)) {
+      String[] split = word.split(",");
+      int count = 0;
+      for (String term : split) {
+        if (!term.equals("")) split[count++] = term.trim().toLowerCase();
+      }
+      String[] terms = new String[count];
+      System.arraycopy(split, 0, terms, 0, count);
+
+      searchTerms = terms;
+      searchWord = word;
+    }
+    return searchTerms;
+  }
+
+  private static String getLowerCaseName(int itemId) {
+    String[] names = Item.item_name;
+    if (names != lowerCaseNamesSource) {
+      String[] lowerCase = new String[names.length];
+      for (int i = 0; i < names.length; i++) {
+        lowerCase[i] = names[i] != null ? names[i].toLowerCase() : "";
+      }
+
+      lowerCaseNames = lowerCase;
+      lowerCaseNamesSource = names;
+    }
+    return itemId >= 0 && itemId < lowerCaseNames.length ? lowerCaseNames[itemId] : "";
+  }
+
+  private static int[] idRanks(boolean reverse) {
+    int[] ranks = new int[ITEM_COUNT];
+    for (int id = 0; id < ITEM_COUNT; id++) ranks[id] = reverse ? ITEM_COUNT - 1 - id : id;
+    return ranks;
+  }
+
+  /**
+   * Ranks items by their first position in a list, or last position when reversed
+   *
+   * @param list the items in order
+   * @param reverse if the list should be read back to front
+   * @param includeUnlisted if items missing from the list should come after it by item id
+   */
+  private static int[] listRanks(int[] list, boolean reverse, boolean includeUnlisted) {
+    int size = ITEM_COUNT;
+    for (int id : list) size = Math.max(size, id + 1);
+
+    int[] ranks = new int[size];
+    Arrays.fill(ranks, -1);
+    for (int i = 0; i < list.length; i++) {
+      int position = reverse ? list.length - 1 - i : i;
+      int id = list[position];
+      if (id >= 0 && ranks[id] == -1) ranks[id] = i;
+    }
+    if (includeUnlisted) {
+      for (int id = 0; id < ITEM_COUNT; id++) {
+        if (ranks[id] == -1) ranks[id] = list.length + id;
+      }
+    }
+    return ranks;
+  }
+
+  /** Marks the items of a filter list, which ends where an id is smaller than its position */
+  private static boolean[] members(int[] list) {
+    int size = ITEM_COUNT;
+    for (int id : list) size = Math.max(size, id + 1);
+
+    boolean[] members = new boolean[size];
+    for (int i = 0; i < list.length && i <= list[i]; i++) members[list[i]] = true;
+    return members;
+  }
+}
@@ -28,6 +28,7 @@ import Client.Logger;
 import Client.NotificationsHandler;
 import Client.NotificationsHandler.NotifType;
 import Client.Settings;
+import Client.SettingsSnapshot;
 import Client.Speedrun;
 import Client.TwitchIRC;
 import Client.Util;
@@ -45,7 +46,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Array;
-import java.lang.reflect.InvocationTargetException;
 import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.URL;
@@ -76,10 +76,11 @@ public class Client {
   public static Map<String, LinkedList<String>> tracerInstructions =
       new LinkedHashMap<String, LinkedList<String>>();
 
-  public static List<NPC> npc_list = new ArrayList<>();
-  public static List<NPC> npc_list_retained = new ArrayList<>();
-  public static List<Item> item_list = new ArrayList<>();
-  public static List<Item> item_list_retained = new ArrayList<>();
+  // Entities drawn this frame, and the ones drawn last frame for mouse over lookups
+  public static EntityBuffer<NPC> npc_list = newNPCBuffer();
+  public static EntityBuffer<NPC> npc_list_retained = newNPCBuffer();
+  public static EntityBuffer<Item> item_list = newItemBuffer();
+  public static EntityBuffer<Item> item_list_retained = newItemBuffer();
 
   public static final int SKILL_ATTACK = 0;
   public static final int SKILL_DEFENSE = 1;
@@ -728,20 +729,18 @@ public class Client {
 
   public static void gameModelRotate(Object model, int rotation) {
     try {
-      Reflection.gameModelRotate.setAccessible(true);
-      Reflection.gameModelRotate.invoke(model, 0, -31616, rotation, 0);
-      Reflection.gameModelRotate.setAccessible(false);
-    } catch (Exception e) {
+      Reflection.gameModelRotateHandle.invokeExact(model, 0, -31616, rotation, 0);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
       e.printStackTrace();
     }
   }
 
   public static void gameModelSetLight(Object model) {
     try {
-      Reflection.gameModelSetLight.setAccessible(true);
-      Reflection.gameModelSetLight.invoke(model, -50, 48, -10, -50, true, 48, 117);
-      Reflection.gameModelSetLight.setAccessible(false);
-    } catch (Exception e) {
+      Reflection.gameModelSetLightHandle.invokeExact(model, -50, 48, -10, -50, true, 48, 117);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
       e.printStackTrace();
     }
   }
@@ -914,6 +913,8 @@ public class Client {
    * <p>This updater does not handle any rendering, for rendering see {@link Renderer#present}
    */
   public static void update() {
+    SettingsSnapshot settings = Settings.snapshot();
+
     // historical: RSC+ changed version here from 234 to 235 from 2016-10-10 up until 2022-01-16
     // version = 235;
 
@@ -929,7 +930,7 @@ public class Client {
     last_time = nanoTime;
 
     // Handle area data
-    if (Settings.CUSTOM_MUSIC.get(Settings.currentProfile)) {
+    if (settings.CUSTOM_MUSIC) {
       if (state == STATE_GAME) {
         AreaDefinition area = getCurrentAreaDefinition();
         MusicPlayer.playTrack(area.music);
@@ -961,25 +962,22 @@ public class Client {
      */
 
     Renderer.setClearColor(0);
-    if (Settings.RS2HD_SKY.get(Settings.currentProfile)) {
+    if (settings.RS2HD_SKY) {
       if (isUnderground()) Renderer.setClearColor(Renderer.rs2hd_color_skyunderground);
       else Renderer.setClearColor(Renderer.rs2hd_color_skyoverworld);
     } else {
-      if (Settings.CUSTOM_SKYBOX_OVERWORLD_ENABLED.get(Settings.currentProfile)) {
-        Renderer.setClearColor(
-            Settings.CUSTOM_SKYBOX_OVERWORLD_COLOUR.get(Settings.currentProfile));
+      if (settings.CUSTOM_SKYBOX_OVERWORLD_ENABLED) {
+        Renderer.setClearColor(settings.CUSTOM_SKYBOX_OVERWORLD_COLOUR);
       }
-      if (Settings.CUSTOM_SKYBOX_UNDERGROUND_ENABLED.get(Settings.currentProfile)) {
-        if (isUnderground())
-          Renderer.setClearColor(
-              Settings.CUSTOM_SKYBOX_UNDERGROUND_COLOUR.get(Settings.currentProfile));
+      if (settings.CUSTOM_SKYBOX_UNDERGROUND_ENABLED) {
+        if (isUnderground()) Renderer.setClearColor(settings.CUSTOM_SKYBOX_UNDERGROUND_COLOUR);
       }
     }
     if (Settings.takingSceneryScreenshots) {
       Renderer.setClearColor(Renderer.screenshot_scenery_bgcolor);
     }
 
-    if (Settings.JOYSTICK_ENABLED.get(Settings.currentProfile)) {
+    if (settings.JOYSTICK_ENABLED) {
       JoystickHandler.poll();
     }
 
@@ -1561,8 +1559,9 @@ public class Client {
   public static boolean showNativeInputPopup(int type, String[] text, boolean hasInput) {
     boolean displayed = true;
     try {
-      Reflection.showInputPopup.invoke(Client.instance, text, 12, type, hasInput);
-    } catch (Exception e) {
+      Reflection.showInputPopupHandle.invokeExact(Client.instance, text, 12, type, hasInput);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
       displayed = false;
     }
     return displayed;
@@ -1818,6 +1817,27 @@ public class Client {
             displayMessage("That is not a number.", CHAT_QUEST);
             break;
           }
+          // Options after the length: "raw" writes a single uncompressed file for muxing,
+          // "drop" skips frames instead of slowing the game down when encoding falls behind
+          boolean raw = false;
+          Renderer.videoPolicy = FrameCapture.Policy.BLOCK;
+          for (int i = 2; i < commandArray.length; i++) {
+            if (commandArray[i].equals("raw")) raw = true;
+            else if (commandArray[i].equals("drop"))
+              Renderer.videoPolicy = FrameCapture.Policy.DROP;
+          }
+          if (Renderer.videoRaw != null) {
+            Renderer.videoRaw.finish();
+            Renderer.videoRaw = null;
+          }
+          if (raw) {
+            try {
+              Renderer.videoRaw = new FrameCapture.RawVideo(new File(Settings.Dir.VIDEO, "video"));
+            } catch (IOException ex) {
+              displayMessage("Unable to create the raw video file.", CHAT_QUEST);
+              break;
+            }
+          }
           Renderer.videolength = Renderer.videorecord = length;
           break;
         case "sceneryshots":
@@ -2044,12 +2064,21 @@ public class Client {
    * @param chat_type the type of message to send
    */
   public static synchronized void displayMessage(String message, int chat_type) {
-    if (Client.state != Client.STATE_GAME || Reflection.displayMessage == null) return;
+    if (Client.state != Client.STATE_GAME || Reflection.displayMessageHandle == null) return;
 
     try {
-      Reflection.displayMessage.invoke(
-          Client.instance, false, null, 0, message, chat_type, 0, null, null);
-    } catch (Exception e) {
+      Reflection.displayMessageHandle.invokeExact(
+          Client.instance,
+          false,
+          (String) null,
+          0,
+          message,
+          chat_type,
+          0,
+          (String) null,
+          (String) null);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
@@ -2070,7 +2099,7 @@ public class Client {
           Panel.setControlText(Client.panelLogin, Client.controlLoginTop, "");
           Panel.setControlText(Client.panelLogin, Client.controlLoginBottom, line2);
         } else {
-          Reflection.setLoginText.invoke(Client.instance, (byte) -49, line2, line1);
+          Reflection.setLoginTextHandle.invokeExact(Client.instance, (byte) -49, line2, line1);
         }
       } else if (Client.login_screen == Client.SCREEN_PASSWORD_RECOVERY) {
         Panel.setControlText(Client.panelRecovery, Client.controlRecoveryTop, line2);
@@ -2078,7 +2107,8 @@ public class Client {
       } else if (Client.login_screen == Client.SCREEN_REGISTER_NEW_ACCOUNT) {
         Panel.setControlText(Client.panelRegister, Client.controlRegister, line2 + " " + line1);
       }
-    } catch (Exception e) {
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
@@ -2127,9 +2157,9 @@ public class Client {
       Reflection.memberMapPack.set(Client.worldInstance, null);
       Reflection.memberLandscapePack.set(Client.worldInstance, null);
 
-      Reflection.loadGameConfig.invoke(Client.instance, false);
-      Reflection.loadEntities.invoke(Client.instance, true);
-      Reflection.loadMaps.invoke(Client.instance, 5359);
+      Reflection.loadGameConfigHandle.invokeExact(Client.instance, false);
+      Reflection.loadEntitiesHandle.invokeExact(Client.instance, true);
+      Reflection.loadMapsHandle.invokeExact(Client.instance, 5359);
 
       Object soundBuf = Reflection.soundBuffer.get(Client.instance);
       if (soundSub == null && soundBuf != null) {
@@ -2140,14 +2170,16 @@ public class Client {
       if (members) {
         // sound loading routine not done
         if (soundSub == null && soundBuf == null) {
-          Reflection.loadSounds.invoke(Client.instance, -90);
+          Reflection.loadSoundsHandle.invokeExact(Client.instance, -90);
         }
         // from free to memb and loading routine already done sometime before
         // is just needed to load the sound data and setting back the buffer
         else if (soundBuf == null) {
           // strings[345] = "Sound effects"
           byte[] soundData =
-              (byte[]) Reflection.loadDataFile.invoke(Client.instance, strings[345], 90, 10, 66);
+              (byte[])
+                  Reflection.loadDataFileHandle.invokeExact(
+                      Client.instance, strings[345], 90, 10, 66);
           Reflection.memberSoundPack.set(Client.instance, soundData);
           Reflection.soundBuffer.set(Client.instance, soundSub);
         }
@@ -2161,25 +2193,28 @@ public class Client {
         // force re-render of game world terrain
         lastHeightOffset = (planeIndex + 1) % 2;
       }
-    } catch (Exception e) {
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void closeConnection(boolean sendPacket31) {
-    if (Reflection.closeConnection == null) return;
+    if (Reflection.closeConnectionHandle == null) return;
 
     try {
-      Reflection.closeConnection.invoke(Client.instance, sendPacket31, 31);
-    } catch (Exception e) {
+      Reflection.closeConnectionHandle.invokeExact(Client.instance, sendPacket31, 31);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void loseConnection(boolean close) {
-    if (Reflection.loseConnection == null) return;
+    if (Reflection.loseConnectionHandle == null) return;
 
     try {
-      Reflection.loseConnection.invoke(Client.clientStream, close);
-    } catch (Exception e) {
+      Reflection.loseConnectionHandle.invokeExact(Client.clientStream, close);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
@@ -2209,9 +2244,10 @@ public class Client {
         // method to sleep here
         sleepCmdSent = true;
         sleepBagIdx = idx;
-        Reflection.itemClick.invoke(Client.instance, false, 0);
+        Reflection.itemClickHandle.invokeExact(Client.instance, false, 0);
       }
-    } catch (Exception e) {
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
 
     }
   }
@@ -2245,43 +2281,47 @@ public class Client {
    * @param pass
    */
   public static void login(boolean reconnecting, String user, String pass) {
-    if (Reflection.login == null) return;
+    if (Reflection.loginHandle == null) return;
 
     try {
       Client.autologin_timeout = 2;
-      Reflection.login.invoke(Client.instance, -12, pass, user, reconnecting);
-    } catch (Exception e) {
+      Reflection.loginHandle.invokeExact(Client.instance, -12, pass, user, reconnecting);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   /** Logs the user out of the game. */
   public static void logout() {
-    if (Reflection.logout == null) return;
+    if (Reflection.logoutHandle == null) return;
 
     try {
-      Reflection.logout.invoke(Client.instance, 0);
-    } catch (Exception e) {
+      Reflection.logoutHandle.invokeExact(Client.instance, 0);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   /** Gets a parameter defined from world config */
   public static String getParameter(String parameter) {
-    if (Reflection.getParameter == null) return null;
+    if (Reflection.getParameterHandle == null) return null;
     String result = null;
 
     try {
-      result = ((String) Reflection.getParameter.invoke(Client.instance, parameter));
-    } catch (Exception e) {
+      result = (String) Reflection.getParameterHandle.invokeExact(Client.instance, parameter);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
     return result;
   }
 
   public static void clearScreen() {
-    if (Reflection.clearScreen == null) return;
+    if (Reflection.clearScreenHandle == null) return;
 
     try {
-      Reflection.clearScreen.invoke(Renderer.instance, true);
-    } catch (Exception e) {
+      Reflection.clearScreenHandle.invokeExact(Renderer.instance, true);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
@@ -2303,29 +2343,33 @@ public class Client {
   }
 
   public static void drawGraphics() {
-    if (Reflection.drawGraphics == null) return;
+    if (Reflection.drawGraphicsHandle == null) return;
 
     try {
-      Reflection.drawGraphics.invoke(Renderer.instance, Renderer.graphicsInstance, 0, 256, 0);
-    } catch (Exception e) {
+      Reflection.drawGraphicsHandle.invokeExact(
+          Renderer.instance, Renderer.graphicsInstance, 0, 256, 0);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void preGameDisplay() {
-    if (Reflection.preGameDisplay == null) return;
+    if (Reflection.preGameDisplayHandle == null) return;
 
     try {
-      Reflection.preGameDisplay.invoke(Client.instance, 2540);
-    } catch (Exception e) {
+      Reflection.preGameDisplayHandle.invokeExact(Client.instance, 2540);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void resetTimings() {
-    if (Reflection.resetTimings == null) return;
+    if (Reflection.resetTimingsHandle == null) return;
 
     try {
-      Reflection.resetTimings.invoke(Client.instance, -28492);
-    } catch (Exception e) {
+      Reflection.resetTimingsHandle.invokeExact(Client.instance, -28492);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
@@ -2405,7 +2449,7 @@ public class Client {
         int offset = 0;
         if (Client.is_in_wild) offset = 70;
         try {
-          Reflection.drawString.invoke(
+          Reflection.drawStringHandle.invokeExact(
               surfaceInstance,
               "Fps: " + Renderer.fps,
               Renderer.width - 62 - offset,
@@ -2413,7 +2457,8 @@ public class Client {
               0xffff00,
               false,
               1);
-        } catch (Exception e) {
+        } catch (Throwable e) {
+          Reflection.rethrowIfFatal(e);
         }
       }
     }
@@ -2488,33 +2533,33 @@ public class Client {
         if (!itemCommand.equals("")) {
           if (!Item.shouldPatch(index)) {
             // Edible item command
-            Reflection.menuGen.invoke(
+            Reflection.menuGenHandle.invokeExact(
                 instance, n, 640, false, itemCommand, Client.strings[34] + itemName);
             // Use
-            Reflection.menuGen.invoke(
+            Reflection.menuGenHandle.invokeExact(
                 instance, n, 650, false, Client.strings[71], Client.strings[34] + itemName);
           } else {
             // 635 is a synonym for 650 "Use", its lower than 640 since otherwise won't do the swap
             // Use
-            Reflection.menuGen.invoke(
+            Reflection.menuGenHandle.invokeExact(
                 instance, n, 635, false, Client.strings[71], Client.strings[34] + itemName);
             // Edible item command
-            Reflection.menuGen.invoke(
+            Reflection.menuGenHandle.invokeExact(
                 instance, n, 640, false, itemCommand, Client.strings[34] + itemName);
           }
         } else {
           // Use
-          Reflection.menuGen.invoke(
+          Reflection.menuGenHandle.invokeExact(
               instance, n, 650, false, Client.strings[71], Client.strings[34] + itemName);
         }
         // Drop
-        Reflection.menuGen.invoke(
+        Reflection.menuGenHandle.invokeExact(
             instance, n, 660, false, Client.strings[67], Client.strings[34] + itemName);
         // Examine
-        Reflection.menuGen.invoke(
+        Reflection.menuGenHandle.invokeExact(
             instance, index, 3600, false, Client.strings[51], Client.strings[34] + itemName);
-      } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-        // TODO Auto-generated catch block
+      } catch (Throwable e) {
+        Reflection.rethrowIfFatal(e);
         e.printStackTrace();
       }
     }
@@ -2528,22 +2573,26 @@ public class Client {
       if (action.containsWorldPoint == 1) {
         Client.displayMenuAction(action.name, idxOrDeltaX + regionX, idxOrDeltaY + regionY);
       } else if (action.containsWorldPoint == 2) {
-        if (Reflection.getNpc == null) return;
+        if (Reflection.getNpcHandle == null) return;
         try {
-          res = Reflection.getNpc.invoke(Client.instance, idxOrDeltaX, (byte) -123);
+          res =
+              (Object)
+                  Reflection.getNpcHandle.invokeExact(Client.instance, idxOrDeltaX, (byte) -123);
           mx = (Reflection.characterX.getInt(res) - 64) / Client.tileSize;
           my = (Reflection.characterY.getInt(res) - 64) / Client.tileSize;
           Client.displayMenuAction(action.name, mx + regionX, my + regionY);
-        } catch (Exception e) {
+        } catch (Throwable e) {
+          Reflection.rethrowIfFatal(e);
         }
       } else if (action.containsWorldPoint == 3) {
-        if (Reflection.getPlayer == null) return;
+        if (Reflection.getPlayerHandle == null) return;
         try {
-          res = Reflection.getPlayer.invoke(Client.instance, idxOrDeltaX, 220);
+          res = (Object) Reflection.getPlayerHandle.invokeExact(Client.instance, idxOrDeltaX, 220);
           mx = (Reflection.characterX.getInt(res) - 64) / Client.tileSize;
           my = (Reflection.characterY.getInt(res) - 64) / Client.tileSize;
           Client.displayMenuAction(action.name, mx + regionX, my + regionY);
-        } catch (Exception e) {
+        } catch (Throwable e) {
+          Reflection.rethrowIfFatal(e);
         }
       }
     }
@@ -2642,7 +2691,7 @@ public class Client {
     boolean shouldDrawOldTabs = drawOldChatTabs(false);
     if (!usingRetroTabs && shouldDrawOldTabs) {
       try {
-        Reflection.parseSprite.invoke(
+        Reflection.parseSpriteHandle.invokeExact(
             Renderer.instance,
             Renderer.sprite_media + 23,
             1,
@@ -2650,11 +2699,12 @@ public class Client {
             104,
             Client.indexData);
         usingRetroTabs = true;
-      } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+      } catch (Throwable e) {
+        Reflection.rethrowIfFatal(e);
       }
     } else if (usingRetroTabs && !shouldDrawOldTabs && hbarOrigData != null) {
       try {
-        Reflection.parseSprite.invoke(
+        Reflection.parseSpriteHandle.invokeExact(
             Renderer.instance,
             Renderer.sprite_media + 23,
             1,
@@ -2662,7 +2712,8 @@ public class Client {
             104,
             Client.indexData);
         usingRetroTabs = false;
-      } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+      } catch (Throwable e) {
+        Reflection.rethrowIfFatal(e);
       }
     }
   }
@@ -2985,12 +3036,13 @@ public class Client {
   }
 
   public static String formatText(String inputText, int length) {
-    if (Reflection.resetTimings == null) return null;
+    if (Reflection.resetTimingsHandle == null) return null;
     String outputText = null;
 
     try {
-      outputText = (String) Reflection.formatText.invoke(null, length, (byte) -5, inputText);
-    } catch (Exception e) {
+      outputText = (String) Reflection.formatTextHandle.invokeExact(length, (byte) -5, inputText);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
     return outputText;
   }
@@ -3194,16 +3246,50 @@ public class Client {
       int id,
       int id2) {
     // ILOAD 6 is index
-    npc_list.add(new NPC(x, y, width, height, name, NPC.TYPE_MOB, currentHits, maxHits, id, id2));
+    npc_list.add().set(x, y, width, height, name, NPC.TYPE_MOB, currentHits, maxHits, id, id2);
   }
 
   public static void drawPlayer(
       int x, int y, int width, int height, String name, int currentHits, int maxHits, int id2) {
-    npc_list.add(new NPC(x, y, width, height, name, NPC.TYPE_PLAYER, currentHits, maxHits, 0, id2));
+    npc_list.add().set(x, y, width, height, name, NPC.TYPE_PLAYER, currentHits, maxHits, 0, id2);
   }
 
   public static void drawItem(int x, int y, int width, int height, int id) {
-    item_list.add(new Item(x, y, width, height, id));
+    item_list.add().set(x, y, width, height, id);
+  }
+
+  /** Makes the entities drawn this frame the retained ones and recycles the older ones */
+  public static void retainNPCs() {
+    EntityBuffer<NPC> npcs = npc_list_retained;
+    npc_list_retained = npc_list;
+    npc_list = npcs;
+    npc_list.clear();
+  }
+
+  /** Makes the items drawn this frame the retained ones and recycles the older ones */
+  public static void retainItems() {
+    EntityBuffer<Item> items = item_list_retained;
+    item_list_retained = item_list;
+    item_list = items;
+    item_list.clear();
+  }
+
+  private static EntityBuffer<NPC> newNPCBuffer() {
+    return new EntityBuffer<NPC>() {
+      @Override
+      protected NPC create() {
+        return new NPC(0, 0, 0, 0, null, NPC.TYPE_MOB, 0, 0, 0, 0);
+      }
+    };
+  }
+
+  private static EntityBuffer<Item> newItemBuffer() {
+    return new EntityBuffer<Item>() {
+      @Override
+      protected Item create() {
+        return new Item(0, 0, 0, 0, 0);
+      }
+    };
   }
 
   /**
@@ -0,0 +1,58 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Game;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+
+/**
+ * Entities drawn during one frame. Clearing the buffer keeps its entities, and {@link #add()} hands
+ * them out again to be overwritten, so the draw hooks don't allocate once the buffer has grown.
+ *
+ * <p>Entries past {@link #size()} stay readable as stale entities from an earlier frame, so a
+ * reader on another thread that raced with {@link #clear()} doesn't fail.
+ */
+public abstract class EntityBuffer<T> extends AbstractList<T> {
+  private final ArrayList<T> m_entities = new ArrayList<T>();
+  private int m_size = 0;
+
+  /** Creates an entity when the buffer has none left to recycle */
+  protected abstract T create();
+
+  /** Returns an entity to be filled in for this frame */
+  public T add() {
+    if (m_size == m_entities.size()) m_entities.add(create());
+    return m_entities.get(m_size++);
+  }
+
+  @Override
+  public T get(int index) {
+    return m_entities.get(index);
+  }
+
+  @Override
+  public int size() {
+    return m_size;
+  }
+
+  @Override
+  public void clear() {
+    m_size = 0;
+  }
+}
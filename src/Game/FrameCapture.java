@@ -0,0 +1,294 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Game;
+
+import Client.ImageManip;
+import Client.Logger;
+import java.awt.image.BufferedImage;
+import java.awt.image.RasterFormatException;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+
+/**
+ * Saves frames of the game image without encoding them on the render thread.
+ *
+ * <p>Frames are copied into one of a fixed number of pooled pixel buffers and encoded by worker
+ * threads. When every buffer is waiting to be encoded, the capture's {@link Policy} decides whether
+ * the render thread waits for one or the frame is dropped.
+ */
+public class FrameCapture {
+  /** Number of frames that can be waiting to be encoded at once */
+  private static final int SLOTS = 8;
+
+  private static final BlockingQueue<Slot> free = new ArrayBlockingQueue<Slot>(SLOTS);
+  private static final BlockingQueue<Slot> pending = new ArrayBlockingQueue<Slot>(SLOTS);
+  private static final AtomicInteger dropped = new AtomicInteger();
+  private static boolean started = false;
+
+  /** What to do with a frame when every buffer is waiting to be encoded */
+  public enum Policy {
+    /** Wait for the encoders, every frame is saved but rendering slows down */
+    BLOCK,
+    /** Skip the frame, rendering keeps its pace but the capture has gaps */
+    DROP
+  }
+
+  private static class Slot {
+    int[] pixels = new int[0];
+    int width;
+    int height;
+    byte[] rawBuffer;
+
+    // Crop applied to scenery screenshots before encoding
+    int cropX;
+    int cropY;
+    int cropWidth;
+    int cropHeight;
+    boolean scenery;
+
+    File file;
+    RawVideo video;
+    int frame;
+  }
+
+  /**
+   * Frames written back to back into a single uncompressed file, for muxing into a video later.
+   *
+   * <p>The .raw file holds each frame as width * height big-endian ARGB ints. Frames may be written
+   * out of order, so the .idx file holds a frame number, data offset, width and height per frame.
+   */
+  public static class RawVideo {
+    private final DataOutputStream data;
+    private final DataOutputStream index;
+    private long offset = 0;
+    private int queued = 0;
+    private boolean finished = false;
+
+    public RawVideo(File baseFile) throws IOException {
+      data =
+          new DataOutputStream(
+              new BufferedOutputStream(new FileOutputStream(new File(baseFile + ".raw"))));
+      index =
+          new DataOutputStream(
+              new BufferedOutputStream(new FileOutputStream(new File(baseFile + ".idx"))));
+    }
+
+    /** Closes the files once every frame captured so far has been written */
+    public synchronized void finish() {
+      finished = true;
+      if (queued == 0) close();
+    }
+
+    private synchronized void queue() {
+      queued++;
+    }
+
+    private synchronized void write(Slot slot) throws IOException {
+      try {
+        int length = slot.width * slot.height;
+        if (slot.rawBuffer == null || slot.rawBuffer.length < length * 4)
+          slot.rawBuffer = new byte[length * 4];
+        ByteBuffer.wrap(slot.rawBuffer).asIntBuffer().put(slot.pixels, 0, length);
+
+        index.writeInt(slot.frame);
+        index.writeLong(offset);
+        index.writeInt(slot.width);
+        index.writeInt(slot.height);
+        data.write(slot.rawBuffer, 0, length * 4);
+        offset += length * 4;
+      } finally {
+        queued--;
+        if (finished && queued == 0) close();
+      }
+    }
+
+    private void close() {
+      try {
+        data.close();
+        index.close();
+      } catch (IOException e) {
+        Logger.Error("Unable to close raw video files");
+      }
+    }
+  }
+
+  /**
+   * Queues a frame to be saved as a PNG
+   *
+   * @return false if the frame was dropped
+   */
+  public static boolean capture(BufferedImage image, File file, Policy policy) {
+    Slot slot = acquire(policy);
+    if (slot == null) return false;
+    copy(image, slot);
+    slot.file = file;
+    return submit(slot);
+  }
+
+  /**
+   * Queues a cropped frame of a scenery screenshot to be saved as a PNG, with the background made
+   * transparent and cropped to the scenery by {@link ImageManip#prepareSceneryImage}
+   *
+   * @return false if the frame was dropped
+   */
+  public static boolean captureScenery(
+      BufferedImage image, int x, int y, int width, int height, File file, Policy policy) {
+    Slot slot = acquire(policy);
+    if (slot == null) return false;
+    copy(image, slot);
+    slot.cropX = x;
+    slot.cropY = y;
+    slot.cropWidth = width;
+    slot.cropHeight = height;
+    slot.scenery = true;
+    slot.file = file;
+    return submit(slot);
+  }
+
+  /**
+   * Queues a frame to be appended to a raw video
+   *
+   * @return false if the frame was dropped
+   */
+  public static boolean captureRaw(BufferedImage image, RawVideo video, int frame, Policy policy) {
+    Slot slot = acquire(policy);
+    if (slot == null) return false;
+    copy(image, slot);
+    slot.video = video;
+    slot.frame = frame;
+    video.queue();
+    return submit(slot);
+  }
+
+  /** Returns and resets the number of frames dropped since the last call */
+  public static int takeDroppedCount() {
+    return dropped.getAndSet(0);
+  }
+
+  private static Slot acquire(Policy policy) {
+    start();
+
+    Slot slot = free.poll();
+    if (slot == null && policy == Policy.BLOCK) {
+      try {
+        slot = free.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (slot == null) dropped.incrementAndGet();
+    return slot;
+  }
+
+  private static void copy(BufferedImage image, Slot slot) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if (slot.pixels.length < width * height) slot.pixels = new int[width * height];
+    slot.width = width;
+    slot.height = height;
+
+    if (image.getType() == BufferedImage.TYPE_INT_ARGB) {
+      // Copies straight from the raster without making the image unmanaged like getData() would
+      image.getRaster().getDataElements(0, 0, width, height, slot.pixels);
+    } else {
+      image.getRGB(0, 0, width, height, slot.pixels, 0, width);
+    }
+  }
+
+  private static boolean submit(Slot slot) {
+    // Can't fail, there are as many places in the queue as there are slots
+    pending.add(slot);
+    return true;
+  }
+
+  private static synchronized void start() {
+    if (started) return;
+    started = true;
+
+    for (int i = 0; i < SLOTS; i++) free.add(new Slot());
+
+    int workers = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    for (int i = 0; i < workers; i++) {
+      Thread thread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  for (; ; ) {
+                    Slot slot;
+                    try {
+                      slot = pending.take();
+                    } catch (InterruptedException e) {
+                      return;
+                    }
+                    encode(slot);
+                    reset(slot);
+                    free.add(slot);
+                  }
+                }
+              },
+              "FrameCapture-" + (i + 1));
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      thread.start();
+    }
+  }
+
+  private static void encode(Slot slot) {
+    try {
+      if (slot.video != null) {
+        slot.video.write(slot);
+        return;
+      }
+
+      BufferedImage image =
+          new BufferedImage(slot.width, slot.height, BufferedImage.TYPE_INT_ARGB);
+      image.setRGB(0, 0, slot.width, slot.height, slot.pixels, 0, slot.width);
+
+      if (slot.scenery) {
+        try {
+          image =
+              ImageManip.prepareSceneryImage(
+                  image.getSubimage(slot.cropX, slot.cropY, slot.cropWidth, slot.cropHeight));
+        } catch (RasterFormatException e) {
+          image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        }
+      }
+
+      ImageIO.write(image, "png", slot.file);
+    } catch (Exception e) {
+      Logger.Error("Unable to save frame " + (slot.file != null ? slot.file : slot.frame));
+    }
+  }
+
+  private static void reset(Slot slot) {
+    slot.scenery = false;
+    slot.file = null;
+    slot.video = null;
+    slot.frame = 0;
+  }
+}
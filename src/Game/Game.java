@@ -201,6 +201,11 @@ public class Game extends JFrame
     m_applet.destroy();
     m_applet = null;
 
+    // Don't lose the last moments of a recording that is still open
+    ReplayWriter.flushAll();
+
+    Settings.flushSave();
+
     Logger.stop();
   }
 
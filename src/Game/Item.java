@@ -57,6 +57,15 @@ public class Item {
     this.id = id;
   }
 
+  /** Overwrites the entity with one drawn this frame, see {@link EntityBuffer} */
+  public void set(int x, int y, int width, int height, int id) {
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.height = height;
+    this.id = id;
+  }
+
   public Item(int x, int y, int id, long timestamp) {
     this.x = x;
     this.y = y;
@@ -56,4 +56,28 @@ class NPC {
     this.id = id;
     this.id2 = id2;
   }
+
+  /** Overwrites the entity with one drawn this frame, see {@link EntityBuffer} */
+  public void set(
+      int x,
+      int y,
+      int width,
+      int height,
+      String name,
+      int type,
+      int currentHits,
+      int maxHits,
+      int id,
+      int id2) {
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.height = height;
+    this.name = name;
+    this.type = type;
+    this.currentHits = currentHits;
+    this.maxHits = maxHits;
+    this.id = id;
+    this.id2 = id2;
+  }
 }
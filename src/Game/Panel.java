@@ -45,11 +45,12 @@ public class Panel {
   }
 
   public static void drawPanel(Object panelSource) {
-    if (Reflection.drawPanel == null) return;
+    if (Reflection.drawPanelHandle == null) return;
 
     try {
-      Reflection.drawPanel.invoke(panelSource, (byte) 39);
-    } catch (Exception e) {
+      Reflection.drawPanelHandle.invokeExact(panelSource, (byte) 39);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
@@ -80,104 +81,119 @@ public class Panel {
   // obsolete, checkbox is control type 14 and mudclient kept the rendering method intact
   public static void drawCheckBox(Object panelSource, int id, int x, int y, int w, int h) {
     if (Reflection.menuRenderer == null
-        || Reflection.drawBox == null
-        || Reflection.drawLineHoriz == null
-        || Reflection.drawLineVert == null) return;
+        || Reflection.drawBoxHandle == null
+        || Reflection.drawLineHorizHandle == null
+        || Reflection.drawLineVertHandle == null) return;
 
     try {
       Object renderer = (Object) Reflection.menuRenderer.get(panelSource);
       int colorLeftRight = (int) Reflection.colorLeftRight.get(panelSource);
       int colorTopBottom = (int) Reflection.colorTopBottom.get(panelSource);
-      Reflection.drawBox.invoke(renderer, x, (byte) -127, 16777215, y, h, w);
-      Reflection.drawLineHoriz.invoke(renderer, w, colorTopBottom, x, y, (byte) -124);
-      Reflection.drawLineVert.invoke(renderer, x, y, colorTopBottom, h, (byte) -124);
-      Reflection.drawLineHoriz.invoke(renderer, w, colorLeftRight, x, y + h - 1, (byte) -124);
-      Reflection.drawLineVert.invoke(renderer, x + w - 1, y, colorLeftRight, h, (byte) -124);
+      Reflection.drawBoxHandle.invokeExact(renderer, x, (byte) -127, 16777215, y, h, w);
+      Reflection.drawLineHorizHandle.invokeExact(renderer, w, colorTopBottom, x, y, (byte) -124);
+      Reflection.drawLineVertHandle.invokeExact(renderer, x, y, colorTopBottom, h, -124);
+      Reflection.drawLineHorizHandle.invokeExact(
+          renderer, w, colorLeftRight, x, y + h - 1, (byte) -124);
+      Reflection.drawLineVertHandle.invokeExact(renderer, x + w - 1, y, colorLeftRight, h, -124);
 
       int[] toggle = (int[]) Reflection.menuToggled.get(panelSource);
 
       if (toggle[id] == 1) {
         for (int i = 0; i < h; ++i) {
-          Reflection.drawLineHoriz.invoke(renderer, 1, 0, x + i, y + i, (byte) -124);
-          Reflection.drawLineHoriz.invoke(renderer, 1, 0, x + w - i - 1, y + i, (byte) -124);
+          Reflection.drawLineHorizHandle.invokeExact(renderer, 1, 0, x + i, y + i, (byte) -124);
+          Reflection.drawLineHorizHandle.invokeExact(
+              renderer, 1, 0, x + w - i - 1, y + i, (byte) -124);
         }
       }
-    } catch (Exception e) {
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void setFocus(Object panelSource, int controlId) {
-    if (Reflection.setFocus == null) return;
+    if (Reflection.setFocusHandle == null) return;
 
     try {
-      Reflection.setFocus.invoke(panelSource, controlId, -105);
-    } catch (Exception e) {
+      Reflection.setFocusHandle.invokeExact(panelSource, controlId, -105);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void handleMouse(Object panelSource, int n1, int n2, int n3, int n4) {
-    if (Reflection.handleMouse == null) return;
+    if (Reflection.handleMouseHandle == null) return;
 
     try {
-      Reflection.handleMouse.invoke(panelSource, n1, n2, -9989, n3, n4);
-    } catch (Exception e) {
+      Reflection.handleMouseHandle.invokeExact(panelSource, n1, n2, -9989, n3, n4);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
       e.printStackTrace();
     }
   }
 
   public static void handleKey(Object panelSource, int n) {
-    if (Reflection.handleKey == null) return;
+    if (Reflection.handleKeyHandle == null) return;
 
     try {
-      Reflection.handleKey.invoke(panelSource, -12, n);
-    } catch (Exception e) {
+      Reflection.handleKeyHandle.invokeExact(panelSource, -12, n);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
       e.printStackTrace();
     }
   }
 
   public static boolean isSelected(Object panelSource, int controlId) {
-    if (Reflection.isSelected == null) return false;
+    if (Reflection.isSelectedHandle == null) return false;
 
     boolean selected = false;
     try {
-      selected = (boolean) Reflection.isSelected.invoke(panelSource, (byte) -120, controlId);
-    } catch (Exception e) {
+      selected =
+          (boolean) Reflection.isSelectedHandle.invokeExact(panelSource, (byte) -120, controlId);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
       e.printStackTrace();
     }
     return selected;
   }
 
   public static int isToggle(Object panelSource, int controlId) {
-    if (Reflection.isToggle == null) return 0;
+    if (Reflection.isToggleHandle == null) return 0;
 
     int toggle = 0;
     try {
-      toggle = (int) Reflection.isToggle.invoke(panelSource, 14458, controlId);
-    } catch (Exception e) {
+      toggle = (int) Reflection.isToggleHandle.invokeExact(panelSource, 14458, controlId);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
       e.printStackTrace();
     }
     return toggle;
   }
 
   public static int addButtonBackTo(Object panelSource, int xPos, int yPos, int width, int height) {
-    if (Reflection.addButtonBack == null) return -1;
+    if (Reflection.addButtonBackHandle == null) return -1;
 
     int count = 0;
     try {
-      count = (int) Reflection.addButtonBack.invoke(panelSource, -120, width, height, xPos, yPos);
-    } catch (Exception e) {
+      count =
+          (int)
+              Reflection.addButtonBackHandle.invokeExact(
+                  panelSource, -120, width, height, xPos, yPos);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return count;
   }
 
   public static int addButtonTo(Object panelSource, int xPos, int yPos, int width, int height) {
-    if (Reflection.addButton == null) return -1;
+    if (Reflection.addButtonHandle == null) return -1;
 
     int count = 0;
     try {
-      count = (int) Reflection.addButton.invoke(panelSource, xPos, width, yPos, 91, height);
-    } catch (Exception e) {
+      count =
+          (int) Reflection.addButtonHandle.invokeExact(panelSource, xPos, width, yPos, 91, height);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return count;
@@ -193,13 +209,13 @@ public class Panel {
       int capacity,
       boolean isMasked,
       boolean isBackground) {
-    if (Reflection.addInput == null) return -1;
+    if (Reflection.addInputHandle == null) return -1;
 
     int count = 0;
     try {
       count =
           (int)
-              Reflection.addInput.invoke(
+              Reflection.addInputHandle.invokeExact(
                   panelSource,
                   0,
                   capacity,
@@ -210,28 +226,31 @@ public class Panel {
                   height,
                   isMasked,
                   xPos);
-    } catch (Exception e) {
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return count;
   }
 
   public static void setControlText(Object panelSource, int controlId, String text) {
-    if (Reflection.setControlText == null) return;
+    if (Reflection.setControlTextHandle == null) return;
 
     try {
-      Reflection.setControlText.invoke(panelSource, controlId, text, 27642);
-    } catch (Exception e) {
+      Reflection.setControlTextHandle.invokeExact(panelSource, controlId, text, 27642);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static String getControlText(Object panelSource, int controlId) {
-    if (Reflection.getControlText == null) return null;
+    if (Reflection.getControlTextHandle == null) return null;
 
     String res = "";
     try {
-      res = (String) Reflection.getControlText.invoke(panelSource, controlId, 4);
-    } catch (Exception e) {
+      res = (String) Reflection.getControlTextHandle.invokeExact(panelSource, controlId, 4);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return res;
@@ -255,15 +274,16 @@ public class Panel {
       String textString,
       int fontSize,
       boolean isBackground) {
-    if (Reflection.addCenterText == null) return -1;
+    if (Reflection.addCenterTextHandle == null) return -1;
 
     int count = 0;
     try {
       count =
           (int)
-              Reflection.addCenterText.invoke(
+              Reflection.addCenterTextHandle.invokeExact(
                   panelSource, isBackground, (byte) -126, fontSize, xPos, textString, yPos);
-    } catch (Exception e) {
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return count;
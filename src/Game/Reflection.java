@@ -21,6 +21,10 @@ package Game;
 import Client.JClassLoader;
 import Client.Launcher;
 import Client.Logger;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -164,6 +168,75 @@ public class Reflection {
 
   public static Method playSound = null;
 
+  // Handles for the packet methods and fields used by StreamUtil. Game classes in their types are
+  // replaced with Object, so they can be called with invokeExact without boxing the arguments.
+  public static MethodHandle newPacketHandle = null;
+  public static MethodHandle sendPacketHandle = null;
+  public static MethodHandle flushPacketHandle = null;
+  public static MethodHandle initIsaacHandle = null;
+  public static MethodHandle readResponseHandle = null;
+  public static MethodHandle readBytesHandle = null;
+  public static MethodHandle getUnsignedByteHandle = null;
+  public static MethodHandle getUnsignedShortHandle = null;
+  public static MethodHandle getUnsignedInt3Handle = null;
+  public static MethodHandle putByteHandle = null;
+  public static MethodHandle putShortHandle = null;
+  public static MethodHandle putIntHandle = null;
+  public static MethodHandle putStrHandle = null;
+  public static MethodHandle putInt3ByteHandle = null;
+  public static MethodHandle putBytesHandle = null;
+  public static MethodHandle setBlockLengthHandle = null;
+  public static MethodHandle encryptHandle = null;
+  public static MethodHandle xteaEncryptHandle = null;
+  public static MethodHandle putRandomHandle = null;
+  public static MethodHandle getBufferField = null;
+  public static MethodHandle getBufferOffset = null;
+  public static MethodHandle setBufferOffset = null;
+  public static MethodHandle getBufferByteArray = null;
+
+  // Handles for the client, surface and panel methods called by the Client and Panel hooks
+  public static MethodHandle gameModelRotateHandle = null;
+  public static MethodHandle gameModelSetLightHandle = null;
+  public static MethodHandle showInputPopupHandle = null;
+  public static MethodHandle getParameterHandle = null;
+  public static MethodHandle displayMessageHandle = null;
+  public static MethodHandle setLoginTextHandle = null;
+  public static MethodHandle closeConnectionHandle = null;
+  public static MethodHandle loseConnectionHandle = null;
+  public static MethodHandle loginHandle = null;
+  public static MethodHandle logoutHandle = null;
+  public static MethodHandle itemClickHandle = null;
+  public static MethodHandle menuGenHandle = null;
+  public static MethodHandle drawStringHandle = null;
+  public static MethodHandle parseSpriteHandle = null;
+  public static MethodHandle getNpcHandle = null;
+  public static MethodHandle getPlayerHandle = null;
+  public static MethodHandle clearScreenHandle = null;
+  public static MethodHandle drawGraphicsHandle = null;
+  public static MethodHandle preGameDisplayHandle = null;
+  public static MethodHandle resetTimingsHandle = null;
+  public static MethodHandle formatTextHandle = null;
+  public static MethodHandle loadGameConfigHandle = null;
+  public static MethodHandle loadEntitiesHandle = null;
+  public static MethodHandle loadMapsHandle = null;
+  public static MethodHandle loadSoundsHandle = null;
+  public static MethodHandle loadDataFileHandle = null;
+  public static MethodHandle drawPanelHandle = null;
+  public static MethodHandle drawBoxHandle = null;
+  public static MethodHandle drawLineHorizHandle = null;
+  public static MethodHandle drawLineVertHandle = null;
+  public static MethodHandle setFocusHandle = null;
+  public static MethodHandle handleMouseHandle = null;
+  public static MethodHandle handleKeyHandle = null;
+  public static MethodHandle isSelectedHandle = null;
+  public static MethodHandle isToggleHandle = null;
+  public static MethodHandle addButtonBackHandle = null;
+  public static MethodHandle addButtonHandle = null;
+  public static MethodHandle addInputHandle = null;
+  public static MethodHandle setControlTextHandle = null;
+  public static MethodHandle getControlTextHandle = null;
+  public static MethodHandle addCenterTextHandle = null;
+
   // Constructor descriptions
   private static final String PANEL = "qa(ua,int)";
   private static final String STREAM = "da(java.net.Socket,e) throws java.io.IOException";
@@ -928,8 +1001,113 @@ public class Reflection {
       if (updateBankItems != null) updateBankItems.setAccessible(true);
       if (playSound != null) playSound.setAccessible(true);
 
+      newPacketHandle = unreflect(newPacket);
+      sendPacketHandle = unreflect(sendPacket);
+      flushPacketHandle = unreflect(flushPacket);
+      initIsaacHandle = unreflect(initIsaac);
+      readResponseHandle = unreflect(readResponse);
+      readBytesHandle = unreflect(readBytes);
+      getUnsignedByteHandle = unreflect(getUnsignedByte);
+      getUnsignedShortHandle = unreflect(getUnsignedShort);
+      getUnsignedInt3Handle = unreflect(getUnsignedInt3);
+      putByteHandle = unreflect(putByte);
+      putShortHandle = unreflect(putShort);
+      putIntHandle = unreflect(putInt);
+      putStrHandle = unreflect(putStr);
+      putInt3ByteHandle = unreflect(putInt3Byte);
+      putBytesHandle = unreflect(putBytes);
+      setBlockLengthHandle = unreflect(setBlockLength);
+      encryptHandle = unreflect(encrypt);
+      xteaEncryptHandle = unreflect(xteaEncrypt);
+      putRandomHandle = unreflect(putRandom);
+      getBufferField = unreflectGetter(bufferField);
+      getBufferOffset = unreflectGetter(bufferOffset);
+      setBufferOffset = unreflectSetter(bufferOffset);
+      getBufferByteArray = unreflectGetter(bufferByteArray);
+
+      gameModelRotateHandle = unreflect(gameModelRotate);
+      gameModelSetLightHandle = unreflect(gameModelSetLight);
+      showInputPopupHandle = unreflect(showInputPopup);
+      getParameterHandle = unreflect(getParameter);
+      displayMessageHandle = unreflect(displayMessage);
+      setLoginTextHandle = unreflect(setLoginText);
+      closeConnectionHandle = unreflect(closeConnection);
+      loseConnectionHandle = unreflect(loseConnection);
+      loginHandle = unreflect(login);
+      logoutHandle = unreflect(logout);
+      itemClickHandle = unreflect(itemClick);
+      menuGenHandle = unreflect(menuGen);
+      drawStringHandle = unreflect(drawString);
+      parseSpriteHandle = unreflect(parseSprite);
+      getNpcHandle = unreflect(getNpc);
+      getPlayerHandle = unreflect(getPlayer);
+      clearScreenHandle = unreflect(clearScreen);
+      drawGraphicsHandle = unreflect(drawGraphics);
+      preGameDisplayHandle = unreflect(preGameDisplay);
+      resetTimingsHandle = unreflect(resetTimings);
+      formatTextHandle = unreflect(formatText);
+      loadGameConfigHandle = unreflect(loadGameConfig);
+      loadEntitiesHandle = unreflect(loadEntities);
+      loadMapsHandle = unreflect(loadMaps);
+      loadSoundsHandle = unreflect(loadSounds);
+      loadDataFileHandle = unreflect(loadDataFile);
+      drawPanelHandle = unreflect(drawPanel);
+      drawBoxHandle = unreflect(drawBox);
+      drawLineHorizHandle = unreflect(drawLineHoriz);
+      drawLineVertHandle = unreflect(drawLineVert);
+      setFocusHandle = unreflect(setFocus);
+      handleMouseHandle = unreflect(handleMouse);
+      handleKeyHandle = unreflect(handleKey);
+      isSelectedHandle = unreflect(isSelected);
+      isToggleHandle = unreflect(isToggle);
+      addButtonBackHandle = unreflect(addButtonBack);
+      addButtonHandle = unreflect(addButton);
+      addInputHandle = unreflect(addInput);
+      setControlTextHandle = unreflect(setControlText);
+      getControlTextHandle = unreflect(getControlText);
+      addCenterTextHandle = unreflect(addCenterText);
     } catch (Exception e) {
       e.printStackTrace();
     }
   }
+
+  static MethodHandle unreflect(Method method) throws IllegalAccessException {
+    if (method == null) return null;
+    method.setAccessible(true);
+    return eraseGameClasses(MethodHandles.lookup().unreflect(method));
+  }
+
+  static MethodHandle unreflectGetter(Field field) throws IllegalAccessException {
+    if (field == null) return null;
+    return eraseGameClasses(MethodHandles.lookup().unreflectGetter(field));
+  }
+
+  static MethodHandle unreflectSetter(Field field) throws IllegalAccessException {
+    if (field == null) return null;
+    return eraseGameClasses(MethodHandles.lookup().unreflectSetter(field));
+  }
+
+  /**
+   * Exceptions thrown by the game methods are ignored by their callers, but a handle that doesn't
+   * match its call site (or an Error) is rethrown so a changed signature can't turn a call into a
+   * no-op.
+   */
+  static void rethrowIfFatal(Throwable e) {
+    if (e instanceof WrongMethodTypeException) throw (WrongMethodTypeException) e;
+    if (e instanceof Error) throw (Error) e;
+  }
+
+  /** Changes the game classes in the handle's type to Object, callers can't refer to them */
+  private static MethodHandle eraseGameClasses(MethodHandle handle) {
+    MethodType type = handle.type();
+    for (int i = 0; i < type.parameterCount(); i++) {
+      if (isGameClass(type.parameterType(i))) type = type.changeParameterType(i, Object.class);
+    }
+    if (isGameClass(type.returnType())) type = type.changeReturnType(Object.class);
+    return handle.asType(type);
+  }
+
+  private static boolean isGameClass(Class<?> c) {
+    return !c.isPrimitive() && !c.isArray() && !c.getName().startsWith("java.");
+  }
 }
@@ -25,6 +25,7 @@ import Client.Logger;
 import Client.NotificationsHandler;
 import Client.NotificationsHandler.NotifType;
 import Client.Settings;
+import Client.SettingsSnapshot;
 import Client.Util;
 import Client.WikiURL;
 import Client.WorldMapWindow;
@@ -36,20 +37,18 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.GraphicsEnvironment;
 import java.awt.Image;
-import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.font.FontRenderContext;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageConsumer;
-import java.awt.image.RasterFormatException;
 import java.io.File;
 import java.io.InputStream;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
@@ -107,7 +106,18 @@ public class Renderer {
 
   private static Dimension new_size = new Dimension(0, 0);
 
-  private static Item last_item;
+  // Reused every frame by the overlay pass
+  private static final ScreenPositionSet npc_hitbox = new ScreenPositionSet();
+  private static final ScreenPositionSet player_hitbox = new ScreenPositionSet();
+  private static final ScreenPositionSet entity_text_loc = new ScreenPositionSet();
+  private static final ScreenPositionSet item_hitbox = new ScreenPositionSet();
+  private static final ScreenPositionSet item_text_loc = new ScreenPositionSet();
+  private static long[] item_order = new long[64];
+  private static boolean item_order_sorted = false;
+
+  // Position of every item id in reverse alphabetical order, for the item name in item_rank_names
+  private static String[] item_rank_names = null;
+  private static int[] item_rank = null;
 
   public static Font font_main;
   public static Font font_big;
@@ -117,6 +127,8 @@ public class Renderer {
   private static boolean screenshot = false;
   public static int videorecord = 0;
   public static int videolength = 0;
+  public static FrameCapture.RawVideo videoRaw = null;
+  public static FrameCapture.Policy videoPolicy = FrameCapture.Policy.BLOCK;
   public static int screenshot_scenery_angle = 0;
   public static int screenshot_scenery_frames = 0;
   public static int screenshot_scenery_scenery_id = 0;
@@ -151,6 +163,8 @@ public class Renderer {
   private static int bankResetTimer = 0;
   private static boolean show_bank_last = false;
 
+  private static boolean class_report_logged = false;
+
   public static int getFogColor(int attenuation, int val) {
     int clearColor = getClearColor();
 
@@ -254,6 +268,8 @@ public class Renderer {
   private static float lastAdjustedDrainRate = 0;
 
   public static void present(Graphics g, Image image) {
+    SettingsSnapshot settings = Settings.snapshot();
+
     // Update timing
     long new_time = System.currentTimeMillis();
     delta_time = (float) (new_time - time) / 1000.0f;
@@ -262,7 +278,7 @@ public class Renderer {
 
     // This workaround is required to use custom resolution on macOS
     if (macOS_resize_workaround) {
-      if (Settings.CUSTOM_CLIENT_SIZE.get(Settings.currentProfile)) {
+      if (settings.CUSTOM_CLIENT_SIZE) {
         Game.getInstance().resizeFrameWithContents();
       } else {
         Game.getInstance().pack();
@@ -281,7 +297,7 @@ public class Renderer {
     g2.setFont(font_main);
 
     g2.drawImage(image, 0, 0, null);
-    int startingPixel = Settings.PATCH_HBAR_512_LAST_PIXEL.get(Settings.currentProfile) ? 511 : 512;
+    int startingPixel = settings.PATCH_HBAR_512_LAST_PIXEL ? 511 : 512;
     g2.drawImage(image_border, startingPixel, height - 13, width - startingPixel, 13, null);
 
     // In-game UI
@@ -290,8 +306,8 @@ public class Renderer {
       int playerCount = 0;
 
       // Update player coords
-      for (Iterator<NPC> iterator = Client.npc_list.iterator(); iterator.hasNext(); ) {
-        NPC npc = iterator.next(); // TODO: Remove unnecessary allocations
+      for (int i = 0; i < Client.npc_list.size(); i++) {
+        NPC npc = Client.npc_list.get(i);
         if (npc != null) {
           if (npc.type == NPC.TYPE_PLAYER) playerCount++;
           else if (npc.type == NPC.TYPE_MOB) npcCount++;
@@ -308,12 +324,12 @@ public class Renderer {
       }
 
       if (!Client.isInterfaceOpen() && Client.show_menu == Client.MENU_NONE) {
-        List<Rectangle> npc_hitbox = new ArrayList<>();
-        List<Rectangle> player_hitbox = new ArrayList<>();
-        List<Point> entity_text_loc = new ArrayList<>();
+        npc_hitbox.clear();
+        player_hitbox.clear();
+        entity_text_loc.clear();
 
-        for (Iterator<NPC> iterator = Client.npc_list.iterator(); iterator.hasNext(); ) {
-          NPC npc = iterator.next(); // TODO: Remove unnecessary allocations
+        for (int i = 0; i < Client.npc_list.size(); i++) {
+          NPC npc = Client.npc_list.get(i);
           Color color = color_low;
 
           boolean showName = false;
@@ -322,43 +338,28 @@ public class Renderer {
 
             if (Client.isFriend(npc.name)) {
               color = color_hp;
-              if ((Settings.SHOW_FRIEND_NAME_OVERLAY.get(Settings.currentProfile)
-                  || Settings.SHOW_PLAYER_NAME_OVERLAY.get(Settings.currentProfile))) {
+              if ((settings.SHOW_FRIEND_NAME_OVERLAY || settings.SHOW_PLAYER_NAME_OVERLAY)) {
                 showName = true;
               }
-            } else if (Settings.SHOW_PLAYER_NAME_OVERLAY.get(Settings.currentProfile)) {
+            } else if (settings.SHOW_PLAYER_NAME_OVERLAY) {
               showName = true;
             }
-          } else if (npc.type == NPC.TYPE_MOB
-              && Settings.SHOW_NPC_NAME_OVERLAY.get(Settings.currentProfile)) {
+          } else if (npc.type == NPC.TYPE_MOB && settings.SHOW_NPC_NAME_OVERLAY) {
             showName = true;
           }
 
-          if (Settings.SHOW_HITBOX.get(Settings.currentProfile)) {
-            List<Rectangle> hitbox = player_hitbox;
-            boolean showHitbox = true;
-
+          if (settings.SHOW_HITBOX) {
+            ScreenPositionSet hitbox = player_hitbox;
             if (npc.type == NPC.TYPE_MOB) hitbox = npc_hitbox;
 
-            for (Iterator<Rectangle> boxIterator = hitbox.iterator(); boxIterator.hasNext(); ) {
-              Rectangle rect = boxIterator.next(); // TODO: Remove unnecessary allocations
-              if (rect.x == npc.x
-                  && rect.y == npc.y
-                  && rect.width == npc.width
-                  && rect.height == npc.height) {
-                showHitbox = false;
-                break;
-              }
-            }
-
-            if (showHitbox) {
+            // Only draw the first of several hitboxes in the same place
+            if (hitbox.add(npc.x, npc.y, npc.width, npc.height)) {
               setAlpha(g2, 0.3f);
               g2.setColor(color);
               g2.fillRect(npc.x, npc.y, npc.width, npc.height);
               g2.setColor(Color.BLACK);
               g2.drawRect(npc.x, npc.y, npc.width, npc.height);
               setAlpha(g2, 1.0f);
-              hitbox.add(new Rectangle(npc.x, npc.y, npc.width, npc.height));
             }
           }
 
@@ -366,114 +367,78 @@ public class Renderer {
           if (showName && npc.name != null) {
             int x = npc.x + (npc.width / 2);
             int y = npc.y - 20;
-            for (Iterator<Point> locIterator = entity_text_loc.iterator();
-                locIterator.hasNext(); ) {
-              Point loc = locIterator.next(); // TODO: Remove unnecessary allocations
-              if (loc.x == x && loc.y == y) y -= 12;
-            }
+            // Stack names that would be drawn on top of each other
+            while (!entity_text_loc.add(x, y)) y -= 12;
 
             String text = npc.name;
-            if (Settings.EXTEND_IDS_OVERLAY.get(Settings.currentProfile)) {
+            if (settings.EXTEND_IDS_OVERLAY) {
               text += (" (" + npc.id + "-" + npc.id2 + ")");
             }
             drawShadowText(g2, text, x, y, color, true);
-            entity_text_loc.add(new Point(x, y));
           }
         }
 
-        List<Rectangle> item_hitbox = new ArrayList<>();
-        List<Point> item_text_loc = new ArrayList<>();
-
-        if (Settings.SHOW_ITEM_GROUND_OVERLAY.get(
-            Settings.currentProfile)) { // Don't sort if we aren't displaying any item names anyway
-          try {
-            // Keep items in (technically reverse) alphabetical order for SHOW_ITEMINFO instead of
-            // randomly changing places each frame
-            Collections.sort(Client.item_list, new ItemComparator());
-          } catch (Exception e) {
-            // Sometimes Java helpfully complains that the sorting method violates its general
-            // contract.
-            e.printStackTrace();
-          }
-        }
+        item_hitbox.clear();
+        item_text_loc.clear();
 
-        for (Iterator<Item> iterator = Client.item_list.iterator(); iterator.hasNext(); ) {
-          Item item = iterator.next(); // TODO: Remove unnecessary allocations
-
-          if (Settings.SHOW_HITBOX.get(Settings.currentProfile)) {
-            boolean show = true;
-            for (Iterator<Rectangle> boxIterator = item_hitbox.iterator();
-                boxIterator.hasNext(); ) {
-              Rectangle rect = boxIterator.next(); // TODO: Remove unnecessary allocations
-              if (rect.x == item.x
-                  && rect.y == item.y
-                  && rect.width == item.width
-                  && rect.height == item.height) {
-                show = false;
-                break;
-              }
-            }
+        // Keep items in (technically reverse) alphabetical order for SHOW_ITEMINFO instead of
+        // randomly changing places each frame. Don't sort if we aren't displaying any item names
+        // anyway.
+        boolean showItemOverlay = settings.SHOW_ITEM_GROUND_OVERLAY;
+        int itemCount = sortItems(Client.item_list, showItemOverlay);
+
+        for (int i = 0; i < itemCount; i++) {
+          Item item = Client.item_list.get(getSortedItemIndex(i));
 
-            if (show) {
+          if (settings.SHOW_HITBOX) {
+            // Only draw the first of several hitboxes in the same place
+            if (item_hitbox.add(item.x, item.y, item.width, item.height)) {
               setAlpha(g2, 0.3f);
               g2.setColor(color_prayer);
               g2.fillRect(item.x, item.y, item.width, item.height);
               g2.setColor(Color.BLACK);
               g2.drawRect(item.x, item.y, item.width, item.height);
               setAlpha(g2, 1.0f);
-              item_hitbox.add(new Rectangle(item.x, item.y, item.width, item.height));
             }
           }
 
-          if (Settings.SHOW_ITEM_GROUND_OVERLAY.get(Settings.currentProfile)) {
-            int x = item.x + (item.width / 2);
-            int y = item.y - 20;
-            int freq = Collections.frequency(Client.item_list, item);
+          if (showItemOverlay) {
+            // Equal items are next to each other after sorting, so only the first of each run is
+            // labeled, with the length of the run
+            if (i > 0 && item.equals(Client.item_list.get(getSortedItemIndex(i - 1)))) continue;
+            int freq = 1;
+            while (i + freq < itemCount
+                && item.equals(Client.item_list.get(getSortedItemIndex(i + freq)))) freq++;
 
             // Check if item is in blocked list
-            boolean itemIsBlocked =
-                stringIsWithinList(item.getName(), Settings.BLOCKED_ITEMS.get("custom"));
-
-            // We've sorted item list in such a way that it is possible to not draw the ITEMINFO
-            // unless it's the first time we've tried to for this itemid at that location
-            // by just using last_item.
-            // last_item == null necessary in case only one item on screen is being rendered. slight
-            // speed increase from freq == 1 if compiler can stop early in conditional.
-            if ((freq == 1 || !item.equals(last_item) || last_item == null) && !itemIsBlocked) {
-              for (Iterator<Point> locIterator = item_text_loc.iterator();
-                  locIterator.hasNext(); ) {
-                Point loc = locIterator.next(); // TODO: Remove unnecessary allocations
-                if (loc.x == x && loc.y == y) {
-                  y -= 12;
-                }
-              }
-              item_text_loc.add(new Point(x, y));
+            if (stringIsWithinList(item.getName(), Settings.BLOCKED_ITEMS.get("custom"))) continue;
 
-              Color itemColor = color_item;
-              String itemText = item.getName() + ((freq == 1) ? "" : " (" + freq + ")");
+            int x = item.x + (item.width / 2);
+            int y = item.y - 20;
+            // Stack names that would be drawn on top of each other
+            while (!item_text_loc.add(x, y)) y -= 12;
 
-              // Check if item is in highlighted list
-              if (stringIsWithinList(item.getName(), Settings.HIGHLIGHTED_ITEMS.get("custom"))) {
-                itemColor = color_item_highlighted;
-                drawHighlighImage(g2, itemText, x, y);
-              }
+            Color itemColor = color_item;
+            String itemText = item.getName() + ((freq == 1) ? "" : " (" + freq + ")");
 
-              // Note that it is not possible to show how many of a
-              //   stackable item are in a stack on the ground.
-              // That information is not transmitted in RSC, just that the item ID is there.
-              drawShadowText(g2, itemText, x, y, itemColor, true);
+            // Check if item is in highlighted list
+            if (stringIsWithinList(item.getName(), Settings.HIGHLIGHTED_ITEMS.get("custom"))) {
+              itemColor = color_item_highlighted;
+              drawHighlighImage(g2, itemText, x, y);
             }
-            last_item = item; // Done with item this loop, can save it as last_item
+
+            // Note that it is not possible to show how many of a
+            //   stackable item are in a stack on the ground.
+            // That information is not transmitted in RSC, just that the item ID is there.
+            drawShadowText(g2, itemText, x, y, itemColor, true);
           }
         }
       }
 
-      // Clear item list for next frame
-      Client.item_list_retained = new ArrayList<Item>(Client.item_list);
-      Client.item_list.clear();
-      last_item = null;
+      // Keep this frame's items for mouse over lookups and recycle the previous ones
+      Client.retainItems();
 
-      if (!Client.show_sleeping && Settings.SHOW_INVCOUNT.get(Settings.currentProfile))
+      if (!Client.show_sleeping && settings.SHOW_INVCOUNT)
         drawShadowText(
             g2,
             Client.inventory_count + "/" + Client.max_inventory,
@@ -516,17 +481,17 @@ public class Renderer {
       }
 
       // Low HP notification
-      if (percentHP <= Settings.LOW_HP_NOTIF_VALUE.get(Settings.currentProfile)
+      if (percentHP <= settings.LOW_HP_NOTIF_VALUE
           && lastPercentHP > percentHP
-          && lastPercentHP > Settings.LOW_HP_NOTIF_VALUE.get(Settings.currentProfile))
+          && lastPercentHP > settings.LOW_HP_NOTIF_VALUE)
         NotificationsHandler.notify(
             NotifType.LOWHP, "Low HP Notification", null, "Your HP is at " + percentHP + "%");
       lastPercentHP = percentHP;
 
       // High fatigue notification
-      if (Client.getFatigue() >= Settings.FATIGUE_NOTIF_VALUE.get(Settings.currentProfile)
+      if (Client.getFatigue() >= settings.FATIGUE_NOTIF_VALUE
           && lastFatigue < Client.getFatigue()
-          && lastFatigue < Settings.FATIGUE_NOTIF_VALUE.get(Settings.currentProfile))
+          && lastFatigue < settings.FATIGUE_NOTIF_VALUE)
         NotificationsHandler.notify(
             NotifType.FATIGUE,
             "High Fatigue Notification",
@@ -542,11 +507,11 @@ public class Renderer {
       if (combat_menu_shown) y = 132;
 
       // NPC Post-processing for ui
-      if (Settings.SHOW_COMBAT_INFO.get(Settings.currentProfile) && !Client.isInterfaceOpen()) {
+      if (settings.SHOW_COMBAT_INFO && !Client.isInterfaceOpen()) {
         int bar_count = 0;
-        for (Iterator<NPC> iterator = Client.npc_list.iterator(); iterator.hasNext(); ) {
-          NPC npc = iterator.next();
-          if (npc != null && Client.isInCombatWithNPC(npc)) {
+        for (int i = 0; i < Client.npc_list.size(); i++) {
+          NPC npc = Client.npc_list.get(i);
+          if (Client.isInCombatWithNPC(npc)) {
             drawNPCBar(g2, 7, y, npc);
             // Increment y by npc bar height, so we can have multiple bars
             // NOTE: We should never (?) have more than one npc health bar, so multiple bars
@@ -560,7 +525,7 @@ public class Renderer {
         }
       }
 
-      if (Settings.SHOW_HP_PRAYER_FATIGUE_OVERLAY.get(Settings.currentProfile)) {
+      if (settings.SHOW_HP_PRAYER_FATIGUE_OVERLAY) {
         if (!roomInHbarForHPPrayerFatigueOverlay()) {
           if (!Client.isInterfaceOpen() && !Client.show_questionmenu) {
             setAlpha(g2, alphaHP);
@@ -631,7 +596,7 @@ public class Renderer {
       // Draw last menu action
       if (!Client.isInterfaceOpen()
           && !Client.show_questionmenu
-          && Settings.SHOW_LAST_MENU_ACTION.get(Settings.currentProfile)) {
+          && settings.SHOW_LAST_MENU_ACTION) {
         if (time <= Client.menu_timer) {
           drawShadowText(g2, Client.lastAction, x, y, color_text, false);
           y += 14;
@@ -640,7 +605,7 @@ public class Renderer {
 
       // Draw under combat style info
       // buffs, debuffs and cooldowns
-      if (!Client.isInterfaceOpen() && Settings.SHOW_BUFFS.get(Settings.currentProfile)) {
+      if (!Client.isInterfaceOpen() && settings.SHOW_BUFFS) {
         if (time <= Client.magic_timer) {
           float timer = (float) Math.ceil((Client.magic_timer - time) / 1000.0);
           drawShadowText(g2, "Magic Timer: " + (int) timer, x, y, color_text, false);
@@ -712,9 +677,8 @@ public class Renderer {
         }
       }
 
-      // Clear npc list for the next frame
-      Client.npc_list_retained = new ArrayList<NPC>(Client.npc_list);
-      Client.npc_list.clear();
+      // Keep this frame's npcs for mouse over lookups and recycle the previous ones
+      Client.retainNPCs();
 
       // render XP bar/drop
       Client.processFatigueXPDrops();
@@ -800,7 +764,7 @@ public class Renderer {
         }
       }
 
-      if (Settings.WIKI_LOOKUP_ON_HBAR.get(Settings.currentProfile)) {
+      if (settings.WIKI_LOOKUP_ON_HBAR) {
         int xCoord = Client.wikiLookupReplacesReportAbuse() ? 410 : 410 + 90 + 12;
         int yCoord = height - 16;
         // Handle replay play selection click
@@ -864,11 +828,10 @@ public class Renderer {
 
       // Interface rsc+ buttons
       // Map Button
-      if (Settings.RSCPLUS_BUTTONS_FUNCTIONAL.get(Settings.currentProfile)
-          || Settings.SHOW_RSCPLUS_BUTTONS.get(Settings.currentProfile)) {
+      if (settings.RSCPLUS_BUTTONS_FUNCTIONAL || settings.SHOW_RSCPLUS_BUTTONS) {
         Rectangle mapButtonBounds = new Rectangle(width - 68, 3, 32, 32);
         if ((!show_bank_last || mapButtonBounds.x >= 460) && !Client.show_sleeping) {
-          if (Settings.SHOW_RSCPLUS_BUTTONS.get(Settings.currentProfile)) {
+          if (settings.SHOW_RSCPLUS_BUTTONS) {
             g2.setColor(Renderer.color_text);
             g2.drawLine(
                 mapButtonBounds.x + 4,
@@ -896,7 +859,7 @@ public class Renderer {
         // Settings
         mapButtonBounds = new Rectangle(width - 200, 3, 32, 32);
         if ((!show_bank_last || mapButtonBounds.x >= 460) && !Client.show_sleeping) {
-          if (Settings.SHOW_RSCPLUS_BUTTONS.get(Settings.currentProfile)) {
+          if (settings.SHOW_RSCPLUS_BUTTONS) {
             g2.setColor(Renderer.color_text);
             g2.drawLine(
                 mapButtonBounds.x + 4,
@@ -921,10 +884,10 @@ public class Renderer {
         }
 
         // wiki button on magic book (Good for in-replay but not good if spam casting magic)
-        if (Settings.WIKI_LOOKUP_ON_MAGIC_BOOK.get(Settings.currentProfile)) {
+        if (settings.WIKI_LOOKUP_ON_MAGIC_BOOK) {
           mapButtonBounds = new Rectangle(width - 68 - 66, 3, 32, 32);
           if ((!show_bank_last || mapButtonBounds.x >= 460) && !Client.show_sleeping) {
-            if (Settings.SHOW_RSCPLUS_BUTTONS.get(Settings.currentProfile)) {
+            if (settings.SHOW_RSCPLUS_BUTTONS) {
               g2.setColor(Renderer.color_text);
               g2.drawLine(
                   mapButtonBounds.x + 4,
@@ -954,11 +917,10 @@ public class Renderer {
         }
 
         // Hiscore lookup / Motivational Quotes
-        if (Settings.MOTIVATIONAL_QUOTES_BUTTON.get(Settings.currentProfile)
-            || Settings.HISCORES_LOOKUP_BUTTON.get(Settings.currentProfile)) {
+        if (settings.MOTIVATIONAL_QUOTES_BUTTON || settings.HISCORES_LOOKUP_BUTTON) {
           mapButtonBounds = new Rectangle(width - 68 - 99, 3, 32, 32);
           if ((!show_bank_last || mapButtonBounds.x >= 460) && !Client.show_sleeping) {
-            if (Settings.SHOW_RSCPLUS_BUTTONS.get(Settings.currentProfile)) {
+            if (settings.SHOW_RSCPLUS_BUTTONS) {
               g2.setColor(Renderer.color_text);
               g2.drawLine(
                   mapButtonBounds.x + 4,
@@ -979,14 +941,12 @@ public class Renderer {
                 && MouseHandler.y <= mapButtonBounds.y + mapButtonBounds.height
                 && MouseHandler.mouseClicked) {
               if (MouseHandler.rightClick) {
-                if (Settings.MOTIVATIONAL_QUOTES_BUTTON.get(Settings.currentProfile)) {
+                if (settings.MOTIVATIONAL_QUOTES_BUTTON) {
                   Client.displayMotivationalQuote();
                 }
               } else {
-                if (Settings.HISCORES_LOOKUP_BUTTON.get(Settings.currentProfile)) {
-                  if (Settings.WORLD_HISCORES_URL
-                      .get(Settings.WORLD.get(Settings.currentProfile))
-                      .equals("")) {
+                if (settings.HISCORES_LOOKUP_BUTTON) {
+                  if (Settings.WORLD_HISCORES_URL.get(settings.WORLD).equals("")) {
                     Client.displayMessage(
                         "@lre@No hiscores URL defined for this world.", Client.CHAT_NONE);
                   } else {
@@ -994,7 +954,7 @@ public class Renderer {
                         "Click on a player to look them up on the hiscores...", Client.CHAT_NONE);
                     HiscoresURL.nextClickIsLookup = true;
                   }
-                } else if (Settings.MOTIVATIONAL_QUOTES_BUTTON.get(Settings.currentProfile)) {
+                } else if (settings.MOTIVATIONAL_QUOTES_BUTTON) {
                   // any mouse button can display a motivational quote if Hiscores lookup is
                   // disabled
                   Client.displayMotivationalQuote();
@@ -1005,10 +965,10 @@ public class Renderer {
         }
 
         // Toggle XP bar
-        if (Settings.TOGGLE_XP_BAR_ON_STATS_BUTTON.get(Settings.currentProfile)) {
+        if (settings.TOGGLE_XP_BAR_ON_STATS_BUTTON) {
           mapButtonBounds = new Rectangle(width - 68 - 33, 3, 32, 32);
           if ((!show_bank_last || mapButtonBounds.x >= 460) && !Client.show_sleeping) {
-            if (Settings.SHOW_RSCPLUS_BUTTONS.get(Settings.currentProfile)) {
+            if (settings.SHOW_RSCPLUS_BUTTONS) {
               g2.setColor(Renderer.color_text);
               g2.drawLine(
                   mapButtonBounds.x + 4,
@@ -1072,7 +1032,7 @@ public class Renderer {
         }
       }
 
-      if (Settings.DEBUG.get(Settings.currentProfile)) {
+      if (settings.DEBUG) {
         x = 32;
         y = 32;
 
@@ -1270,8 +1230,7 @@ public class Renderer {
       if (Replay.isPlaying && Replay.fpsPlayMultiplier > 1.0)
         threshold = 35 * 3; // this is to prevent blinking during fastforward
 
-      if (Settings.LAG_INDICATOR.get(Settings.currentProfile)
-          && Replay.getServerLag() >= threshold) {
+      if (settings.LAG_INDICATOR && Replay.getServerLag() >= threshold) {
         x = width - 80;
         y = height - 80;
         setAlpha(g2, alpha_time);
@@ -1290,16 +1249,14 @@ public class Renderer {
             true);
         setAlpha(g2, 1.0f);
       }
-      if (!(Replay.isPlaying && !Settings.TRIGGER_ALERTS_REPLAY.get(Settings.currentProfile))) {
+      if (!(Replay.isPlaying && !settings.TRIGGER_ALERTS_REPLAY)) {
         g2.setFont(font_big);
-        if (Settings.FATIGUE_ALERT.get(Settings.currentProfile)
-            && Client.getFatigue() >= 98
-            && !Client.isInterfaceOpen()) {
+        if (settings.FATIGUE_ALERT && Client.getFatigue() >= 98 && !Client.isInterfaceOpen()) {
           setAlpha(g2, alpha_time);
           drawShadowText(g2, "FATIGUED", width / 2, height / 2, color_low, true);
           setAlpha(g2, 1.0f);
         }
-        if (Settings.INVENTORY_FULL_ALERT.get(Settings.currentProfile)
+        if (settings.INVENTORY_FULL_ALERT
             && Client.inventory_count >= 30
             && !Client.isInterfaceOpen()) {
           setAlpha(g2, alpha_time);
@@ -1309,16 +1266,14 @@ public class Renderer {
         g2.setFont(font_main);
       }
 
-      if (Settings.SHOW_PLAYER_POSITION.get(Settings.currentProfile)) {
+      if (settings.SHOW_PLAYER_POSITION) {
         y = Renderer.height - 19;
         int offset = 0;
         if (Client.is_in_wild) offset += 70;
         if (Replay.isPlaying) {
-          if ((!screenshot && Settings.SHOW_SEEK_BAR.get(Settings.currentProfile))
-              || Settings.SHOW_RETRO_FPS.get(Settings.currentProfile)) y -= 12;
+          if ((!screenshot && settings.SHOW_SEEK_BAR) || settings.SHOW_RETRO_FPS) y -= 12;
         }
-        if ((!Replay.isPlaying || screenshot)
-            && Settings.SHOW_RETRO_FPS.get(Settings.currentProfile)) offset += 70;
+        if ((!Replay.isPlaying || screenshot) && settings.SHOW_RETRO_FPS) offset += 70;
         drawShadowText(
             g2,
             "Pos: " + Client.getCoords(),
@@ -1329,7 +1284,7 @@ public class Renderer {
       }
 
       // Mouseover hover handling
-      if (Settings.SHOW_MOUSE_TOOLTIP.get(Settings.currentProfile)
+      if (settings.SHOW_MOUSE_TOOLTIP
           && !Client.isInterfaceOpen()
           && !Client.show_questionmenu
           && Client.is_hover) {
@@ -1345,7 +1300,7 @@ public class Renderer {
         if (MouseText.extraOptions.length() == 0) extraBounds.height = 0;
 
         bounds.height += extraOptionsOffsetY;
-        if (Settings.SHOW_EXTENDED_TOOLTIP.get(Settings.currentProfile)) {
+        if (settings.SHOW_EXTENDED_TOOLTIP) {
           extraBounds.width += extraOptionsOffsetX;
           bounds.width = (bounds.width > extraBounds.width) ? bounds.width : extraBounds.width;
           bounds.height += extraBounds.height;
@@ -1354,7 +1309,7 @@ public class Renderer {
         if (y + bounds.height > Renderer.height) y -= (y + bounds.height) - (Renderer.height);
 
         // Draw the final outcome
-        if (Settings.SHOW_EXTENDED_TOOLTIP.get(Settings.currentProfile)) {
+        if (settings.SHOW_EXTENDED_TOOLTIP) {
           setAlpha(g2, 0.65f);
           g2.setColor(color_shadow);
           g2.fillRect(x - 4, y - 12, bounds.width + 8, bounds.height - 8);
@@ -1375,8 +1330,13 @@ public class Renderer {
         }
       }
     } else if (Client.state == Client.STATE_LOGIN) {
-      if (Settings.DEBUG.get(Settings.currentProfile))
-        drawShadowText(g2, "DEBUG MODE", 38, 8, color_text, true);
+      // The game has loaded everything it needs by the time the login screen is drawn
+      if (!class_report_logged) {
+        Launcher.getInstance().getClassLoader().logReport();
+        class_report_logged = true;
+      }
+
+      if (settings.DEBUG) drawShadowText(g2, "DEBUG MODE", 38, 8, color_text, true);
 
       // Draw world list
       drawShadowText(g2, "World (Click to change): ", 80, height - 8, color_text, true);
@@ -1384,7 +1344,7 @@ public class Renderer {
         Rectangle bounds = new Rectangle(134 + (i * 18), height - 12, 16, 12);
         Color color = color_text;
 
-        if (i == Settings.WORLD.get(Settings.currentProfile)) color = color_low;
+        if (i == settings.WORLD) color = color_low;
 
         setAlpha(g2, 0.5f);
         g2.setColor(color);
@@ -1449,10 +1409,10 @@ public class Renderer {
         }
 
         setAlpha(g2, 0.5f);
-        if (Settings.SPEEDRUNNER_MODE_ACTIVE.get(Settings.currentProfile)) {
+        if (settings.SPEEDRUNNER_MODE_ACTIVE) {
           g2.setColor(color_hp);
         } else {
-          if (replayOption == 1 || Settings.RECORD_AUTOMATICALLY.get(Settings.currentProfile)) {
+          if (replayOption == 1 || settings.RECORD_AUTOMATICALLY) {
             g2.setColor(color_low);
           } else {
             g2.setColor(color_text);
@@ -1472,7 +1432,7 @@ public class Renderer {
               recordButtonBounds.height);
         }
 
-        if (Settings.RECORD_AUTOMATICALLY.get(Settings.currentProfile)) {
+        if (settings.RECORD_AUTOMATICALLY) {
           g2.setColor(color_text);
           if (longForm) {
             g2.drawRect(
@@ -1491,14 +1451,14 @@ public class Renderer {
         setAlpha(g2, 1.0f);
         String recordButtonText = "";
         if (longForm) {
-          if (Settings.SPEEDRUNNER_MODE_ACTIVE.get(Settings.currentProfile)) {
+          if (settings.SPEEDRUNNER_MODE_ACTIVE) {
             recordButtonText = "speedy";
           } else {
             recordButtonText = "record";
           }
         } else {
           // smaller buttons, less room for text
-          if (Settings.SPEEDRUNNER_MODE_ACTIVE.get(Settings.currentProfile)) {
+          if (settings.SPEEDRUNNER_MODE_ACTIVE) {
             recordButtonText = "run";
           } else {
             recordButtonText = "rec";
@@ -1564,9 +1524,9 @@ public class Renderer {
           if (replayOption == 2) {
             replayOption = 0;
           } else {
+            // Playback starts once the first replays of the folder are found
             if (ReplayQueue.replayFileSelectAdd()) {
               Renderer.replayOption = 2;
-              ReplayQueue.nextReplay();
             } else {
               Renderer.replayOption = 0;
             }
@@ -1620,7 +1580,7 @@ public class Renderer {
     }
 
     if (Client.state == Client.STATE_GAME && Replay.isPlaying && !screenshot) {
-      if (Settings.SHOW_SEEK_BAR.get(Settings.currentProfile)) {
+      if (settings.SHOW_SEEK_BAR) {
         float percent = (float) Replay.timestamp / Replay.getReplayEnd();
 
         if (Replay.isSeeking) {
@@ -1726,7 +1686,7 @@ public class Renderer {
               2);
         }
         // draw & handle gui "video player" control buttons
-        if (extended && Settings.SHOW_PLAYER_CONTROLS.get(Settings.currentProfile)) {
+        if (extended && settings.SHOW_PLAYER_CONTROLS) {
           final int BUTTON_WIDTH = 30;
           final int BUTTON_HEIGHT = 11;
           final int BUTTON_OFFSET_X = 4; // how many pixels between each button horizontally
@@ -1967,7 +1927,7 @@ public class Renderer {
     }
 
     // Draw software cursor
-    if (screenshot || Settings.SOFTWARE_CURSOR.get(Settings.currentProfile)) {
+    if (screenshot || settings.SOFTWARE_CURSOR) {
       setAlpha(g2, 1.0f);
       g2.drawImage(image_cursor, MouseHandler.x, MouseHandler.y, null);
     }
@@ -1976,30 +1936,40 @@ public class Renderer {
 
     // Right now is a good time to take a screenshot if one is requested
     if (screenshot) {
-      try {
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH.mm.ss");
-        String fname =
-            Settings.Dir.SCREENSHOT + "/" + "Screenshot from " + format.format(new Date()) + ".png";
-        File screenshotFile = new File(fname);
-        ImageIO.write(game_image, "png", screenshotFile);
-        if (!quietScreenshot)
-          Client.displayMessage(
-              "@cya@Screenshot saved to '" + screenshotFile.toString() + "'", Client.CHAT_NONE);
-      } catch (Exception e) {
-      }
+      SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH.mm.ss");
+      String fname =
+          Settings.Dir.SCREENSHOT + "/" + "Screenshot from " + format.format(new Date()) + ".png";
+      File screenshotFile = new File(fname);
+      FrameCapture.capture(game_image, screenshotFile, FrameCapture.Policy.BLOCK);
+      if (!quietScreenshot)
+        Client.displayMessage(
+            "@cya@Screenshot saved to '" + screenshotFile.toString() + "'", Client.CHAT_NONE);
       screenshot = false;
     }
 
     if (videorecord > 0) {
-      String fname = Settings.Dir.VIDEO + "/" + "video" + (videolength - videorecord) + ".png";
-      try {
-        File screenshotFile = new File(fname);
-        ImageIO.write(game_image, "png", screenshotFile);
-      } catch (Exception e) {
+      int frame = videolength - videorecord;
+      String fname;
+      if (videoRaw != null) {
+        fname = Settings.Dir.VIDEO + "/video.raw";
+        FrameCapture.captureRaw(game_image, videoRaw, frame, videoPolicy);
+      } else {
+        fname = Settings.Dir.VIDEO + "/" + "video" + frame + ".png";
+        FrameCapture.capture(game_image, new File(fname), videoPolicy);
       }
       videorecord--;
       if (videorecord <= 0) {
-        Client.displayMessage("@cya@Many screenshots saved to '" + fname + "'", Client.CHAT_NONE);
+        if (videoRaw != null) {
+          videoRaw.finish();
+          videoRaw = null;
+        }
+        int dropped = FrameCapture.takeDroppedCount();
+        Client.displayMessage(
+            "@cya@Many screenshots saved to '"
+                + fname
+                + "'"
+                + (dropped > 0 ? ", " + dropped + " frames dropped" : ""),
+            Client.CHAT_NONE);
       }
     }
 
@@ -2021,32 +1991,17 @@ public class Renderer {
                 + "zoom"
                 + Camera.zoom
                 + ".png";
-        try {
-          File screenshotFile = new File(fname);
-          BufferedImage writtenImage;
-          try {
-            if (screenshot_scenery_scenery_id <= 1) {
-              // error in replay makes it inconsistent at beginning, just crop more off bottom to
-              // compensate
-              writtenImage =
-                  ImageManip.prepareSceneryImage(
-                      game_image.getSubimage(
-                          275, 0, game_image.getWidth() - 475, game_image.getHeight() - 227));
-            } else {
-              writtenImage =
-                  ImageManip.prepareSceneryImage(
-                      game_image.getSubimage(
-                          275, 0, game_image.getWidth() - 475, game_image.getHeight() - 27));
-            }
-          } catch (RasterFormatException ex) {
-            writtenImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
-            writtenImage.getGraphics().setColor(new Color(0, 0, 0, 0));
-            writtenImage.getGraphics().fillRect(0, 0, 1, 1);
-          }
-          ImageIO.write(writtenImage, "png", screenshotFile);
-        } catch (Exception e) {
-          e.printStackTrace();
-        }
+        // error in replay makes it inconsistent at beginning, just crop more off bottom to
+        // compensate
+        int cropBottom = screenshot_scenery_scenery_id <= 1 ? 227 : 27;
+        FrameCapture.captureScenery(
+            game_image,
+            275,
+            0,
+            game_image.getWidth() - 475,
+            game_image.getHeight() - cropBottom,
+            new File(fname),
+            FrameCapture.Policy.BLOCK);
 
         screenshot_scenery_angle += 8; // set angle for next screenshot
         Camera.rotation = screenshot_scenery_angle;
@@ -2059,8 +2014,8 @@ public class Renderer {
 
     frames++;
 
-    if (Settings.FPS_LIMIT_ENABLED.get(Settings.currentProfile)) {
-      int targetFPS = Settings.FPS_LIMIT.get(Settings.currentProfile);
+    if (settings.FPS_LIMIT_ENABLED) {
+      int targetFPS = settings.FPS_LIMIT;
 
       // pretend that interlacing helps fps while frame limiting
       if (Client.getInterlace()) {
@@ -2133,7 +2088,7 @@ public class Renderer {
     // handle resize
     if (width != new_size.width || height != new_size.height) handle_resize();
     if (Settings.fovUpdateRequired) {
-      Camera.setFoV(Settings.FOV.get(Settings.currentProfile));
+      Camera.setFoV(settings.FOV);
       Settings.fovUpdateRequired = false;
     }
 
@@ -2688,32 +2643,70 @@ public class Renderer {
     Camera.rotation = screenshot_scenery_angle;
     Camera.delta_rotation = (float) Camera.rotation;
   }
-}
 
-class ItemComparator implements Comparator<Item> {
-
-  @Override
-  public int compare(Item a, Item b) {
-    // this is reverse alphabetical order b/c we display them/in reverse order (y-=12 ea item)
-    int offset = a.getName().compareToIgnoreCase(b.getName()) * -1;
-    if (offset > 0) { // item a is alphabetically before item b
-      offset = 10;
-    } else if (offset < 0) { // item b is alphabetically before item a
-      offset = -10;
-      // items have the same name we would like to group items that are on the same tile as well,
-      // not just having
-      // the same name, so that we can use "last_item" in a useful way
-    } else {
-      if (a.x == b.x && a.y == b.y) {
-        offset = 0; // name is the same and so is location, items are considered equal
-      } else {
-        if (a.x < b.x) {
-          offset = -5;
-        } else {
-          offset = 5;
-        }
-      }
+  /**
+   * Sorts the items in (technically reverse) alphabetical order, then by position, so that equal
+   * items are next to each other. Use {@link #getSortedItemIndex} to walk the result.
+   *
+   * <p>The name order of every item id is computed once, so each frame only sorts primitive keys.
+   *
+   * @param items the items drawn this frame
+   * @param sort false to keep the items in the order they were drawn
+   * @return the number of items
+   */
+  private static int sortItems(List<Item> items, boolean sort) {
+    int count = items.size();
+    int[] ranks = getItemRanks();
+    // Keys hold 16 bits for the list index, sort unsorted beyond that
+    item_order_sorted = sort && ranks != null && count <= 0x10000;
+    if (!item_order_sorted) return count;
+
+    if (item_order.length < count) item_order = new long[Math.max(count, item_order.length * 2)];
+    for (int i = 0; i < count; i++) {
+      Item item = items.get(i);
+      int rank = item.id >= 0 && item.id < ranks.length ? ranks[item.id] : 0xFFFF;
+      item_order[i] =
+          ((long) (rank & 0xFFFF) << 48)
+              | ((long) ((item.x + 0x8000) & 0xFFFF) << 32)
+              | ((long) ((item.y + 0x8000) & 0xFFFF) << 16)
+              | i;
     }
-    return offset;
+    Arrays.sort(item_order, 0, count);
+    return count;
+  }
+
+  private static int getSortedItemIndex(int i) {
+    return item_order_sorted ? (int) (item_order[i] & 0xFFFF) : i;
+  }
+
+  private static int[] getItemRanks() {
+    String[] names = Item.item_name;
+    if (names == null) return null;
+    if (names == item_rank_names) return item_rank;
+
+    final String[] sortNames = new String[names.length];
+    Integer[] ids = new Integer[names.length];
+    for (int i = 0; i < names.length; i++) {
+      sortNames[i] = names[i] != null ? names[i] : "";
+      ids[i] = i;
+    }
+    Arrays.sort(
+        ids,
+        new Comparator<Integer>() {
+          @Override
+          public int compare(Integer a, Integer b) {
+            // this is reverse alphabetical order b/c we display them/in reverse order (y-=12 ea
+            // item)
+            int offset = sortNames[b].compareToIgnoreCase(sortNames[a]);
+            if (offset != 0) return offset;
+            return a.compareTo(b);
+          }
+        });
+
+    int[] ranks = new int[names.length];
+    for (int i = 0; i < ids.length; i++) ranks[ids[i]] = Math.min(i, 0xFFFE);
+    item_rank = ranks;
+    item_rank_names = names;
+    return ranks;
   }
 }
@@ -18,7 +18,6 @@
  */
 package Game;
 
-import Client.FlushableGZIPOutputStream;
 import Client.Launcher;
 import Client.Logger;
 import Client.QueueWindow;
@@ -58,6 +57,7 @@ public class Replay {
   static DataOutputStream metadata = null;
 
   static DataInputStream play_keys = null;
+  static int play_keys_read = 0;
   static DataInputStream play_keyboard = null;
   static DataInputStream play_mouse = null;
 
@@ -121,10 +121,16 @@ public class Replay {
 
   public static int enc_opcode;
   public static int retained_timestamp;
-  public static byte[] retained_bytes = null;
-  public static int retained_off;
+  // Reused for every retained packet, only the bytes read are copied in starting at retained_off
+  public static byte[] retained_bytes = new byte[5000];
+  public static int retained_off = 0;
   public static int retained_bread;
 
+  // Reused record buffers, input is written from the client thread and output from the thread
+  // writing the client's socket
+  private static ByteBuffer input_record = ByteBuffer.allocate(5008);
+  private static ByteBuffer output_record = ByteBuffer.allocate(5008);
+
   public static byte[] ipAddressMetadata;
 
   public static int timestamp_lag = 0;
@@ -228,6 +234,7 @@ public class Replay {
           new DataInputStream(
               new BufferedInputStream(
                   new FileInputStream(new File(replayDirectory + "/keys.bin"))));
+      play_keys_read = 0;
       if (Settings.RECORD_KB_MOUSE.get(Settings.currentProfile)) {
         File file = new File(replayDirectory + "/keyboard.bin.gz");
         if (file.exists()) {
@@ -287,6 +294,15 @@ public class Replay {
   }
 
   public static void restartReplayPlayback() {
+    restartReplayPlayback(null);
+  }
+
+  /**
+   * Restarts playback from a keyframe, or from the beginning of the replay if keyframe is null
+   *
+   * @param keyframe the keyframe to resume from
+   */
+  public static void restartReplayPlayback(ReplaySeekIndex.Keyframe keyframe) {
     if (timestamp == 0 || isRestarting || play_keys == null) return;
 
     try {
@@ -296,6 +312,15 @@ public class Replay {
           new DataInputStream(
               new BufferedInputStream(
                   new FileInputStream(new File(replayDirectory + "/keys.bin"))));
+      play_keys_read = 0;
+
+      // Skip the keys used by connections before the keyframe
+      if (keyframe != null) {
+        play_keys.skipBytes(keyframe.keyIndex * 4);
+        play_keys_read = keyframe.keyIndex;
+      }
+
+      replayServer.restartKeyframe = keyframe;
       replayServer.restart = true;
     } catch (Exception e) {
       e.printStackTrace();
@@ -366,14 +391,10 @@ public class Replay {
 
       output =
           new DataOutputStream(
-              new BufferedOutputStream(
-                  new FlushableGZIPOutputStream(
-                      new FileOutputStream(new File(recordingDirectory + "/out.bin.gz")))));
+              new ReplayWriter(new File(recordingDirectory + "/out.bin.gz")));
       input =
           new DataOutputStream(
-              new BufferedOutputStream(
-                  new FlushableGZIPOutputStream(
-                      new FileOutputStream(new File(recordingDirectory + "/in.bin.gz")))));
+              new ReplayWriter(new File(recordingDirectory + "/in.bin.gz")));
       keys =
           new DataOutputStream(
               new BufferedOutputStream(
@@ -381,14 +402,10 @@ public class Replay {
       if (Settings.RECORD_KB_MOUSE.get(Settings.currentProfile)) {
         keyboard =
             new DataOutputStream(
-                new BufferedOutputStream(
-                    new FlushableGZIPOutputStream(
-                        new FileOutputStream(new File(recordingDirectory + "/keyboard.bin.gz")))));
+                new ReplayWriter(new File(recordingDirectory + "/keyboard.bin.gz")));
         mouse =
             new DataOutputStream(
-                new BufferedOutputStream(
-                    new FlushableGZIPOutputStream(
-                        new FileOutputStream(new File(recordingDirectory + "/mouse.bin.gz")))));
+                new ReplayWriter(new File(recordingDirectory + "/mouse.bin.gz")));
         started_record_kb_mouse =
             true; // need this to know whether or not to close the file if the user changes settings
         // mid-recording
@@ -415,7 +432,6 @@ public class Replay {
     }
 
     retained_timestamp = TIMESTAMP_EOF;
-    retained_bytes = null;
     isRecording = true;
   }
 
@@ -425,14 +441,11 @@ public class Replay {
     try {
       // since we are working with packet retention, last packet on memory has not been written,
       // write it here
-      if (retained_timestamp != TIMESTAMP_EOF && retained_bytes != null) {
+      if (retained_timestamp != TIMESTAMP_EOF) {
         try {
-          ByteBuffer buffer = ByteBuffer.allocate(retained_bread + 8);
-          buffer.putInt(retained_timestamp);
-          buffer.putInt(retained_bread);
-          buffer.put(retained_bytes, retained_off, retained_bread);
-          input_checksum.update(buffer.array());
-          input.write(buffer.array());
+          input_record = startRecord(input_record, retained_timestamp, retained_bread);
+          input_record.put(retained_bytes, retained_off, retained_bread);
+          writeRecord(input, input_checksum, input_record);
           input.flush();
         } catch (Exception e) {
           e.printStackTrace();
@@ -441,12 +454,10 @@ public class Replay {
       }
 
       // Write EOF values
-      ByteBuffer buffer = ByteBuffer.allocate(4);
-      buffer.putInt(TIMESTAMP_EOF);
-      input_checksum.update(buffer.array());
-      input.write(buffer.array());
-      output_checksum.update(buffer.array());
-      output.write(buffer.array());
+      input_record.clear();
+      input_record.putInt(TIMESTAMP_EOF);
+      writeRecord(input, input_checksum, input_record);
+      writeRecord(output, output_checksum, input_record);
 
       // Write Checksum
       input.write(input_checksum.digest());
@@ -486,8 +497,8 @@ public class Replay {
       input.close();
       keys.close();
       if (started_record_kb_mouse) {
-        keyboard.write(buffer.array());
-        mouse.write(buffer.array());
+        keyboard.writeInt(TIMESTAMP_EOF);
+        mouse.writeInt(TIMESTAMP_EOF);
         keyboard.close();
         mouse.close();
       }
@@ -502,7 +513,6 @@ public class Replay {
       input_checksum = null;
 
       retained_timestamp = TIMESTAMP_EOF;
-      retained_bytes = null;
 
       Logger.Info("Replay recording stopped");
     } catch (Exception e) {
@@ -784,39 +794,56 @@ public class Replay {
     return false;
   }
 
-  public static void checkAndGenerateMetadata(String replayFolder) {
-    if (new File(replayFolder + "/metadata.bin").exists()) {
-      return;
+  /**
+   * Generates metadata.bin for replays recorded before it existed
+   *
+   * <p>The file is written next to the replay and moved into place once complete, so an interrupted
+   * write never leaves a truncated metadata.bin behind.
+   *
+   * @param replayFolder the replay folder
+   * @return true if metadata.bin was generated
+   */
+  public static boolean checkAndGenerateMetadata(String replayFolder) {
+    File metadataFile = new File(replayFolder + "/metadata.bin");
+    if (metadataFile.exists()) {
+      return false;
     }
     Logger.Info("Generating metadata for " + replayFolder);
     // generate new metadata
     int replayLength = Util.getReplayEnding(new File(replayFolder + "/in.bin.gz"));
     long dateModified = new File(replayFolder + "/keys.bin").lastModified();
 
+    File tempFile = null;
     try {
+      tempFile = File.createTempFile("metadata", ".tmp", new File(replayFolder));
       DataOutputStream metadata =
-          new DataOutputStream(
-              new BufferedOutputStream(
-                  new FileOutputStream(new File(replayFolder + "/metadata.bin"))));
-      metadata.writeInt(replayLength);
-      metadata.writeLong(dateModified);
-      // TODO: implement attempting to find the IP address here, from rscminus
-      if (ipAddressMetadata.length == 4) { // ipv4, need padding
-        metadata.writeInt(0);
-        metadata.writeInt(0);
-        metadata.writeInt(0xFFFF);
-      }
-      for (int i = 0; i < ipAddressMetadata.length; i++) {
-        metadata.writeByte(ipAddressMetadata[i]);
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      try {
+        metadata.writeInt(replayLength);
+        metadata.writeLong(dateModified);
+        // TODO: implement attempting to find the IP address here, from rscminus
+        if (ipAddressMetadata.length == 4) { // ipv4, need padding
+          metadata.writeInt(0);
+          metadata.writeInt(0);
+          metadata.writeInt(0xFFFF);
+        }
+        for (int i = 0; i < ipAddressMetadata.length; i++) {
+          metadata.writeByte(ipAddressMetadata[i]);
+        }
+        metadata.writeByte(0); // conversion settings, none used in this case
+        metadata.writeInt(
+            0); // "User settings", 1st bit is F2P or Members. Since metadata.bin doesn't exist,
+        // probably members
+        metadata.flush();
+      } finally {
+        metadata.close();
       }
-      metadata.writeByte(0); // conversion settings, none used in this case
-      metadata.writeInt(
-          0); // "User settings", 1st bit is F2P or Members. Since metadata.bin doesn't exist,
-      // probably members
-      metadata.flush();
-      metadata.close();
+      Util.replaceFile(tempFile, metadataFile);
+      return true;
     } catch (IOException e) {
+      if (tempFile != null) tempFile.delete();
       Logger.Error("Couldn't write metadata.bin!");
+      return false;
     }
   }
 
@@ -1052,7 +1079,6 @@ public class Replay {
       keyboard.writeChar(keychar);
       keyboard.writeInt(keycode);
       keyboard.writeInt(modifier);
-      keyboard.flush();
     } catch (Exception e) {
       e.printStackTrace();
       shutdown_error();
@@ -1084,7 +1110,6 @@ public class Replay {
       mouse.writeInt(scrollAmount);
       mouse.writeBoolean(popupTrigger);
       mouse.writeInt(button);
-      mouse.flush();
     } catch (Exception e) {
       e.printStackTrace();
       shutdown_error();
@@ -1092,7 +1117,13 @@ public class Replay {
   }
 
   public static void dumpRawInputStream(byte[] b, int n, int n2, int n5, int bytesread) {
-    Client.lastIncomingBytes = b.clone();
+    // Only the bytes just read are copied, the rest of the packet was copied by earlier reads
+    int off = n2 + n5;
+    if (bytesread > 0) {
+      if (Client.lastIncomingBytes == null || Client.lastIncomingBytes.length != b.length)
+        Client.lastIncomingBytes = new byte[b.length];
+      System.arraycopy(b, off, Client.lastIncomingBytes, off, bytesread);
+    }
 
     // Save timestamp of last time we saw data from the server
     if (bytesread > 0) {
@@ -1104,7 +1135,6 @@ public class Replay {
 
     if (input == null) return;
 
-    int off = n2 + n5;
     // when packet 182 is received retained_timestamp should be TIMESTAMP_EOF
     // to indicate not to dump previous packet
     if (retained_timestamp != TIMESTAMP_EOF) {
@@ -1112,40 +1142,32 @@ public class Replay {
       try {
         // Handle disconnection
         if (timestamp_disconnect != TIMESTAMP_EOF && retained_timestamp >= timestamp_disconnect) {
-          ByteBuffer buffer = ByteBuffer.allocate(8);
-          buffer.putInt(timestamp_disconnect);
-          buffer.putInt(-1);
-          input_checksum.update(buffer.array());
-          input.write(buffer.array());
-          input.flush();
+          input_record = startRecord(input_record, timestamp_disconnect, -1);
+          writeRecord(input, input_checksum, input_record);
           timestamp_disconnect = TIMESTAMP_EOF;
         }
 
-        ByteBuffer buffer = ByteBuffer.allocate(retained_bread + 8);
-        buffer.putInt(retained_timestamp);
-        buffer.putInt(retained_bread);
-        buffer.put(retained_bytes, retained_off, retained_bread);
-        input_checksum.update(buffer.array());
-        input.write(buffer.array());
+        input_record = startRecord(input_record, retained_timestamp, retained_bread);
+        input_record.put(retained_bytes, retained_off, retained_bread);
+        writeRecord(input, input_checksum, input_record);
 
         /* Debug viewing entire input stream
         System.out.print("Writing Input Stream: ");
-        for (byte h : buffer.array()) {
-            System.out.print(String.format("%d ",  Byte.toUnsignedInt(h)));
+        for (int i = 0; i < input_record.position(); i++) {
+            System.out.print(String.format("%d ",  Byte.toUnsignedInt(input_record.get(i))));
         }
         System.out.println();
         */
-
-        input.flush();
       } catch (Exception e) {
         e.printStackTrace();
         shutdown_error();
       }
     }
     retained_timestamp = timestamp;
-    // Important! Cloned since it gets modified by decryption in game logic
-    retained_bytes = b.clone();
-    retained_off = off;
+    // Important! Copied since it gets modified by decryption in game logic
+    if (retained_bytes.length < bytesread) retained_bytes = new byte[bytesread];
+    if (bytesread > 0) System.arraycopy(b, off, retained_bytes, 0, bytesread);
+    retained_off = 0;
     retained_bread = bytesread;
   }
 
@@ -1153,59 +1175,31 @@ public class Replay {
     if (output == null) return;
 
     try {
-      boolean isLogin = false;
-      int pos = -1;
-      byte[] out_b = null;
+      output_record = startRecord(output_record, timestamp, len);
+      output_record.put(b, off, len);
+
       // for the first bytes if byte == (byte)Client.version, 4 bytes before indicate if its
       // login or reconnect and 5 its what determines if its login-related
       for (int i = off + 5; i < off + Math.min(15, len); i++) {
         if (b[i] == (byte) Client.version && b[i - 5] == 0 && (b[i - 4] == 0 || b[i - 4] == 1)) {
-          isLogin = true;
-          pos = i + 1;
-          out_b = b.clone();
-          break;
-        }
-      }
-      if (isLogin && pos != -1) {
-        for (int i = pos; i < off + len; i++) {
-          out_b[i] = 0x00;
-        }
+          // Blank the login block in the record, the client's buffer is left untouched
+          byte[] record = output_record.array();
+          for (int j = 8 + (i + 1 - off); j < 8 + len; j++) {
+            record[j] = 0x00;
+          }
 
-        Logger.Info("Replay: Removed login block from client output");
-
-        ByteBuffer buffer = ByteBuffer.allocate(len + 8);
-        buffer.putInt(timestamp);
-        buffer.putInt(len);
-        buffer.put(out_b, off, len);
-        output_checksum.update(buffer.array());
-        output.write(buffer.array());
-        output.flush();
-
-        /*
-         // Debug viewing entire output stream
-        System.out.print("Writing Output Stream: ");
-        for (byte h : buffer.array()) {
-            System.out.print(String.format("%d ",  Byte.toUnsignedInt(h)));
+          Logger.Info("Replay: Removed login block from client output");
+          break;
         }
-        System.out.println();
-        */
-
-        return;
       }
 
-      ByteBuffer buffer = ByteBuffer.allocate(len + 8);
-      buffer.putInt(timestamp);
-      buffer.putInt(len);
-      buffer.put(b, off, len);
-      output_checksum.update(buffer.array());
-      output.write(buffer.array());
-      output.flush();
+      writeRecord(output, output_checksum, output_record);
 
       /*
       // Debug viewing entire output stream
       System.out.print("Writing Output Stream: ");
-      for (byte h : buffer.array()) {
-        System.out.print(String.format("%d ",  Byte.toUnsignedInt(h)));
+      for (int i = 0; i < output_record.position(); i++) {
+        System.out.print(String.format("%d ",  Byte.toUnsignedInt(output_record.get(i))));
       }
       System.out.println();
       */
@@ -1216,6 +1210,30 @@ public class Replay {
     }
   }
 
+  /**
+   * Starts a record in a reusable buffer, growing it if it can't hold the payload
+   *
+   * @param record the buffer to reuse
+   * @param timestamp the record timestamp
+   * @param length the payload length, or -1 for a disconnect
+   * @return the buffer to write the payload to, positioned after the header
+   */
+  private static ByteBuffer startRecord(ByteBuffer record, int timestamp, int length) {
+    int size = 8 + Math.max(length, 0);
+    if (record.capacity() < size)
+      record = ByteBuffer.allocate(Math.max(size, record.capacity() * 2));
+    record.clear();
+    record.putInt(timestamp);
+    record.putInt(length);
+    return record;
+  }
+
+  private static void writeRecord(
+      DataOutputStream stream, MessageDigest checksum, ByteBuffer record) throws IOException {
+    checksum.update(record.array(), 0, record.position());
+    stream.write(record.array(), 0, record.position());
+  }
+
   public static int hookXTEAKey(int key) {
     if (replayServer != null) {
       int serverXTEAKey = replayServer.getXTEAKey();
@@ -1224,7 +1242,9 @@ public class Replay {
 
     if (play_keys != null) {
       try {
-        return play_keys.readInt();
+        int playKey = play_keys.readInt();
+        play_keys_read++;
+        return playKey;
       } catch (Exception e) {
         // e.printStackTrace();
         shutdown_error();
@@ -1267,29 +1287,23 @@ public class Replay {
 
       // received packet 182 while recording, set flag, do not dump bytes
       if (input == null) return;
-      if (isRecording) {
+      if (isRecording && retained_timestamp != TIMESTAMP_EOF) {
         // in here probably would need to check the position
         // don't care about the packet if 182, just rewrite it using the enc opcode
         try {
-          ByteBuffer buffer = ByteBuffer.allocate(retained_bread + 8);
-          buffer.putInt(retained_timestamp);
-          buffer.putInt(retained_bread);
           retained_bytes[retained_off + 1] = (byte) 127;
           retained_bytes[retained_off + 2] = 0;
           retained_bytes[retained_off + 3] = 0;
           retained_bytes[retained_off + 4] = 1;
-          buffer.put(retained_bytes, retained_off, retained_bread);
-          input_checksum.update(buffer.array());
-          input.write(buffer.array());
-          input.flush();
+          input_record = startRecord(input_record, retained_timestamp, retained_bread);
+          input_record.put(retained_bytes, retained_off, retained_bread);
+          writeRecord(input, input_checksum, input_record);
           Logger.Debug("Replay: Removed host block from client input");
         } catch (Exception e) {
           e.printStackTrace();
           shutdown_error();
         }
         retained_timestamp = TIMESTAMP_EOF;
-        // free memory
-        retained_bytes = null;
       }
     } else if (opcode == 99) {
       Item.checkForNewItems(len);
@@ -21,8 +21,8 @@ package Game;
 import Client.Launcher;
 import Client.Logger;
 import Client.QueueWindow;
+import Client.ReplayCatalog;
 import Client.Settings;
-import Client.Util;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.dnd.DnDConstants;
 import java.awt.dnd.DropTarget;
@@ -42,7 +42,7 @@ public class ReplayQueue {
   public static ArrayList<File> queue = new ArrayList<File>();
   public static boolean foundBrokenReplay = false;
 
-  // returns if it found valid replays in the directory chosen
+  // returns if a directory was chosen, replays are added to the queue as they are found
   public static boolean replayFileSelectAdd() {
     JFileChooser j;
     try {
@@ -57,26 +57,45 @@ public class ReplayQueue {
     if (selection != null && response != JFileChooser.CANCEL_OPTION) {
       List<File> selectionArr = new ArrayList<File>();
       selectionArr.add(selection);
-      List<File> replays = Util.getAllReplays(selectionArr);
-      if (replays.size() > 0) {
-        ReplayQueue.queue.addAll(replays);
-        QueueWindow.copyQueueToTable();
-        Logger.Info(
-            String.format(
-                "@|cyan Added |@@|cyan,intensity_bold %d |@@|cyan replays to the queue. New size: |@@|cyan,intensity_bold %d |@",
-                replays.size(), ReplayQueue.queue.size()));
-        return true;
-      } else {
-        JOptionPane.showMessageDialog(
-            Game.getInstance().getApplet(),
-            "The replay folder you selected is not valid.\n"
-                + "\n"
-                + "You need to select a folder that contains the 'version.bin', 'in.bin.gz', and 'keys.bin' for your replay.\n"
-                + "They're usually in a folder with your login username.",
-            "rscplus",
-            JOptionPane.ERROR_MESSAGE,
-            Launcher.icon_warn);
-      }
+      ReplayCatalog.scan(
+          selectionArr,
+          new ReplayCatalog.Listener() {
+            boolean started = false;
+
+            @Override
+            public void replaysFound(List<File> replays) {
+              ReplayQueue.queue.addAll(replays);
+              QueueWindow.appendQueueToTable();
+
+              // Start playing as soon as the first replays show up
+              if (!started) {
+                started = true;
+                ReplayQueue.nextReplay();
+              }
+            }
+
+            @Override
+            public void scanFinished(int replayCount, boolean foundBrokenReplay) {
+              if (replayCount > 0) {
+                Logger.Info(
+                    String.format(
+                        "@|cyan Added |@@|cyan,intensity_bold %d |@@|cyan replays to the queue. New size: |@@|cyan,intensity_bold %d |@",
+                        replayCount, ReplayQueue.queue.size()));
+              } else {
+                Renderer.replayOption = 0;
+                JOptionPane.showMessageDialog(
+                    Game.getInstance().getApplet(),
+                    "The replay folder you selected is not valid.\n"
+                        + "\n"
+                        + "You need to select a folder that contains the 'version.bin', 'in.bin.gz', and 'keys.bin' for your replay.\n"
+                        + "They're usually in a folder with your login username.",
+                    "rscplus",
+                    JOptionPane.ERROR_MESSAGE,
+                    Launcher.icon_warn);
+              }
+            }
+          });
+      return true;
     }
     return false;
   }
@@ -87,59 +106,43 @@ public class ReplayQueue {
           try {
             if (evt.getTransferable().isDataFlavorSupported(DataFlavor.javaFileListFlavor)) {
               evt.acceptDrop(DnDConstants.ACTION_LINK);
-              List<File> droppedFiles =
+              final List<File> droppedFiles =
                   (List<File>) evt.getTransferable().getTransferData(DataFlavor.javaFileListFlavor);
-              List<File> replays = Util.getAllReplays(droppedFiles);
               Logger.Debug("Got some files");
+              ReplayCatalog.scan(
+                  droppedFiles,
+                  new ReplayCatalog.Listener() {
+                    boolean started = false;
+
+                    @Override
+                    public void replaysFound(List<File> replays) {
+                      ReplayQueue.queue.addAll(replays);
+                      QueueWindow.appendQueueToTable();
 
-              if (replays.size() == 0) {
-                // no valid replays
-                if (foundBrokenReplay) {
-                  JOptionPane.showMessageDialog(
-                      Game.getInstance().getApplet(),
-                      "The replay you dragged onto the client has a keys.bin file which is empty.\n"
-                          + "The data inside is encrypted without a key to decrypt it. :(\n\n"
-                          + "Some information might be able to be retrieved from this replay\n"
-                          + "through reverse engineering, but basically it's broken.",
-                      "rscplus",
-                      JOptionPane.ERROR_MESSAGE,
-                      Launcher.icon_warn);
-                } else {
-                  boolean importedBank = false;
-                  if (Client.show_bank && droppedFiles.size() == 1) {
-                    if (droppedFiles.get(0).getName().contains("rscplus_bank")) {
-                      // TODO: should use int return
-                      String returnMes = Bank.importBankCsv(droppedFiles.get(0));
-                      importedBank = returnMes.contains("Successfully imported");
-                      Client.displayMessage(returnMes, Client.CHAT_QUEST);
+                      if (!started) {
+                        started = true;
+                        if (Client.state == Client.STATE_LOGIN) {
+                          ReplayQueue.nextReplay();
+                        }
+                      }
                     }
-                  }
-                  if (!importedBank) {
-                    // nothing that even looks like a replay was found
-                    JOptionPane.showMessageDialog(
-                        Game.getInstance().getApplet(),
-                        "The folder you dropped onto the client is not a replay, nor does it contain replay folders.\n"
-                            + "\n"
-                            + "You need to drop a folder that contains a 'version.bin', 'in.bin.gz', and 'keys.bin' for the replay.",
-                        "rscplus",
-                        JOptionPane.ERROR_MESSAGE,
-                        Launcher.icon_warn);
-                  }
-                }
-                return;
-              } else {
-                // at least 1 replay found
-                ReplayQueue.queue.addAll(replays);
-                QueueWindow.copyQueueToTable();
-                Logger.Info(
-                    String.format(
-                        "Added %d replay%s to the queue. New size: %d",
-                        replays.size(), replays.size() != 1 ? "s" : "", ReplayQueue.queue.size()));
 
-                if (Client.state == Client.STATE_LOGIN) {
-                  ReplayQueue.nextReplay();
-                }
-              }
+                    @Override
+                    public void scanFinished(int replayCount, boolean foundBrokenReplay) {
+                      ReplayQueue.foundBrokenReplay = foundBrokenReplay;
+                      if (replayCount > 0) {
+                        // at least 1 replay found
+                        Logger.Info(
+                            String.format(
+                                "Added %d replay%s to the queue. New size: %d",
+                                replayCount,
+                                replayCount != 1 ? "s" : "",
+                                ReplayQueue.queue.size()));
+                      } else {
+                        handleNoReplaysDropped(droppedFiles);
+                      }
+                    }
+                  });
             } else {
               // This can happen for example if a person drags rows from the replay queue window
               // into the main window
@@ -154,6 +157,42 @@ public class ReplayQueue {
         }
       };
 
+  private static void handleNoReplaysDropped(List<File> droppedFiles) {
+    // no valid replays
+    if (foundBrokenReplay) {
+      JOptionPane.showMessageDialog(
+          Game.getInstance().getApplet(),
+          "The replay you dragged onto the client has a keys.bin file which is empty.\n"
+              + "The data inside is encrypted without a key to decrypt it. :(\n\n"
+              + "Some information might be able to be retrieved from this replay\n"
+              + "through reverse engineering, but basically it's broken.",
+          "rscplus",
+          JOptionPane.ERROR_MESSAGE,
+          Launcher.icon_warn);
+    } else {
+      boolean importedBank = false;
+      if (Client.show_bank && droppedFiles.size() == 1) {
+        if (droppedFiles.get(0).getName().contains("rscplus_bank")) {
+          // TODO: should use int return
+          String returnMes = Bank.importBankCsv(droppedFiles.get(0));
+          importedBank = returnMes.contains("Successfully imported");
+          Client.displayMessage(returnMes, Client.CHAT_QUEST);
+        }
+      }
+      if (!importedBank) {
+        // nothing that even looks like a replay was found
+        JOptionPane.showMessageDialog(
+            Game.getInstance().getApplet(),
+            "The folder you dropped onto the client is not a replay, nor does it contain replay folders.\n"
+                + "\n"
+                + "You need to drop a folder that contains a 'version.bin', 'in.bin.gz', and 'keys.bin' for the replay.",
+            "rscplus",
+            JOptionPane.ERROR_MESSAGE,
+            Launcher.icon_warn);
+      }
+    }
+  }
+
   public static void nextReplay() {
     if (currentIndex < queue.size()) {
       lastIndex = currentIndex;
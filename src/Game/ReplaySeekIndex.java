@@ -0,0 +1,85 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Game;
+
+import java.util.ArrayList;
+
+/**
+ * Keyframes that the replay server can resume playback from without replaying the whole file.
+ *
+ * <p>The client only rebuilds its world state from scratch when it logs in, so every keyframe sits
+ * on a connection boundary rather than at a fixed timestamp interval.
+ */
+public class ReplaySeekIndex {
+  private final ArrayList<Keyframe> keyframes = new ArrayList<Keyframe>();
+
+  public static class Keyframe {
+    /** Replay timestamp playback resumes at */
+    public final int timestamp;
+
+    /**
+     * Decompressed offset into in.bin.gz when playing raw data, or the incoming packet index when
+     * parsing opcodes
+     */
+    public final long offset;
+
+    /** Number of XTEA keys the client has consumed from keys.bin before this point */
+    public final int keyIndex;
+
+    /** Connection number, 0 being the first login of the replay */
+    public final int epoch;
+
+    Keyframe(int timestamp, long offset, int keyIndex, int epoch) {
+      this.timestamp = timestamp;
+      this.offset = offset;
+      this.keyIndex = keyIndex;
+      this.epoch = epoch;
+    }
+  }
+
+  public ReplaySeekIndex() {
+    keyframes.add(new Keyframe(0, 0, 0, 0));
+  }
+
+  /**
+   * Records a keyframe. Playback is sequential, so keyframes older than the latest one are already
+   * known and are ignored.
+   */
+  public synchronized void add(int timestamp, long offset, int keyIndex, int epoch) {
+    Keyframe last = keyframes.get(keyframes.size() - 1);
+    if (offset <= last.offset || epoch <= last.epoch) return;
+    keyframes.add(new Keyframe(timestamp, offset, keyIndex, epoch));
+  }
+
+  /** Returns the latest keyframe at or before the given timestamp */
+  public synchronized Keyframe find(int timestamp) {
+    int low = 0;
+    int high = keyframes.size() - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (keyframes.get(mid).timestamp <= timestamp) low = mid;
+      else high = mid - 1;
+    }
+    return keyframes.get(low);
+  }
+
+  public synchronized int size() {
+    return keyframes.size();
+  }
+}
@@ -31,8 +31,10 @@ import Replay.common.ISAACCipher;
 import Replay.game.constants.Game.ItemAction;
 import Replay.scraper.ReplayEditor;
 import Replay.scraper.ReplayPacket;
+import Replay.scraper.ReplayPacketStore;
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -43,7 +45,6 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.GZIPInputStream;
 
@@ -74,8 +75,8 @@ public class ReplayServer implements Runnable {
   public int client_writePrev = 0;
   ISAACCipher isaac = new ISAACCipher();
 
-  public LinkedList<ReplayPacket> incomingPackets;
-  public LinkedList<ReplayPacket> outgoingPackets;
+  public ReplayPacketStore incomingPackets;
+  public ReplayPacketStore outgoingPackets;
   public int incomingPacketsSizeCache = 0;
   public int outgoingPacketsSizeCache = 0;
   public int outgoingPacketsIndex = 0;
@@ -86,6 +87,11 @@ public class ReplayServer implements Runnable {
   public int lastErrorChosenOptStamp; // timestamp in which couldnt replay chosen option
   public int lastErrorChosenOpt; // chosen option which couldnt be replayed in that moment
 
+  public ReplaySeekIndex seekIndex = new ReplaySeekIndex();
+  public volatile ReplaySeekIndex.Keyframe restartKeyframe = null;
+  long stream_offset = 0;
+  int connection_epoch = 0;
+
   ReplayServer(String directory) {
     playbackDirectory = directory;
     readBuffer = ByteBuffer.allocate(1024);
@@ -114,7 +120,10 @@ public class ReplayServer implements Runnable {
   }
 
   public void seek(int new_timestamp) {
-    if (Replay.timestamp > new_timestamp) Replay.restartReplayPlayback();
+    // Resume from the closest connection before the target instead of fast-forwarding to it
+    ReplaySeekIndex.Keyframe keyframe = seekIndex.find(new_timestamp);
+    if (Replay.timestamp > new_timestamp || keyframe.timestamp > Replay.timestamp)
+      Replay.restartReplayPlayback(keyframe);
 
     timestamp_new = new_timestamp;
     isSeeking = true;
@@ -144,8 +153,6 @@ public class ReplayServer implements Runnable {
       size = file.length();
       file_input = new FileInputStream(file);
       input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(file_input)));
-      timestamp_end = Util.getReplayEnding(file);
-      Logger.Debug("ReplayServer: Replay loaded, waiting for client; length=" + timestamp_end);
 
       boolean parseOpcodesPrev = Settings.PARSE_OPCODES.get(Settings.currentProfile);
       boolean parseOpcode = parseOpcodesPrev;
@@ -156,6 +163,15 @@ public class ReplayServer implements Runnable {
         initializeNextIncomingOutgoingPackets();
       }
 
+      if (parseOpcode && incomingPacketsSizeCache > 0) {
+        timestamp_end = incomingPackets.getTimestamp(incomingPacketsSizeCache - 1);
+      } else {
+        // Avoid decompressing the whole replay again when metadata.bin already has the length
+        int metadataLength = (int) Replay.readMetadata(playbackDirectory)[0];
+        timestamp_end = metadataLength > 0 ? metadataLength : Util.getReplayEnding(file);
+      }
+      Logger.Debug("ReplayServer: Replay loaded, waiting for client; length=" + timestamp_end);
+
       // Start the server
       sock = ServerSocketChannel.open();
       // last attempt 10 + default port
@@ -185,6 +201,10 @@ public class ReplayServer implements Runnable {
 
         // Restart the replay
         if (restart) {
+          ReplaySeekIndex.Keyframe keyframe = restartKeyframe;
+          restartKeyframe = null;
+          if (keyframe != null && keyframe.epoch == 0) keyframe = null;
+
           if (!parseOpcode) {
             // Sync on restart
             Client.forceReconnect = true;
@@ -212,6 +232,8 @@ public class ReplayServer implements Runnable {
           frame_timer = System.currentTimeMillis() + Replay.getFrameTimeSlice();
           incomingPacketsIndex = 0;
           outgoingPacketsIndex = 0;
+          stream_offset = 0;
+          connection_epoch = 0;
 
           if (parseOpcode) {
             if (incomingPackets == null) {
@@ -220,6 +242,33 @@ public class ReplayServer implements Runnable {
             initializeNextIncomingOutgoingPackets();
           }
 
+          // Jump to the keyframe, the client reconnects there so no earlier data is needed
+          if (keyframe != null) {
+            if (parseOpcode) {
+              incomingPacketsIndex = (int) keyframe.offset;
+              nextIncomingPacket = incomingPackets.get(incomingPacketsIndex);
+              if (outgoingPacketsSizeCache > 0) {
+                outgoingPacketsIndex =
+                    Math.min(
+                        outgoingPackets.findFirstAtOrAfter(keyframe.timestamp),
+                        outgoingPacketsSizeCache - 1);
+                nextOutgoingPacket = outgoingPackets.get(outgoingPacketsIndex);
+              }
+            } else {
+              skipFully(input, keyframe.offset);
+              stream_offset = keyframe.offset;
+            }
+            connection_epoch = keyframe.epoch;
+            Replay.timestamp = keyframe.timestamp;
+            Replay.timestamp_client = keyframe.timestamp;
+            Replay.timestamp_server_last = keyframe.timestamp;
+            Logger.Debug(
+                "ReplayServer: Resuming from keyframe; timestamp="
+                    + keyframe.timestamp
+                    + ", epoch="
+                    + keyframe.epoch);
+          }
+
           restart = false;
           Replay.isRestarting = false;
         }
@@ -535,6 +584,7 @@ public class ReplayServer implements Runnable {
 
   public boolean doTick(boolean parseOpcodes) {
     try {
+      long record_offset = stream_offset;
       int timestamp_input = input.readInt();
 
       // We've reached the end of the replay
@@ -544,9 +594,11 @@ public class ReplayServer implements Runnable {
       ByteBuffer buffer = null;
       if (length > 0) {
         buffer = ByteBuffer.allocate(length);
-        input.read(buffer.array());
+        input.readFully(buffer.array());
         available = file_input.available();
+        stream_offset += length;
       }
+      stream_offset += 8;
 
       if (timestamp_input < Replay.timestamp) {
         Logger.Debug(
@@ -563,6 +615,7 @@ public class ReplayServer implements Runnable {
         // v1+ Disconnect handler
         // If packet length is -1, it's a disconnection
         if (length == -1) {
+          seekIndex.add(timestamp_input, stream_offset, Replay.play_keys_read, ++connection_epoch);
           Client.forceReconnect = true;
           Logger.Info("ReplayServer: Killing client connection");
           client.close();
@@ -587,6 +640,7 @@ public class ReplayServer implements Runnable {
         // So we disconnect and reconnect the client
         // NOTE: Versions older than v1 have no disconnection indication
         if (timestamp_diff > 400) {
+          seekIndex.add(timestamp_input, record_offset, Replay.play_keys_read, ++connection_epoch);
           Client.forceReconnect = true;
           Logger.Info(
               "ReplayServer: Killing client connection; timestamp="
@@ -680,17 +734,32 @@ public class ReplayServer implements Runnable {
     outgoingPacketsIndex = 0;
     incomingPacketsSizeCache = incomingPackets.size();
     outgoingPacketsSizeCache = outgoingPackets.size();
+
+    // Every virtual connect packet after the first login is a keyframe
+    int epoch = 0;
+    for (int i = 1; i < incomingPacketsSizeCache; i++) {
+      if (incomingPackets.getOpcode(i) == VIRTUAL_OPCODE_CONNECT)
+        seekIndex.add(incomingPackets.getTimestamp(i), i, 0, ++epoch);
+    }
+  }
+
+  private static void skipFully(DataInputStream in, long count) throws IOException {
+    while (count > 0) {
+      int skipped = in.skipBytes((int) Math.min(count, Integer.MAX_VALUE));
+      if (skipped <= 0) throw new EOFException();
+      count -= skipped;
+    }
   }
 
   public void initializeNextIncomingOutgoingPackets() {
     if (incomingPacketsSizeCache > 0) {
-      nextIncomingPacket = incomingPackets.getFirst();
+      nextIncomingPacket = incomingPackets.get(0);
     } else {
       // RSC+ won't be able to play this replay, so let's skip it.
       Logger.Warn("@|red No incoming packets in that Replay, moving on...|@");
       ReplayQueue.nextReplay();
       isDone = true;
     }
-    if (outgoingPacketsSizeCache > 0) nextOutgoingPacket = outgoingPackets.getFirst();
+    if (outgoingPacketsSizeCache > 0) nextOutgoingPacket = outgoingPackets.get(0);
   }
 }
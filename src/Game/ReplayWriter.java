@@ -0,0 +1,196 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Game;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip stream for replay recordings that is written to disk on a background thread.
+ *
+ * <p>Writes and flushes from the client thread only copy into memory. Every {@link
+ * #FLUSH_INTERVAL} ms, or sooner once enough data is pending, the writer thread deflates everything
+ * pending as one batch and sync flushes it, so a crash loses at most one interval of data while
+ * small packets still share deflate blocks.
+ */
+public class ReplayWriter extends OutputStream {
+  /** Time between flushes to disk, one server tick */
+  public static final long FLUSH_INTERVAL = 640;
+
+  /** Amount of pending data that wakes the writer thread before the interval is up */
+  private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+  private static final ArrayList<ReplayWriter> writers = new ArrayList<ReplayWriter>();
+  private static Thread thread = null;
+
+  private final GZIPOutputStream out;
+  private byte[] pending = new byte[8192];
+  private int pendingSize = 0;
+  private byte[] spare = new byte[8192];
+  private IOException error = null;
+  private boolean closed = false;
+
+  public ReplayWriter(File file) throws IOException {
+    out = new GZIPOutputStream(new FileOutputStream(file), 8192, true);
+    synchronized (writers) {
+      writers.add(this);
+      if (thread == null) {
+        thread =
+            new Thread(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    runWriter();
+                  }
+                },
+                "ReplayWriter");
+        thread.setDaemon(true);
+        thread.start();
+      }
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    synchronized (this) {
+      checkOpen();
+      ensureCapacity(pendingSize + 1);
+      pending[pendingSize++] = (byte) b;
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    boolean wake;
+    synchronized (this) {
+      checkOpen();
+      ensureCapacity(pendingSize + len);
+      System.arraycopy(b, off, pending, pendingSize, len);
+      pendingSize += len;
+      wake = pendingSize >= FLUSH_THRESHOLD;
+    }
+    if (wake) {
+      synchronized (writers) {
+        writers.notifyAll();
+      }
+    }
+  }
+
+  /** Data is written to disk by the writer thread, so this only reports earlier write errors */
+  @Override
+  public synchronized void flush() throws IOException {
+    checkOpen();
+  }
+
+  /** Writes everything pending, finishes the gzip stream and closes the file */
+  @Override
+  public void close() throws IOException {
+    synchronized (writers) {
+      writers.remove(this);
+    }
+
+    synchronized (out) {
+      synchronized (this) {
+        if (closed) return;
+        closed = true;
+      }
+      try {
+        drain();
+      } finally {
+        out.close();
+      }
+    }
+  }
+
+  /** Writes every open recording to disk, used when the client is shutting down */
+  public static void flushAll() {
+    ArrayList<ReplayWriter> open;
+    synchronized (writers) {
+      open = new ArrayList<ReplayWriter>(writers);
+    }
+    for (ReplayWriter writer : open) writer.flushToDisk();
+  }
+
+  private void flushToDisk() {
+    synchronized (out) {
+      synchronized (this) {
+        if (closed || error != null) return;
+      }
+      try {
+        drain();
+      } catch (IOException e) {
+        synchronized (this) {
+          error = e;
+        }
+      }
+    }
+  }
+
+  /** Deflates the pending data and sync flushes it, must hold the lock on out */
+  private void drain() throws IOException {
+    byte[] batch;
+    int batchSize;
+    synchronized (this) {
+      if (error != null) throw error;
+      batch = pending;
+      batchSize = pendingSize;
+      pending = spare;
+      pendingSize = 0;
+    }
+
+    if (batchSize > 0) {
+      out.write(batch, 0, batchSize);
+      out.flush();
+    }
+
+    synchronized (this) {
+      // Keep the drained buffer around so the next batch doesn't allocate
+      spare = batch;
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (error != null) throw error;
+    if (closed) throw new IOException("Replay writer is closed");
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= pending.length) return;
+    byte[] grown = new byte[Math.max(capacity, pending.length * 2)];
+    System.arraycopy(pending, 0, grown, 0, pendingSize);
+    pending = grown;
+  }
+
+  private static void runWriter() {
+    for (; ; ) {
+      synchronized (writers) {
+        try {
+          writers.wait(FLUSH_INTERVAL);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+      flushAll();
+    }
+  }
+}
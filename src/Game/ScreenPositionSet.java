@@ -0,0 +1,110 @@
+/**
+ * rscplus
+ *
+ * <p>This file is part of rscplus.
+ *
+ * <p>rscplus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscplus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscplus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscplus>
+ */
+package Game;
+
+import java.util.Arrays;
+
+/**
+ * Hash set of screen rectangles and points, reused from frame to frame by the overlay renderer.
+ *
+ * <p>Each coordinate is packed into 16 bits of a long key, which covers every on-screen position.
+ * Clearing only bumps a generation counter, so a cleared set doesn't touch its arrays.
+ */
+public class ScreenPositionSet {
+  private long[] m_keys = new long[64];
+  private int[] m_generations = new int[64];
+  private int m_generation = 1;
+  private int m_size = 0;
+
+  public void clear() {
+    m_size = 0;
+    m_generation++;
+    if (m_generation == 0) {
+      Arrays.fill(m_generations, 0);
+      m_generation = 1;
+    }
+  }
+
+  public boolean contains(int x, int y) {
+    return contains(x, y, 0, 0);
+  }
+
+  /** Adds the point, returns false if it was already in the set */
+  public boolean add(int x, int y) {
+    return add(x, y, 0, 0);
+  }
+
+  public boolean contains(int x, int y, int width, int height) {
+    long key = pack(x, y, width, height);
+    int mask = m_keys.length - 1;
+    for (int i = hash(key) & mask; m_generations[i] == m_generation; i = (i + 1) & mask) {
+      if (m_keys[i] == key) return true;
+    }
+    return false;
+  }
+
+  /** Adds the rectangle, returns false if it was already in the set */
+  public boolean add(int x, int y, int width, int height) {
+    if ((m_size + 1) * 2 > m_keys.length) grow();
+
+    long key = pack(x, y, width, height);
+    int mask = m_keys.length - 1;
+    int i = hash(key) & mask;
+    for (; m_generations[i] == m_generation; i = (i + 1) & mask) {
+      if (m_keys[i] == key) return false;
+    }
+    m_keys[i] = key;
+    m_generations[i] = m_generation;
+    m_size++;
+    return true;
+  }
+
+  private static long pack(int x, int y, int width, int height) {
+    return ((long) (x & 0xFFFF) << 48)
+        | ((long) (y & 0xFFFF) << 32)
+        | ((long) (width & 0xFFFF) << 16)
+        | (height & 0xFFFF);
+  }
+
+  private static int hash(long key) {
+    key *= 0x9E3779B97F4A7C15L;
+    return (int) (key ^ (key >>> 32));
+  }
+
+  private void grow() {
+    long[] keys = m_keys;
+    int[] generations = m_generations;
+    int generation = m_generation;
+
+    m_keys = new long[keys.length * 2];
+    m_generations = new int[keys.length * 2];
+    m_generation = 1;
+    m_size = 0;
+
+    int mask = m_keys.length - 1;
+    for (int j = 0; j < keys.length; j++) {
+      if (generations[j] != generation) continue;
+      int i = hash(keys[j]) & mask;
+      while (m_generations[i] == m_generation) i = (i + 1) & mask;
+      m_keys[i] = keys[j];
+      m_generations[i] = m_generation;
+      m_size++;
+    }
+  }
+}
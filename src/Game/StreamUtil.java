@@ -40,48 +40,53 @@ public class StreamUtil {
   }
 
   public static void newPacket(int id) {
-    if (Reflection.newPacket == null) return;
+    if (Reflection.newPacketHandle == null) return;
 
     try {
-      Reflection.newPacket.invoke(Client.clientStream, id, -12 ^ -12);
-    } catch (Exception e) {
+      Reflection.newPacketHandle.invokeExact(Client.clientStream, id, -12 ^ -12);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void flushPacket() {
-    if (Reflection.flushPacket == null) return;
+    if (Reflection.flushPacketHandle == null) return;
 
     try {
-      Reflection.flushPacket.invoke(Client.clientStream, -6924);
-    } catch (Exception e) {
+      Reflection.flushPacketHandle.invokeExact(Client.clientStream, -6924);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void sendPacket() {
-    if (Reflection.sendPacket == null) return;
+    if (Reflection.sendPacketHandle == null) return;
 
     try {
-      Reflection.sendPacket.invoke(Client.clientStream, 21294);
-    } catch (Exception e) {
+      Reflection.sendPacketHandle.invokeExact(Client.clientStream, 21294);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void initIsaac(int[] keys) {
-    if (Reflection.initIsaac == null) return;
+    if (Reflection.initIsaacHandle == null) return;
 
     try {
-      Reflection.initIsaac.invoke(Client.clientStream, (byte) -119, keys);
-    } catch (Exception e) {
+      Reflection.initIsaacHandle.invokeExact(Client.clientStream, (byte) -119, keys);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static Object getStreamBuffer() {
     Object buffer = null;
-    if (Reflection.bufferField == null) return null;
+    if (Reflection.getBufferField == null) return null;
 
     try {
-      buffer = Reflection.bufferField.get(Client.clientStream);
-    } catch (Exception e) {
+      buffer = Reflection.getBufferField.invokeExact(Client.clientStream);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return buffer;
@@ -100,45 +105,49 @@ public class StreamUtil {
   }
 
   public static void putRandom(Object buffer) {
-    if (Reflection.putRandom == null) return;
+    if (Reflection.putRandomHandle == null) return;
 
     try {
-      Reflection.putRandom.invoke(null, (int) 22607, buffer);
-    } catch (Exception e) {
+      Reflection.putRandomHandle.invokeExact((int) 22607, buffer);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static int getBufferOffset(Object buffer) {
-    if (Reflection.bufferOffset == null) return 0;
+    if (Reflection.getBufferOffset == null) return 0;
     int bufferOffset = 0;
 
     try {
-      bufferOffset = (int) Reflection.bufferOffset.get(buffer);
-    } catch (Exception e) {
+      bufferOffset = (int) Reflection.getBufferOffset.invokeExact(buffer);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return bufferOffset;
   }
 
   public static int setBufferOffset(Object buffer, int offset) {
-    if (Reflection.bufferOffset == null) return 0;
+    if (Reflection.setBufferOffset == null) return 0;
     int bufferOffset = 0;
 
     try {
-      Reflection.bufferOffset.set(buffer, offset);
-    } catch (Exception e) {
+      Reflection.setBufferOffset.invokeExact(buffer, offset);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return bufferOffset;
   }
 
   public static byte[] getBufferByteArray(Object buffer) {
-    if (Reflection.bufferByteArray == null) return null;
+    if (Reflection.getBufferByteArray == null) return null;
     byte[] bufferArray = null;
 
     try {
-      bufferArray = (byte[]) Reflection.bufferByteArray.get(buffer);
-    } catch (Exception e) {
+      bufferArray = (byte[]) Reflection.getBufferByteArray.invokeExact(buffer);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return bufferArray;
@@ -154,40 +163,43 @@ public class StreamUtil {
   }
 
   public static void setBufferLength(Object buffer, int xtea_start) {
-    if (Reflection.setBlockLength == null) return;
+    if (Reflection.setBlockLengthHandle == null) return;
 
     try {
-      Reflection.setBlockLength.invoke(buffer, StreamUtil.getBufferOffset(buffer) - xtea_start, 1);
-    } catch (Exception e) {
+      Reflection.setBlockLengthHandle.invokeExact(
+          buffer, StreamUtil.getBufferOffset(buffer) - xtea_start, 1);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static int readStream() {
-    if (Reflection.readResponse == null) return -1;
+    if (Reflection.readResponseHandle == null) return -1;
     int response = -1;
 
     try {
-      response = (int) Reflection.readResponse.invoke(Client.clientStream, true);
-    } catch (Exception e) {
+      response = (int) Reflection.readResponseHandle.invokeExact(Client.clientStream, true);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return response;
   }
 
   public static int readByte() {
-    if (Reflection.readResponse == null) return -1;
+    if (Reflection.readResponseHandle == null) return -1;
     return readStream();
   }
 
   public static int readShort() {
-    if (Reflection.readResponse == null) return -1;
+    if (Reflection.readResponseHandle == null) return -1;
     int i = readByte();
     int j = readByte();
     return i * 256 + j;
   }
 
   public static int readInt() {
-    if (Reflection.readResponse == null) return -1;
+    if (Reflection.readResponseHandle == null) return -1;
     int i = readShort();
     int j = readShort();
     return i * 65536 + j;
@@ -198,93 +210,102 @@ public class StreamUtil {
   }
 
   public static void readBytes(byte[] byteArr, int offset, int length) {
-    if (Reflection.readBytes == null) return;
+    if (Reflection.readBytesHandle == null) return;
     int response = -1;
 
     try {
-      Reflection.readBytes.invoke(Client.clientStream, byteArr, length, offset, 123);
-    } catch (Exception e) {
+      Reflection.readBytesHandle.invokeExact(Client.clientStream, byteArr, length, offset, 123);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void putBytesTo(Object buffer, byte[] block, int start, int offset) {
-    if (Reflection.putBytes == null) return;
+    if (Reflection.putBytesHandle == null) return;
 
     try {
-      Reflection.putBytes.invoke(buffer, start, -123, offset, block);
-    } catch (Exception e) {
+      Reflection.putBytesHandle.invokeExact(buffer, start, -123, offset, block);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static int getUnsignedByte(Object buffer) {
-    if (Reflection.getUnsignedByte == null) return -1;
+    if (Reflection.getUnsignedByteHandle == null) return -1;
     int response = -1;
 
     try {
-      response = (int) Reflection.getUnsignedByte.invoke(buffer, (byte) 104);
-    } catch (Exception e) {
+      response = (int) Reflection.getUnsignedByteHandle.invokeExact(buffer, (byte) 104);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return response;
   }
 
   public static int getUnsignedShort(Object buffer) {
-    if (Reflection.getUnsignedShort == null) return -1;
+    if (Reflection.getUnsignedShortHandle == null) return -1;
     int response = -1;
 
     try {
-      response = (int) Reflection.getUnsignedShort.invoke(buffer, 255);
-    } catch (Exception e) {
+      response = (int) Reflection.getUnsignedShortHandle.invokeExact(buffer, 255);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return response;
   }
 
   public static int getUnsignedInt3(Object buffer) {
-    if (Reflection.getUnsignedInt3 == null) return -1;
+    if (Reflection.getUnsignedInt3Handle == null) return -1;
     int response = -1;
 
     try {
-      response = (int) Reflection.getUnsignedInt3.invoke(buffer, 103);
-    } catch (Exception e) {
+      response = (int) Reflection.getUnsignedInt3Handle.invokeExact(buffer, 103);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
 
     return response;
   }
 
   public static void putByteTo(Object buffer, byte n) {
-    if (Reflection.putByte == null) return;
+    if (Reflection.putByteHandle == null) return;
 
     try {
-      Reflection.putByte.invoke(buffer, (int) n, -117);
-    } catch (Exception e) {
+      Reflection.putByteHandle.invokeExact(buffer, (int) n, -117);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void putShortTo(Object buffer, short s) {
-    if (Reflection.putShort == null) return;
+    if (Reflection.putShortHandle == null) return;
 
     try {
-      Reflection.putShort.invoke(buffer, 393, (int) s);
-    } catch (Exception e) {
+      Reflection.putShortHandle.invokeExact(buffer, 393, (int) s);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void putIntTo(Object buffer, int n) {
-    if (Reflection.putInt == null) return;
+    if (Reflection.putIntHandle == null) return;
 
     try {
-      Reflection.putInt.invoke(buffer, -422797528, n);
-    } catch (Exception e) {
+      Reflection.putIntHandle.invokeExact(buffer, -422797528, n);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void putInt3ByteTo(Object buffer, int n) {
-    if (Reflection.putInt3Byte == null) return;
+    if (Reflection.putInt3ByteHandle == null) return;
 
     try {
-      Reflection.putInt3Byte.invoke(buffer, n, (byte) -13);
-    } catch (Exception e) {
+      Reflection.putInt3ByteHandle.invokeExact(buffer, n, (byte) -13);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
@@ -300,11 +321,12 @@ public class StreamUtil {
    * @param st
    */
   public static void putStrTo(Object buffer, String st) {
-    if (Reflection.putStr == null) return;
+    if (Reflection.putStrHandle == null) return;
 
     try {
-      Reflection.putStr.invoke(buffer, (byte) -39, st);
-    } catch (Exception e) {
+      Reflection.putStrHandle.invokeExact(buffer, (byte) -39, st);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
@@ -320,21 +342,23 @@ public class StreamUtil {
   }
 
   public static void encrypt(Object buffer, BigInteger exponent, BigInteger modulus) {
-    if (Reflection.encrypt == null) return;
+    if (Reflection.encryptHandle == null) return;
 
     try {
-      Reflection.encrypt.invoke(buffer, modulus, -118, exponent);
-    } catch (Exception e) {
+      Reflection.encryptHandle.invokeExact(buffer, modulus, -118, exponent);
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 
   public static void xteaEncrypt(Object buffer, int xtea_start, int[] keys) {
-    if (Reflection.xteaEncrypt == null) return;
+    if (Reflection.xteaEncryptHandle == null) return;
 
     try {
-      Reflection.xteaEncrypt.invoke(
+      Reflection.xteaEncryptHandle.invokeExact(
           buffer, (byte) 87, xtea_start, keys, StreamUtil.getBufferOffset(buffer));
-    } catch (Exception e) {
+    } catch (Throwable e) {
+      Reflection.rethrowIfFatal(e);
     }
   }
 }
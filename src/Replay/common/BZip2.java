@@ -19,16 +19,38 @@
 package Replay.common;
 
 import java.io.ByteArrayInputStream;
+import java.io.SequenceInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 
 public class BZip2 {
+  private static final byte HEADER[] = {0x42, 0x5A, 0x68, 0x31};
+
+  /**
+   * Decompresses BZip2 data stored without its "BZh1" header, as in content archives. The data
+   * isn't modified, so several threads can decompress from the same buffer.
+   *
+   * @param data buffer holding the compressed data
+   * @param offset start of the compressed data, just past where the header would be
+   * @param length length of the compressed data
+   * @param uncompressedLength length of the data once decompressed
+   * @return the decompressed data, or null if it couldn't be decompressed
+   */
   public static byte[] decompress(byte data[], int offset, int length, int uncompressedLength) {
     byte uncompressedData[] = new byte[uncompressedLength];
     try {
       BZip2CompressorInputStream in =
-          new BZip2CompressorInputStream(new ByteArrayInputStream(data, 2, length + 4));
-      in.read(uncompressedData);
+          new BZip2CompressorInputStream(
+              new SequenceInputStream(
+                  new ByteArrayInputStream(HEADER),
+                  new ByteArrayInputStream(data, offset, length)));
+      int position = 0;
+      while (position < uncompressedLength) {
+        int read = in.read(uncompressedData, position, uncompressedLength - position);
+        if (read == -1) break;
+        position += read;
+      }
       in.close();
+      if (position < uncompressedLength) return null;
     } catch (Exception e) {
       return null;
     }
@@ -0,0 +1,99 @@
+/**
+ * rscminus
+ *
+ * <p>This file is part of rscminus.
+ *
+ * <p>rscminus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscminus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscminus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscminus>
+ */
+package Replay.common;
+
+import java.util.Arrays;
+
+/**
+ * Byte pattern with wildcard and alternative byte positions, searched with Boyer-Moore-Horspool.
+ *
+ * <p>Each position holds the set of byte values it accepts, so the bad character shift of a byte is
+ * its distance from the last position (excluding the final one) that accepts it.
+ */
+public class BytePattern {
+  private final boolean[][] m_accept;
+  private final int[] m_shift = new int[256];
+
+  public BytePattern(byte[] pattern) {
+    m_accept = new boolean[pattern.length][256];
+    for (int i = 0; i < pattern.length; i++) m_accept[i][pattern[i] & 0xFF] = true;
+    updateShift();
+  }
+
+  public int length() {
+    return m_accept.length;
+  }
+
+  /** Makes the position match any byte */
+  public BytePattern any(int index) {
+    Arrays.fill(m_accept[index], true);
+    updateShift();
+    return this;
+  }
+
+  /** Makes the position also match the given byte */
+  public BytePattern allow(int index, int value) {
+    m_accept[index][value & 0xFF] = true;
+    updateShift();
+    return this;
+  }
+
+  public boolean matches(byte[] data, int offset) {
+    if (offset < 0 || data.length - offset < m_accept.length) return false;
+    for (int i = m_accept.length - 1; i >= 0; i--) {
+      if (!m_accept[i][data[offset + i] & 0xFF]) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Finds every offset where the pattern matches, overlapping matches included
+   *
+   * @param data the data to search
+   * @param start the first offset a match may begin at
+   * @return the match offsets in ascending order
+   */
+  public int[] findAll(byte[] data, int start) {
+    int[] matches = new int[16];
+    int count = 0;
+
+    int last = m_accept.length - 1;
+    int offset = Math.max(start, 0);
+    while (offset <= data.length - m_accept.length) {
+      int value = data[offset + last] & 0xFF;
+      if (m_accept[last][value] && matches(data, offset)) {
+        if (count == matches.length) matches = Arrays.copyOf(matches, count * 2);
+        matches[count++] = offset;
+      }
+      offset += m_shift[value];
+    }
+
+    return Arrays.copyOf(matches, count);
+  }
+
+  private void updateShift() {
+    int last = m_accept.length - 1;
+    Arrays.fill(m_shift, m_accept.length);
+    for (int i = 0; i < last; i++) {
+      for (int value = 0; value < 256; value++) {
+        if (m_accept[i][value]) m_shift[value] = last - i;
+      }
+    }
+  }
+}
@@ -21,9 +21,20 @@ package Replay.common;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.util.HashMap;
 
+/**
+ * Content archive, holding files looked up by the hash of their name.
+ *
+ * <p>The entry table is read once when the archive is opened, and unpacking doesn't modify the
+ * archive, so files can be unpacked any number of times and from several threads at once.
+ */
 public class JContent {
   private byte m_data[];
+  private HashMap<Integer, Integer> m_entries;
+  private int m_entryOffsets[];
+  private int m_entryLengths[];
+  private int m_entryCompressedLengths[];
 
   public boolean open(String fname) {
     m_data = FileUtil.readFull(new File(fname));
@@ -40,24 +51,20 @@ public class JContent {
       System.arraycopy(m_data, 6, newData, 0, uncompressedLength);
       m_data = newData;
     } else {
-      // Add BZIP2 header to content file before decompressing
-      m_data[2] = 0x42;
-      m_data[3] = 0x5A;
-      m_data[4] = 0x68;
-      m_data[5] = 0x31;
-      m_data = BZip2.decompress(m_data, 2, compressedLength + 4, uncompressedLength);
+      m_data = BZip2.decompress(m_data, 6, compressedLength, uncompressedLength);
       if (m_data == null) return false;
     }
 
+    readEntries();
     return true;
   }
 
-  public JContentFile unpack(String filename) {
+  private void readEntries() {
     int entryCount = ((m_data[0] & 0xFF) << 8) | (m_data[1] & 0xFF);
-    filename = filename.toUpperCase();
-
-    int hash = 0;
-    for (int i = 0; i < filename.length(); i++) hash = 61 * hash + (filename.charAt(i) - 32);
+    m_entries = new HashMap<Integer, Integer>(entryCount * 2);
+    m_entryOffsets = new int[entryCount];
+    m_entryLengths = new int[entryCount];
+    m_entryCompressedLengths = new int[entryCount];
 
     int offset = 2 + (10 * entryCount);
     for (int i = 0; i < entryCount; i++) {
@@ -67,39 +74,55 @@ public class JContent {
               | ((m_data[3 + entryOffset] & 0xFF) << 16)
               | ((m_data[4 + entryOffset] & 0xFF) << 8)
               | (m_data[5 + entryOffset] & 0xFF);
-      int uncompressedLength =
+      m_entryOffsets[i] = offset;
+      m_entryLengths[i] =
           ((m_data[6 + entryOffset] & 0xFF) << 16)
               | ((m_data[7 + entryOffset] & 0xFF) << 8)
               | (m_data[8 + entryOffset] & 0xFF);
-      int compressedLength =
+      m_entryCompressedLengths[i] =
           ((m_data[9 + entryOffset] & 0xFF) << 16)
               | ((m_data[10 + entryOffset] & 0xFF) << 8)
               | (m_data[11 + entryOffset] & 0xFF);
 
-      if (hash == entryHash) {
-        byte data[] = new byte[uncompressedLength];
-        if (uncompressedLength == compressedLength) {
-          System.arraycopy(m_data, offset, data, 0, uncompressedLength);
-        } else {
-          // Add BZIP2 header to content file before decompressing
-          m_data[8 + entryOffset] = 0x42;
-          m_data[9 + entryOffset] = 0x5A;
-          m_data[10 + entryOffset] = 0x68;
-          m_data[11 + entryOffset] = 0x31;
-          data =
-              BZip2.decompress(m_data, 8 + entryOffset, compressedLength + 4, uncompressedLength);
-          if (data == null) return null;
-        }
-        return new JContentFile(data);
-      }
-      offset += compressedLength;
+      // The first entry with a hash is the one found, like a scan of the table
+      if (!m_entries.containsKey(entryHash)) m_entries.put(entryHash, i);
+      offset += m_entryCompressedLengths[i];
     }
+  }
+
+  private static int hash(String filename) {
+    filename = filename.toUpperCase();
 
-    return null;
+    int hash = 0;
+    for (int i = 0; i < filename.length(); i++) hash = 61 * hash + (filename.charAt(i) - 32);
+    return hash;
+  }
+
+  public JContentFile unpack(String filename) {
+    Integer entry = m_entries.get(hash(filename));
+    if (entry == null) return null;
+
+    int offset = m_entryOffsets[entry];
+    int uncompressedLength = m_entryLengths[entry];
+    int compressedLength = m_entryCompressedLengths[entry];
+
+    byte data[];
+    if (uncompressedLength == compressedLength) {
+      data = new byte[uncompressedLength];
+      System.arraycopy(m_data, offset, data, 0, uncompressedLength);
+    } else {
+      data = BZip2.decompress(m_data, offset, compressedLength, uncompressedLength);
+      if (data == null) return null;
+    }
+    return new JContentFile(data);
   }
 
   public void close() {
     m_data = null;
+    m_entries = null;
+    m_entryOffsets = null;
+    m_entryLengths = null;
+    m_entryCompressedLengths = null;
   }
 
   public void dump(String fname) {
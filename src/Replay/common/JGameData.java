@@ -19,6 +19,15 @@
 package Replay.common;
 
 import Replay.game.constants.Game;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 
 public class JGameData {
   public static int itemCount;
@@ -53,10 +62,33 @@ public class JGameData {
   public static int tileType[];
   public static int tileAdjacent[];
 
-  public static byte regionCollisionMask[][][][];
-  public static byte regionDirection[][][][];
+  public static final int REGION_COUNT_X = Game.WORLD_WIDTH / Game.REGION_WIDTH;
+  public static final int REGION_COUNT_Y = Game.WORLD_HEIGHT / Game.REGION_HEIGHT;
+
+  // Tiles of every region and floor, starting at getRegionOffset()
+  public static byte regionCollisionMask[];
+  public static byte regionDirection[];
+
+  private static final int LANDSCAPE_CACHE_MAGIC = 0x4C4E4443;
+  private static final int LANDSCAPE_CACHE_VERSION = 2;
+  private static final int LANDSCAPE_CACHE_HEADER_SIZE = 8 * 4 + 8;
+
+  // Archives the landscape is decoded from, the config archive holds the wall object flags
+  private static final String[] LANDSCAPE_SOURCES = {
+    "content0_229aa476", "content4_ffffffffaaca2b0d", "content5_6a1d6b00"
+  };
 
   public static boolean init(boolean member) {
+    return init(member, null);
+  }
+
+  /**
+   * Loads the game data, and the landscape from the cache file if there's a valid one
+   *
+   * @param member whether to load the members landscape
+   * @param landscapeCache file the decoded landscape is read from and saved to, or null
+   */
+  public static boolean init(boolean member, String landscapeCache) {
     JContent content = new JContent();
     JContent contentMembers = new JContent();
 
@@ -240,55 +272,189 @@ public class JGameData {
           "id: " + i + ", name: '" + animationName[i] + "', index: " + animationIndex[i]);
     }
 
-    int maxRegionWidth = Game.WORLD_WIDTH / Game.REGION_WIDTH;
-    int maxRegionHeight = Game.WORLD_HEIGHT / Game.REGION_HEIGHT;
-    regionCollisionMask =
-        new byte[maxRegionWidth][maxRegionHeight][Game.REGION_FLOORS][Game.REGION_SIZE];
-    regionDirection =
-        new byte[maxRegionWidth][maxRegionHeight][Game.REGION_FLOORS][Game.REGION_SIZE];
+    if (landscapeCache != null && loadLandscapeCache(landscapeCache, member)) return true;
 
     // Read content6 (landscape)
     if (!content.open("content4_ffffffffaaca2b0d")) return false;
     if (!contentMembers.open("content5_6a1d6b00")) return false;
-    for (int x = 0; x < maxRegionWidth; x++) {
-      for (int y = 0; y < maxRegionHeight; y++) {
-        for (int floor = 0; floor < Game.REGION_FLOORS; floor++) {
-          if (!loadLandscape(content, x, y, floor) && member)
-            loadLandscape(contentMembers, x, y, floor);
-        }
-      }
-    }
+    boolean loaded = loadLandscapes(content, member ? contentMembers : null);
     content.close();
     contentMembers.close();
+    if (!loaded) return false;
+
+    if (landscapeCache != null) saveLandscapeCache(landscapeCache, member);
+    return true;
+  }
 
+  /** Returns the index of the first tile of a region floor in the landscape arrays */
+  public static int getRegionOffset(int x, int y, int floor) {
+    return ((x * REGION_COUNT_Y + y) * Game.REGION_FLOORS + floor) * Game.REGION_SIZE;
+  }
+
+  /**
+   * Decodes every region floor on a pool bounded to the number of processors. Each floor is
+   * written to its own part of the landscape arrays, so the result doesn't depend on the order
+   * floors are decoded in.
+   */
+  private static boolean loadLandscapes(final JContent content, final JContent contentMembers) {
+    int landscapeSize = getRegionOffset(REGION_COUNT_X, 0, 0);
+    regionCollisionMask = new byte[landscapeSize];
+    regionDirection = new byte[landscapeSize];
+
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+    try {
+      ArrayList<Future<Boolean>> loading = new ArrayList<Future<Boolean>>();
+      for (int x = 0; x < REGION_COUNT_X; x++) {
+        final int regionX = x;
+        loading.add(
+            pool.submit(
+                new Callable<Boolean>() {
+                  @Override
+                  public Boolean call() {
+                    for (int y = 0; y < REGION_COUNT_Y; y++) {
+                      for (int floor = 0; floor < Game.REGION_FLOORS; floor++) {
+                        if (!loadLandscape(content, regionX, y, floor) && contentMembers != null)
+                          loadLandscape(contentMembers, regionX, y, floor);
+                      }
+                    }
+                    return true;
+                  }
+                }));
+      }
+      for (Future<Boolean> future : loading) future.get();
+    } catch (Exception e) {
+      e.printStackTrace();
+      return false;
+    } finally {
+      pool.shutdown();
+    }
     return true;
   }
 
+  /** Saves the decoded landscape, so later runs can read it instead of decoding it again */
+  public static boolean saveLandscapeCache(String fname, boolean member) {
+    return saveLandscapeCache(fname, member, getLandscapeSourceId());
+  }
+
+  static boolean saveLandscapeCache(String fname, boolean member, long sourceId) {
+    try {
+      RandomAccessFile file = new RandomAccessFile(fname, "rw");
+      try {
+        FileChannel channel = file.getChannel();
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(LANDSCAPE_CACHE_HEADER_SIZE);
+        header.putInt(LANDSCAPE_CACHE_MAGIC);
+        header.putInt(LANDSCAPE_CACHE_VERSION);
+        header.putInt(member ? 1 : 0);
+        header.putInt(REGION_COUNT_X);
+        header.putInt(REGION_COUNT_Y);
+        header.putInt(Game.REGION_FLOORS);
+        header.putInt(Game.REGION_SIZE);
+        header.putInt(regionCollisionMask.length);
+        header.putLong(sourceId);
+        header.flip();
+        writeFully(channel, header);
+        writeFully(channel, ByteBuffer.wrap(regionCollisionMask));
+        writeFully(channel, ByteBuffer.wrap(regionDirection));
+      } finally {
+        file.close();
+      }
+      return true;
+    } catch (Exception e) {
+      new File(fname).delete();
+      return false;
+    }
+  }
+
+  /**
+   * Reads the landscape from a cache file saved by saveLandscapeCache(). Returns false if there is
+   * no cache, or it was saved from other archives or for the other member setting.
+   */
+  public static boolean loadLandscapeCache(String fname, boolean member) {
+    return loadLandscapeCache(fname, member, getLandscapeSourceId());
+  }
+
+  static boolean loadLandscapeCache(String fname, boolean member, long sourceId) {
+    File f = new File(fname);
+    if (!f.exists()) return false;
+
+    try {
+      RandomAccessFile file = new RandomAccessFile(f, "r");
+      try {
+        int landscapeSize = getRegionOffset(REGION_COUNT_X, 0, 0);
+        if (file.length() != LANDSCAPE_CACHE_HEADER_SIZE + 2L * landscapeSize) return false;
+
+        if (file.readInt() != LANDSCAPE_CACHE_MAGIC
+            || file.readInt() != LANDSCAPE_CACHE_VERSION
+            || file.readInt() != (member ? 1 : 0)
+            || file.readInt() != REGION_COUNT_X
+            || file.readInt() != REGION_COUNT_Y
+            || file.readInt() != Game.REGION_FLOORS
+            || file.readInt() != Game.REGION_SIZE
+            || file.readInt() != landscapeSize
+            || file.readLong() != sourceId) return false;
+
+        byte[] collisionMask = new byte[landscapeSize];
+        byte[] direction = new byte[landscapeSize];
+        file.readFully(collisionMask);
+        file.readFully(direction);
+        regionCollisionMask = collisionMask;
+        regionDirection = direction;
+      } finally {
+        file.close();
+      }
+      return true;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the total length and CRC32 of the landscape archives, so a cache saved from other
+   * archives isn't loaded. Missing archives count as empty.
+   */
+  private static long getLandscapeSourceId() {
+    CRC32 crc = new CRC32();
+    long length = 0;
+    for (String source : LANDSCAPE_SOURCES) {
+      byte[] data = FileUtil.readFull(new File(source));
+      if (data == null) continue;
+      crc.update(data);
+      length += data.length;
+    }
+    return (length << 32) | crc.getValue();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws Exception {
+    while (buffer.hasRemaining()) channel.write(buffer);
+  }
+
   private static boolean loadLandscape(JContent content, int x, int y, int floor) {
+    int offset = getRegionOffset(x, y, floor);
     String mapName = "m" + floor + x / 10 + x % 10 + y / 10 + y % 10;
 
     JContentFile map = content.unpack(mapName + ".dat");
     if (map == null) {
       // Initialize collisions to collidable
       for (int i = 0; i < Game.REGION_SIZE; i++)
-        regionCollisionMask[x][y][floor][i] = Game.COLLISION_TILE;
+        regionCollisionMask[offset + i] = Game.COLLISION_TILE;
       return false;
     }
 
     // Clear collisions
     for (int i = 0; i < Game.REGION_SIZE; i++)
-      regionCollisionMask[x][y][floor][i] = Game.COLLISION_NONE;
+      regionCollisionMask[offset + i] = Game.COLLISION_NONE;
 
     for (int i = 0; i < Game.REGION_SIZE; i++) {
       int id = map.readUnsignedByte();
-      regionCollisionMask[x][y][floor][i] |=
+      regionCollisionMask[offset + i] |=
           (id > 0 && JGameData.wallObjectPassable[id - 1] && JGameData.wallObjectAdjacent[id - 1])
               ? Game.COLLISION_EASTWEST
               : Game.COLLISION_NONE;
     }
     for (int i = 0; i < Game.REGION_SIZE; i++) {
       int id = map.readUnsignedByte();
-      regionCollisionMask[x][y][floor][i] |=
+      regionCollisionMask[offset + i] |=
           (id > 0 && JGameData.wallObjectPassable[id - 1] && JGameData.wallObjectAdjacent[id - 1])
               ? Game.COLLISION_NORTHSOUTH
               : Game.COLLISION_NONE;
@@ -301,14 +467,14 @@ public class JGameData {
       if (val > 0) data[i] = 12000 + val;
 
       int id = data[i];
-      regionCollisionMask[x][y][floor][i] |=
+      regionCollisionMask[offset + i] |=
           (id > 0
                   && id < 12000
                   && JGameData.wallObjectPassable[id - 1]
                   && JGameData.wallObjectAdjacent[id - 1])
               ? Game.COLLISION_TILE
               : Game.COLLISION_NONE;
-      regionCollisionMask[x][y][floor][i] |=
+      regionCollisionMask[offset + i] |=
           (id >= 12000
                   && JGameData.wallObjectPassable[id - 12001]
                   && JGameData.wallObjectAdjacent[id - 12001])
@@ -334,12 +500,12 @@ public class JGameData {
       if (tileDecoration >= 128) {
         for (int i2 = 0; i2 < tileDecoration - 128; i2++) {
           if (prevValue > 0) {
-            regionCollisionMask[x][y][floor][i] |=
+            regionCollisionMask[offset + i] |=
                 (JGameData.tileAdjacent[prevValue - 1] != 0)
                     ? Game.COLLISION_TILE
                     : Game.COLLISION_NONE;
             // Two floors?
-            // regionCollisionMask[x][y][floor][i] |= (JGameData.tileType[prevValue - 1] == 2) ?
+            // regionCollisionMask[offset + i] |= (JGameData.tileType[prevValue - 1] == 2) ?
             // Game.COLLISION_TILE : Game.COLLISION_NONE;
           }
           i++;
@@ -347,12 +513,12 @@ public class JGameData {
         i--;
       } else {
         if (tileDecoration > 0) {
-          regionCollisionMask[x][y][floor][i] |=
+          regionCollisionMask[offset + i] |=
               (JGameData.tileAdjacent[tileDecoration - 1] != 0)
                   ? Game.COLLISION_TILE
                   : Game.COLLISION_NONE;
           // Two floors?
-          // regionCollisionMask[x][y][floor][i] |= (JGameData.tileType[tileDecoration - 1] == 2) ?
+          // regionCollisionMask[offset + i] |= (JGameData.tileType[tileDecoration - 1] == 2) ?
           // Game.COLLISION_TILE : Game.COLLISION_NONE;
         }
         prevValue = tileDecoration;
@@ -362,15 +528,13 @@ public class JGameData {
     for (int i = 0; i < Game.REGION_SIZE; i++) {
       int tileDirection = map.readUnsignedByte();
       if (tileDirection >= 128) {
-        for (int i2 = 0; i2 < tileDirection - 128; i2++) regionDirection[x][y][floor][i++] = 0;
+        for (int i2 = 0; i2 < tileDirection - 128; i2++) regionDirection[offset + i++] = 0;
         i--;
       } else {
-        regionDirection[x][y][floor][i] = (byte) tileDirection;
+        regionDirection[offset + i] = (byte) tileDirection;
       }
     }
 
-    System.out.println(mapName);
-
     map.close();
 
     return true;
@@ -26,8 +26,8 @@ import java.util.zip.GZIPOutputStream;
 
 public class ReplayEditor {
   private LinkedList<ReplayKeyPair> m_keys = new LinkedList<ReplayKeyPair>();
-  private LinkedList<ReplayPacket> m_incomingPackets = new LinkedList<ReplayPacket>();
-  private LinkedList<ReplayPacket> m_outgoingPackets = new LinkedList<ReplayPacket>();
+  private ReplayPacketStore m_incomingPackets = new ReplayPacketStore();
+  private ReplayPacketStore m_outgoingPackets = new ReplayPacketStore();
   private ReplayVersion m_replayVersion = new ReplayVersion();
   private ReplayMetadata m_replayMetadata = new ReplayMetadata();
   private byte[] m_inMetadata = new byte[32];
@@ -51,11 +51,11 @@ public class ReplayEditor {
     return m_metadata;
   }
 
-  public LinkedList<ReplayPacket> getIncomingPackets() {
+  public ReplayPacketStore getIncomingPackets() {
     return m_incomingPackets;
   }
 
-  public LinkedList<ReplayPacket> getOutgoingPackets() {
+  public ReplayPacketStore getOutgoingPackets() {
     return m_outgoingPackets;
   }
 
@@ -161,6 +161,7 @@ public class ReplayEditor {
       while ((replayPacket = incomingReader.readPacket(false)) != null) {
         m_incomingPackets.add(replayPacket);
       }
+      m_incomingPackets.trimToSize();
       // FileUtil.writeFull("output/in.raw", incomingReader.getData());
     } catch (Exception e) {
       e.printStackTrace();
@@ -184,6 +185,7 @@ public class ReplayEditor {
         while ((replayPacket = outgoingReader.readPacket(false)) != null) {
           m_outgoingPackets.add(replayPacket);
         }
+        m_outgoingPackets.trimToSize();
         // FileUtil.writeFull("output/out.raw", outgoingReader.getData());
       } catch (Exception e) {
         e.printStackTrace();
@@ -192,30 +194,31 @@ public class ReplayEditor {
 
     // Skew disconnect timestamps
     boolean firstLogin = false;
-    ReplayPacket previousPacket = null;
+    int previousTimestamp = 0;
     int skew = 0;
-    for (ReplayPacket packet : m_incomingPackets) {
-      packet.timestamp += skew;
-      if (packet.opcode == VIRTUAL_OPCODE_CONNECT) {
+    for (int i = 0; i < m_incomingPackets.size(); i++) {
+      int timestamp = m_incomingPackets.getTimestamp(i) + skew;
+      if (m_incomingPackets.getOpcode(i) == VIRTUAL_OPCODE_CONNECT) {
         if (firstLogin) {
-          int timestampDiff = packet.timestamp - previousPacket.timestamp;
+          int timestampDiff = timestamp - previousTimestamp;
           if (timestampDiff <= 400) {
             int offset = 401 - timestampDiff;
             skew += offset;
-            packet.timestamp += offset;
+            timestamp += offset;
             System.out.println(
                 "WARNING: Skewing timestamps by +"
                     + offset
                     + " ("
-                    + (packet.timestamp - offset)
+                    + (timestamp - offset)
                     + ":"
-                    + packet.timestamp
+                    + timestamp
                     + ")");
           }
         }
         firstLogin = true;
       }
-      previousPacket = packet;
+      m_incomingPackets.setTimestamp(i, timestamp);
+      previousTimestamp = timestamp;
     }
 
     return true;
@@ -255,13 +258,18 @@ public class ReplayEditor {
       DataOutputStream in =
           new DataOutputStream(
               new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(inFile))));
-      for (ReplayPacket packet : m_incomingPackets) {
-        if (packet.opcode == VIRTUAL_OPCODE_NOP) {
+      byte[] inSlab = m_incomingPackets.getSlab();
+      for (int i = 0; i < m_incomingPackets.size(); i++) {
+        int opcode = m_incomingPackets.getOpcode(i);
+        int timestamp = m_incomingPackets.getTimestamp(i);
+        int dataOffset = m_incomingPackets.getDataOffset(i);
+        int dataLength = m_incomingPackets.getDataLength(i);
+        if (opcode == VIRTUAL_OPCODE_NOP) {
           continue;
         }
 
         // Handle virtual packets
-        if (packet.opcode == VIRTUAL_OPCODE_CONNECT) {
+        if (opcode == VIRTUAL_OPCODE_CONNECT) {
           // Write disconnect
           if (m_replayVersion.version > 0 && disconnectCount > 0) {
             in.writeInt(lastTimestamp);
@@ -269,10 +277,10 @@ public class ReplayEditor {
           }
 
           disconnectCount++;
-          in.writeInt(packet.timestamp);
+          in.writeInt(timestamp);
           in.writeInt(1);
-          in.writeByte(packet.data[0]);
-          if ((packet.data[0] & 64) != 0) {
+          in.writeByte(inSlab[dataOffset]);
+          if ((inSlab[dataOffset] & 64) != 0) {
             isaac.reset();
             isaac.setKeys(m_keys.get(++keyIndex).keys);
           }
@@ -280,11 +288,10 @@ public class ReplayEditor {
         }
 
         // Write timestamp
-        in.writeInt(packet.timestamp);
+        in.writeInt(timestamp);
 
         // Handle normal packets
-        int packetLength = 1;
-        if (packet.data != null) packetLength += packet.data.length;
+        int packetLength = 1 + dataLength;
         if (packetLength >= 160) {
           in.writeInt(packetLength + 2);
           in.writeByte(packetLength / 256 + 160);
@@ -295,29 +302,29 @@ public class ReplayEditor {
         }
 
         // Write data
-        int encodedOpcode = (packet.opcode + isaac.getNextValue()) & 0xFF;
+        int encodedOpcode = (opcode + isaac.getNextValue()) & 0xFF;
         if (packetLength == 1) {
           in.writeByte(encodedOpcode);
         } else {
           if (packetLength < 160) {
             int dataSize = packetLength - 1;
-            in.writeByte(packet.data[dataSize - 1]);
+            in.writeByte(inSlab[dataOffset + dataSize - 1]);
             in.writeByte(encodedOpcode);
-            if (dataSize > 1) in.write(packet.data, 0, dataSize - 1);
+            if (dataSize > 1) in.write(inSlab, dataOffset, dataSize - 1);
           } else {
             in.writeByte(encodedOpcode);
-            in.write(packet.data, 0, packet.data.length);
+            in.write(inSlab, dataOffset, dataLength);
           }
         }
 
-        if (packet.timestamp < lastTimestamp) {
+        if (timestamp < lastTimestamp) {
           System.out.println("Timestamp is in the past");
         }
 
         // Update metadata length
-        m_replayMetadata.replayLength = packet.timestamp;
+        m_replayMetadata.replayLength = timestamp;
 
-        lastTimestamp = packet.timestamp;
+        lastTimestamp = timestamp;
       }
       in.writeInt(ReplayReader.TIMESTAMP_EOF);
       if (m_replayVersion.version >= 3) in.write(m_inMetadata);
@@ -329,17 +336,21 @@ public class ReplayEditor {
           new DataOutputStream(
               new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(outFile))));
       keyIndex = -1;
-      for (ReplayPacket packet : m_outgoingPackets) {
-        if (packet.opcode == VIRTUAL_OPCODE_NOP) {
+      byte[] outSlab = m_outgoingPackets.getSlab();
+      for (int i = 0; i < m_outgoingPackets.size(); i++) {
+        int opcode = m_outgoingPackets.getOpcode(i);
+        int timestamp = m_outgoingPackets.getTimestamp(i);
+        int dataOffset = m_outgoingPackets.getDataOffset(i);
+        int dataLength = m_outgoingPackets.getDataLength(i);
+        if (opcode == VIRTUAL_OPCODE_NOP) {
           continue;
         }
 
         // Write timestamp
-        out.writeInt(packet.timestamp);
+        out.writeInt(timestamp);
 
         // Handle normal packets
-        int packetLength = 1;
-        if (packet.data != null) packetLength += packet.data.length;
+        int packetLength = 1 + dataLength;
         if (packetLength >= 160) {
           out.writeInt(packetLength + 2);
           out.writeByte(packetLength / 256 + 160);
@@ -350,7 +361,7 @@ public class ReplayEditor {
         }
 
         // Write data
-        int encodedOpcode = packet.opcode;
+        int encodedOpcode = opcode;
         if (encodedOpcode == VIRTUAL_OPCODE_CONNECT) {
           encodedOpcode = 0;
           isaac.reset();
@@ -363,15 +374,15 @@ public class ReplayEditor {
         } else {
           if (packetLength < 160) {
             int dataSize = packetLength - 1;
-            out.writeByte(packet.data[dataSize - 1]);
+            out.writeByte(outSlab[dataOffset + dataSize - 1]);
             out.writeByte(encodedOpcode);
-            if (dataSize > 1) out.write(packet.data, 0, dataSize - 1);
+            if (dataSize > 1) out.write(outSlab, dataOffset, dataSize - 1);
           } else {
             out.writeByte(encodedOpcode);
-            out.write(packet.data, 0, packet.data.length);
+            out.write(outSlab, dataOffset, dataLength);
           }
         }
-        lastTimestamp = packet.timestamp;
+        lastTimestamp = timestamp;
       }
       out.writeInt(ReplayReader.TIMESTAMP_EOF);
       if (m_replayVersion.version >= 3) out.write(m_outMetadata);
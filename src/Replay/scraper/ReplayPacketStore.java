@@ -0,0 +1,220 @@
+/**
+ * rscminus
+ *
+ * <p>This file is part of rscminus.
+ *
+ * <p>rscminus is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * <p>rscminus is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * <p>You should have received a copy of the GNU General Public License along with rscminus. If not,
+ * see <http://www.gnu.org/licenses/>.
+ *
+ * <p>Authors: see <https://github.com/RSCPlus/rscminus>
+ */
+package Replay.scraper;
+
+import java.util.Arrays;
+
+/**
+ * Array-backed packet list used by the replay editor.
+ *
+ * <p>Packet headers are kept in parallel primitive arrays and every payload is appended to a single
+ * shared byte slab, so lookups by index are O(1) and lookups by timestamp are a binary search.
+ */
+public class ReplayPacketStore {
+  private static final int NO_DATA = -1;
+
+  private int m_size;
+  private int[] m_timestamps;
+  private int[] m_opcodes;
+  private int[] m_skipKeys;
+  private int[] m_dataOffsets;
+  private int[] m_dataLengths;
+
+  private int m_slabSize;
+  private byte[] m_slab;
+
+  public ReplayPacketStore() {
+    this(1024, 16384);
+  }
+
+  public ReplayPacketStore(int packetCapacity, int dataCapacity) {
+    packetCapacity = Math.max(packetCapacity, 16);
+    dataCapacity = Math.max(dataCapacity, 256);
+    m_timestamps = new int[packetCapacity];
+    m_opcodes = new int[packetCapacity];
+    m_skipKeys = new int[packetCapacity];
+    m_dataOffsets = new int[packetCapacity];
+    m_dataLengths = new int[packetCapacity];
+    m_slab = new byte[dataCapacity];
+  }
+
+  public int size() {
+    return m_size;
+  }
+
+  public boolean isEmpty() {
+    return m_size == 0;
+  }
+
+  /** Appends a copy of the packet to the store */
+  public void add(ReplayPacket packet) {
+    add(packet.timestamp, packet.opcode, packet.data, packet.skipKeys);
+  }
+
+  public void add(int timestamp, int opcode, byte[] data, int skipKeys) {
+    ensurePacketCapacity(m_size + 1);
+
+    m_timestamps[m_size] = timestamp;
+    m_opcodes[m_size] = opcode;
+    m_skipKeys[m_size] = skipKeys;
+    m_dataOffsets[m_size] = m_slabSize;
+
+    if (data == null) {
+      m_dataLengths[m_size] = NO_DATA;
+    } else {
+      ensureDataCapacity(m_slabSize + data.length);
+      System.arraycopy(data, 0, m_slab, m_slabSize, data.length);
+      m_dataLengths[m_size] = data.length;
+      m_slabSize += data.length;
+    }
+
+    m_size++;
+  }
+
+  public int getTimestamp(int index) {
+    checkIndex(index);
+    return m_timestamps[index];
+  }
+
+  public void setTimestamp(int index, int timestamp) {
+    checkIndex(index);
+    m_timestamps[index] = timestamp;
+  }
+
+  public int getOpcode(int index) {
+    checkIndex(index);
+    return m_opcodes[index];
+  }
+
+  public int getSkipKeys(int index) {
+    checkIndex(index);
+    return m_skipKeys[index];
+  }
+
+  public boolean hasData(int index) {
+    checkIndex(index);
+    return m_dataLengths[index] != NO_DATA;
+  }
+
+  /** Returns the payload length, or 0 if the packet has no payload */
+  public int getDataLength(int index) {
+    checkIndex(index);
+    return Math.max(m_dataLengths[index], 0);
+  }
+
+  /** Returns the offset of the packet payload inside {@link #getSlab()} */
+  public int getDataOffset(int index) {
+    checkIndex(index);
+    return m_dataOffsets[index];
+  }
+
+  /** Returns the shared payload slab, only valid until the next {@link #add} */
+  public byte[] getSlab() {
+    return m_slab;
+  }
+
+  public byte getDataByte(int index, int position) {
+    checkIndex(index);
+    if (position < 0 || position >= m_dataLengths[index])
+      throw new IndexOutOfBoundsException("Position: " + position + ", Index: " + index);
+    return m_slab[m_dataOffsets[index] + position];
+  }
+
+  /** Returns a copy of the packet payload, or null if the packet has no payload */
+  public byte[] getData(int index) {
+    checkIndex(index);
+    int length = m_dataLengths[index];
+    if (length == NO_DATA) return null;
+    int offset = m_dataOffsets[index];
+    return Arrays.copyOfRange(m_slab, offset, offset + length);
+  }
+
+  /** Materializes the packet at the given index */
+  public ReplayPacket get(int index) {
+    ReplayPacket packet = new ReplayPacket();
+    packet.timestamp = getTimestamp(index);
+    packet.opcode = m_opcodes[index];
+    packet.skipKeys = m_skipKeys[index];
+    packet.data = getData(index);
+    return packet;
+  }
+
+  /**
+   * Finds the first packet with a timestamp equal to or greater than the given timestamp.
+   *
+   * <p>Timestamps are expected to be non-decreasing, which holds after {@link
+   * ReplayEditor#importData} has skewed the disconnect timestamps.
+   *
+   * @return the packet index, or {@link #size()} if every packet is older
+   */
+  public int findFirstAtOrAfter(int timestamp) {
+    int low = 0;
+    int high = m_size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (m_timestamps[mid] < timestamp) low = mid + 1;
+      else high = mid;
+    }
+    return low;
+  }
+
+  /**
+   * Finds the last packet with a timestamp equal to or less than the given timestamp.
+   *
+   * @return the packet index, or -1 if every packet is newer
+   */
+  public int findLastAtOrBefore(int timestamp) {
+    return findFirstAtOrAfter(timestamp + 1) - 1;
+  }
+
+  /** Releases unused capacity once the store has been fully populated */
+  public void trimToSize() {
+    if (m_timestamps.length != m_size) {
+      m_timestamps = Arrays.copyOf(m_timestamps, m_size);
+      m_opcodes = Arrays.copyOf(m_opcodes, m_size);
+      m_skipKeys = Arrays.copyOf(m_skipKeys, m_size);
+      m_dataOffsets = Arrays.copyOf(m_dataOffsets, m_size);
+      m_dataLengths = Arrays.copyOf(m_dataLengths, m_size);
+    }
+    if (m_slab.length != m_slabSize) m_slab = Arrays.copyOf(m_slab, m_slabSize);
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= m_size)
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + m_size);
+  }
+
+  private void ensurePacketCapacity(int capacity) {
+    if (capacity <= m_timestamps.length) return;
+
+    int newCapacity = Math.max(capacity, m_timestamps.length + (m_timestamps.length >> 1));
+    m_timestamps = Arrays.copyOf(m_timestamps, newCapacity);
+    m_opcodes = Arrays.copyOf(m_opcodes, newCapacity);
+    m_skipKeys = Arrays.copyOf(m_skipKeys, newCapacity);
+    m_dataOffsets = Arrays.copyOf(m_dataOffsets, newCapacity);
+    m_dataLengths = Arrays.copyOf(m_dataLengths, newCapacity);
+  }
+
+  private void ensureDataCapacity(int capacity) {
+    if (capacity <= m_slab.length) return;
+
+    int newCapacity = Math.max(capacity, m_slab.length + (m_slab.length >> 1));
+    m_slab = Arrays.copyOf(m_slab, newCapacity);
+  }
+}
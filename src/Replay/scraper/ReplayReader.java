@@ -19,6 +19,7 @@
 package Replay.scraper;
 
 import Client.Logger;
+import Replay.common.BytePattern;
 import Replay.common.ISAACCipher;
 import Replay.game.PacketBuilder;
 import java.io.BufferedInputStream;
@@ -28,17 +29,21 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.Map;
-import java.util.Queue;
 import java.util.zip.GZIPInputStream;
 
 public class ReplayReader {
   private byte[] m_data;
-  private Queue<Integer> m_timestamps = new LinkedList<Integer>();
-  LinkedList<Integer> m_disconnectOffsets = new LinkedList<Integer>();
+  // Timestamp FIFO, one entry per packet
+  private int[] m_timestamps = new int[1024];
+  private int m_timestampHead;
+  private int m_timestampTail;
+
+  // Sorted disconnect offsets, m_disconnectCursor follows m_position
+  private int[] m_disconnectOffsets = new int[16];
+  private int m_disconnectCount;
+  private int m_disconnectCursor;
 
   private static final byte[] m_inputDisconnectPattern = {
     0x40, 0x05, 0x00, 0x6E, 0x00, 0x00, 0x00, 0x1A, 0x00, 0x6C, 0x03, 0x00, 0x00, 0x57, 0x65, 0x6C,
@@ -49,6 +54,20 @@ public class ReplayReader {
     0x00, 0x01, 0x00, 0x00, 0x00, (byte) 0xEB
   };
 
+  // Bytes 0, 3 and 9 of the login pattern vary, the zero bytes before 7 may also be 1
+  private static final BytePattern m_inputDisconnectSearch =
+      new BytePattern(m_inputDisconnectPattern)
+          .any(0)
+          .any(3)
+          .any(9)
+          .allow(2, 0x01)
+          .allow(4, 0x01)
+          .allow(5, 0x01)
+          .allow(6, 0x01);
+
+  private static final BytePattern m_outputDisconnectSearch =
+      new BytePattern(m_outputDisconnectPattern);
+
   // Reader state
   private boolean m_loggedIn;
   private boolean m_forceQuit;
@@ -60,6 +79,8 @@ public class ReplayReader {
 
   public static final int TIMESTAMP_EOF = -1;
 
+  private int m_endTimestamp;
+
   public byte[] getData() {
     return m_data;
   }
@@ -72,6 +93,11 @@ public class ReplayReader {
     return m_data.length;
   }
 
+  /** Returns the timestamp of the last packet in the replay */
+  public int getEndTimestamp() {
+    return m_endTimestamp;
+  }
+
   public boolean open(
       File f,
       ReplayVersion replayVersion,
@@ -82,71 +108,94 @@ public class ReplayReader {
       byte[] checksum,
       boolean outgoing)
       throws IOException, NoSuchAlgorithmException {
-    int size = calculateSize(f);
+    m_outgoing = outgoing;
 
-    if (size == 0) return false;
+    // Read replay data, calculate the checksum and map timestamps in a single pass
+    MessageDigest messageDigest = null;
+    if (replayVersion.version >= 3) messageDigest = MessageDigest.getInstance("SHA-256");
 
-    // Calculate checksum
-    if (replayVersion.version >= 3) {
-      MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
-      DataInputStream in =
-          new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(f))));
-      m_data = new byte[calculateRealSize(f)];
-      in.read(m_data);
+    DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(f))));
+    m_data = new byte[(int) Math.min(Math.max(f.length() * 4, 65536), Integer.MAX_VALUE - 8)];
+    int[] timestampOffsets = new int[1024];
+    int[] timestampValues = new int[1024];
+    int timestampCount = 0;
+    byte[] header = new byte[8];
+    int size = 0;
+    boolean foundEOF = false;
+    try {
+      for (; ; ) {
+        in.readFully(header, 0, 4);
+        int timestamp = readInt(header, 0);
+        if (timestamp == TIMESTAMP_EOF) {
+          if (messageDigest != null) messageDigest.update(header, 0, 4);
+          foundEOF = true;
+          break;
+        }
+        in.readFully(header, 4, 4);
+        int length = readInt(header, 4);
 
-      int length = in.read(fileMetadata);
-      if (length < fileMetadata.length) {
-        System.arraycopy(fileMetadata, 0, metadata, 0, metadata.length);
-        for (int i = 0; i < fileMetadata.length; i++) fileMetadata[i] = 0x00;
-      } else {
-        in.read(metadata);
-      }
+        if (length > 0) {
+          if (size + length > m_data.length)
+            m_data = Arrays.copyOf(m_data, Math.max(size + length, m_data.length * 2));
+          in.readFully(m_data, size, length);
+        }
 
-      in.close();
-      System.arraycopy(messageDigest.digest(m_data), 0, checksum, 0, checksum.length);
-    }
+        if (messageDigest != null) {
+          messageDigest.update(header, 0, 8);
+          if (length > 0) messageDigest.update(m_data, size, length);
+        }
 
-    // Allocate space for data without replay headers
-    m_data = new byte[size];
-    m_outgoing = outgoing;
+        // Packets without data share an offset with the next packet, the latest timestamp wins
+        if (timestampCount > 0 && timestampOffsets[timestampCount - 1] == size) {
+          timestampValues[timestampCount - 1] = timestamp;
+        } else {
+          if (timestampCount == timestampOffsets.length) {
+            timestampOffsets = Arrays.copyOf(timestampOffsets, timestampCount * 2);
+            timestampValues = Arrays.copyOf(timestampValues, timestampCount * 2);
+          }
+          timestampOffsets[timestampCount] = size;
+          timestampValues[timestampCount] = timestamp;
+          timestampCount++;
+        }
 
-    // Read replay data
-    DataInputStream in =
-        new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(f))));
-    int timestamp = 0;
-    int lastTimestamp = timestamp;
-    int offset = 0;
-    int lastOffset = offset;
-    LinkedHashMap<Integer, Integer> timestamps = new LinkedHashMap<Integer, Integer>();
-    while ((timestamp = in.readInt()) != TIMESTAMP_EOF) {
-      timestamps.put(offset, timestamp);
-      int length = in.readInt();
-
-      // Detect extreme disconnects that may be missed
-      // int timestampDiff = timestamp - lastTimestamp;
-      // if (timestampDiff >= 500) {
-      //    m_disconnectOffsets.add(offset);
-      // Logger.Warn("Using potential extreme disconnect point at offset " +
-      // offset);
-      //    Sleep.sleep(10000);
-      // }
-
-      if (length > 0) {
-        in.read(m_data, offset, length);
-        offset += length;
+        if (length > 0) size += length;
+
+        // Update replay length
+        m_endTimestamp = timestamp;
       }
+    } catch (IOException e) {
+      // The replay was not closed properly, use everything up to the last complete packet
+      Logger.Warn("Replay data ends unexpectedly, trimming replay");
+    }
+
+    if (size == 0) {
+      in.close();
+      return false;
+    }
 
-      // We have reached the end of readable data
-      if (offset >= size) break;
+    replayMetadata.replayLength = m_endTimestamp;
 
-      // Update replay length
-      replayMetadata.replayLength = timestamp;
+    // Packets after the last data carry no bytes to map a timestamp to
+    if (timestampOffsets[timestampCount - 1] >= size) timestampCount--;
 
-      lastTimestamp = timestamp;
+    // Read file metadata
+    if (messageDigest != null) {
+      int length = foundEOF ? readAvailable(in, fileMetadata) : 0;
+      if (length < fileMetadata.length) {
+        System.arraycopy(fileMetadata, 0, metadata, 0, metadata.length);
+        for (int i = 0; i < fileMetadata.length; i++) fileMetadata[i] = 0x00;
+      } else {
+        readAvailable(in, metadata);
+      }
+      System.arraycopy(messageDigest.digest(), 0, checksum, 0, checksum.length);
     }
 
     in.close();
 
+    // Trim data to the exact size, the parser uses the array length as EOF
+    if (m_data.length != size) m_data = Arrays.copyOf(m_data, size);
+
     m_loggedIn = false;
     m_position = 0;
     m_keys = keys;
@@ -156,29 +205,24 @@ public class ReplayReader {
     // Our initial recording implementation had problems with this
     if (!m_outgoing) {
       // Skip first login
-      m_position = 1;
-      while (!isEOF()) {
-        if (loginBinarySearch()) {
-          m_disconnectOffsets.add(m_position);
-          // Logger.Debug("Disconnect found at offset " + m_position);
-        }
-        skip(1);
+      for (int offset : m_inputDisconnectSearch.findAll(m_data, 1)) {
+        addDisconnectOffset(offset);
+        // Logger.Debug("Disconnect found at offset " + offset);
       }
-      m_position = 0;
     }
 
     // Map timestamps for faster import
-    Iterator<Map.Entry<Integer, Integer>> iterator = timestamps.entrySet().iterator();
-    Map.Entry<Integer, Integer> entry = iterator.next();
+    int timestampIndex = 0;
+    int timestamp = 0;
     int timestampOffset = 0;
     while (!isEOF()) {
       // Handle disconnect
-      if (m_disconnectOffsets.contains(m_position)) {
+      if (isDisconnectOffset(m_position)) {
         m_loggedIn = false;
-      } else if (m_disconnectOffsets.contains(m_position + 1)) {
+      } else if (isDisconnectOffset(m_position + 1)) {
         m_loggedIn = false;
         m_position++;
-      } else if (m_disconnectOffsets.contains(m_position + 2)) {
+      } else if (isDisconnectOffset(m_position + 2)) {
         m_loggedIn = false;
         m_position += 2;
       }
@@ -193,16 +237,16 @@ public class ReplayReader {
         m_loggedIn = true;
       }
 
-      while (timestampOffset >= entry.getKey()) {
-        timestamp = entry.getValue();
-        if (!iterator.hasNext()) {
+      while (timestampOffset >= timestampOffsets[timestampIndex]) {
+        timestamp = timestampValues[timestampIndex];
+        if (timestampIndex + 1 >= timestampCount) {
           break;
         }
-        entry = iterator.next();
+        timestampIndex++;
       }
 
       // Add timestamp to FIFO
-      m_timestamps.add(timestamp);
+      addTimestamp(timestamp);
     }
     m_position = 0;
     m_loggedIn = false;
@@ -210,41 +254,51 @@ public class ReplayReader {
     // Build disconnect map for out.bin because we didn't handle it
     // We detect the login information packet
     if (outgoing) {
-      while (!isEOF()) {
-        if (binarySearch(m_outputDisconnectPattern)) {
-          m_disconnectOffsets.add(m_position);
-        }
-        skip(1);
+      for (int offset : m_outputDisconnectSearch.findAll(m_data, 0)) {
+        addDisconnectOffset(offset);
       }
-      m_position = 0;
     }
 
     return true;
   }
 
-  private boolean loginBinarySearch() {
-    if (m_data.length - m_position < m_inputDisconnectPattern.length) return false;
-
-    for (int i = 0; i < m_inputDisconnectPattern.length; i++) {
-      if (i == 0 || i == 3 || i == 9) continue;
-
-      int offset = m_position + i;
-      int searchValue = m_inputDisconnectPattern[i];
-      if (searchValue == 0x00 && i <= 6) {
-        if (!(m_data[offset] == 0x00 || m_data[offset] == 0x01)) return false;
-      } else {
-        if (m_data[offset] != searchValue) return false;
+  private void addTimestamp(int timestamp) {
+    if (m_timestampTail == m_timestamps.length) {
+      if (m_timestampHead > 0) {
+        System.arraycopy(
+            m_timestamps, m_timestampHead, m_timestamps, 0, m_timestampTail - m_timestampHead);
+        m_timestampTail -= m_timestampHead;
+        m_timestampHead = 0;
       }
+      if (m_timestampTail == m_timestamps.length)
+        m_timestamps = Arrays.copyOf(m_timestamps, m_timestamps.length * 2);
     }
-    return true;
+    m_timestamps[m_timestampTail++] = timestamp;
+  }
+
+  private int pollTimestamp() {
+    if (m_timestampHead == m_timestampTail)
+      throw new IllegalStateException("No timestamp left for packet at offset " + m_position);
+    return m_timestamps[m_timestampHead++];
+  }
+
+  private void addDisconnectOffset(int offset) {
+    if (m_disconnectCount > 0 && m_disconnectOffsets[m_disconnectCount - 1] >= offset) return;
+    if (m_disconnectCount == m_disconnectOffsets.length)
+      m_disconnectOffsets = Arrays.copyOf(m_disconnectOffsets, m_disconnectCount * 2);
+    m_disconnectOffsets[m_disconnectCount++] = offset;
   }
 
-  private boolean binarySearch(byte[] pattern) {
-    for (int i = 0; i < pattern.length; i++) {
-      int offset = m_position + i;
-      if (offset >= m_data.length || m_data[offset] != pattern[i]) return false;
+  private boolean isDisconnectOffset(int offset) {
+    // Lookups only go backwards when the reader rewinds, so resume from the last lookup otherwise
+    if (m_disconnectCursor > 0 && m_disconnectOffsets[m_disconnectCursor - 1] >= offset) {
+      int index = Arrays.binarySearch(m_disconnectOffsets, 0, m_disconnectCount, offset);
+      m_disconnectCursor = index >= 0 ? index : -(index + 1);
     }
-    return true;
+    while (m_disconnectCursor < m_disconnectCount
+        && m_disconnectOffsets[m_disconnectCursor] < offset) m_disconnectCursor++;
+    return m_disconnectCursor < m_disconnectCount
+        && m_disconnectOffsets[m_disconnectCursor] == offset;
   }
 
   private boolean verifyLogin() {
@@ -268,24 +322,24 @@ public class ReplayReader {
 
     int packetTimestamp;
     if (peek) packetTimestamp = 0; // m_timestamps.peek();
-    else packetTimestamp = m_timestamps.poll();
+    else packetTimestamp = pollTimestamp();
 
     // Check for disconnect for outgoing (workaround)
     if (m_outgoing) {
       int oldPosition = m_position;
       readPacketLength();
-      if (m_disconnectOffsets.contains(m_position)) m_loggedIn = false;
+      if (isDisconnectOffset(m_position)) m_loggedIn = false;
       m_position = oldPosition;
     } else if (!peek) {
       // Logger.Debug("Checking disconnect at " + m_position);
       // Handle disconnect
-      if (m_disconnectOffsets.contains(m_position)) {
+      if (isDisconnectOffset(m_position)) {
         m_loggedIn = false;
-      } else if (m_disconnectOffsets.contains(m_position + 1)) {
+      } else if (isDisconnectOffset(m_position + 1)) {
         // This is safe because no packet can ever be 1 byte long
         m_loggedIn = false;
         m_position++;
-      } else if (m_disconnectOffsets.contains(m_position + 2)) {
+      } else if (isDisconnectOffset(m_position + 2)) {
         // This is unsafe because a 1 byte packet can be skipped, but since we are disconnecting
         // it may not matter much anyway since the packet is likely fragmented from the way
         // the server sends packets.
@@ -427,41 +481,20 @@ public class ReplayReader {
     return length;
   }
 
-  private int calculateRealSize(File f) {
-    int size = 0;
-    try {
-      DataInputStream in =
-          new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(f))));
-      while (in.readInt() != TIMESTAMP_EOF) {
-        int length = in.readInt();
-        if (length > 0) {
-          size += length;
-          in.skipBytes(length);
-        }
-        size += 8;
-      }
-      in.close();
-    } catch (Exception e) {
-    }
-    size += 4;
-    return size;
+  private static int readInt(byte[] data, int offset) {
+    return ((data[offset] & 0xFF) << 24)
+        | ((data[offset + 1] & 0xFF) << 16)
+        | ((data[offset + 2] & 0xFF) << 8)
+        | (data[offset + 3] & 0xFF);
   }
 
-  private int calculateSize(File f) {
-    int size = 0;
-    try {
-      DataInputStream in =
-          new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(f))));
-      while (in.readInt() != TIMESTAMP_EOF) {
-        int length = in.readInt();
-        if (length > 0) {
-          size += length;
-          in.skipBytes(length);
-        }
-      }
-      in.close();
-    } catch (Exception e) {
+  private static int readAvailable(DataInputStream in, byte[] data) throws IOException {
+    int offset = 0;
+    while (offset < data.length) {
+      int length = in.read(data, offset, data.length - offset);
+      if (length < 0) break;
+      offset += length;
     }
-    return size;
+    return offset;
   }
 }
@@ -0,0 +1,203 @@
+package Game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.awt.Graphics;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Binds the Client and Panel hook handles to stubs with the same shape as the client methods they
+ * replace, and calls them through the hooks, so a call site that doesn't match fails here.
+ */
+public class HookHandlesTest {
+
+	private static final List<String> calls = new ArrayList<String>();
+
+	/** Shaped like the client classes client and e */
+	static class StubClient {
+		final void showInputPopup(String[] text, int unused, int type, boolean hasInput) { calls.add("showInputPopup"); }
+		final void displayMessage(boolean unused, String a, int b, String message, int type, int c, String d, String e) { calls.add("displayMessage"); }
+		final void closeConnection(boolean sendPacket, int unused) { calls.add("closeConnection"); }
+		final void login(int unused, String pass, String user, boolean reconnecting) { calls.add("login"); }
+		final void logout(int unused) { calls.add("logout"); }
+		public final String getParameter(String name) { calls.add("getParameter"); return "value"; }
+		final void preGameDisplay(int unused) { calls.add("preGameDisplay"); }
+		final void resetTimings(int unused) { calls.add("resetTimings"); }
+
+		static final String formatText(int length, byte unused, String text) { calls.add("formatText"); return text; }
+	}
+
+	/** Shaped like the client's stream class da */
+	static class StubStream {
+		final void loseConnection(boolean close) { calls.add("loseConnection"); }
+	}
+
+	/** Shaped like the client's surface class ua */
+	static class StubSurface {
+		final void clearScreen(boolean unused) { calls.add("clearScreen"); }
+		final void drawGraphics(Graphics g, int x, int unused, int y) { calls.add("drawGraphics"); }
+		final void drawBox(int x, byte unused, int color, int y, int h, int w) { calls.add("drawBox"); }
+		final void drawLineHoriz(int w, int color, int x, int y, byte unused) { calls.add("drawLineHoriz"); }
+		final void drawLineVert(int x, int y, int color, int h, int unused) { calls.add("drawLineVert"); }
+	}
+
+	/** Shaped like the client's model class ca */
+	static class StubModel {
+		final void rotate(int a, int unused, int b, int c) { calls.add("rotate"); }
+		final void setLight(int a, int b, int c, int d, boolean e, int f, int unused) { calls.add("setLight"); }
+	}
+
+	/** Shaped like the client's panel class qa */
+	static class StubPanel {
+		StubSurface renderer = new StubSurface();
+		int colorLeftRight;
+		int colorTopBottom;
+		int[] toggled = new int[4];
+
+		final void drawPanel(byte unused) { calls.add("drawPanel"); }
+		final void setFocus(int id, int unused) { calls.add("setFocus"); }
+		final void handleMouse(int a, int b, int unused, int c, int d) { calls.add("handleMouse"); }
+		final void handleKey(int unused, int key) { calls.add("handleKey"); }
+		final boolean isSelected(byte unused, int id) { calls.add("isSelected"); return true; }
+		final int isToggle(int unused, int id) { calls.add("isToggle"); return 2; }
+		final int addButtonBack(int unused, int w, int h, int x, int y) { calls.add("addButtonBack"); return 3; }
+		final int addButton(int x, int w, int y, int unused, int h) { calls.add("addButton"); return 4; }
+		final int addInput(int unused, int capacity, int w, boolean background, int y, int font, int h, boolean masked, int x) { calls.add("addInput"); return 5; }
+		final void setControlText(int id, String text, int unused) { calls.add("setControlText"); }
+		final String getControlText(int id, int unused) { calls.add("getControlText"); return "text"; }
+		final int addCenterText(boolean background, byte unused, int font, int x, String text, int y) { calls.add("addCenterText"); return 6; }
+	}
+
+	private Object clientInstance;
+	private Object clientStream;
+	private Object rendererInstance;
+	private int clientState;
+
+	@Before
+	public void setUp() throws Exception {
+		calls.clear();
+		clientInstance = Client.instance;
+		clientStream = Client.clientStream;
+		rendererInstance = Renderer.instance;
+		clientState = Client.state;
+		Client.instance = new StubClient();
+		Client.clientStream = new StubStream();
+		Renderer.instance = new StubSurface();
+
+		Class<?> c = StubClient.class;
+		Reflection.showInputPopupHandle = handle(c, "showInputPopup", String[].class, int.class, int.class, boolean.class);
+		Reflection.displayMessageHandle = handle(c, "displayMessage", boolean.class, String.class, int.class, String.class, int.class, int.class, String.class, String.class);
+		Reflection.closeConnectionHandle = handle(c, "closeConnection", boolean.class, int.class);
+		Reflection.loginHandle = handle(c, "login", int.class, String.class, String.class, boolean.class);
+		Reflection.logoutHandle = handle(c, "logout", int.class);
+		Reflection.getParameterHandle = handle(c, "getParameter", String.class);
+		Reflection.preGameDisplayHandle = handle(c, "preGameDisplay", int.class);
+		Reflection.resetTimingsHandle = handle(c, "resetTimings", int.class);
+		Reflection.formatTextHandle = handle(c, "formatText", int.class, byte.class, String.class);
+		Reflection.loseConnectionHandle = handle(StubStream.class, "loseConnection", boolean.class);
+
+		Class<?> s = StubSurface.class;
+		Reflection.clearScreenHandle = handle(s, "clearScreen", boolean.class);
+		Reflection.drawGraphicsHandle = handle(s, "drawGraphics", Graphics.class, int.class, int.class, int.class);
+		Reflection.drawBoxHandle = handle(s, "drawBox", int.class, byte.class, int.class, int.class, int.class, int.class);
+		Reflection.drawLineHorizHandle = handle(s, "drawLineHoriz", int.class, int.class, int.class, int.class, byte.class);
+		Reflection.drawLineVertHandle = handle(s, "drawLineVert", int.class, int.class, int.class, int.class, int.class);
+
+		Class<?> m = StubModel.class;
+		Reflection.gameModelRotateHandle = handle(m, "rotate", int.class, int.class, int.class, int.class);
+		Reflection.gameModelSetLightHandle = handle(m, "setLight", int.class, int.class, int.class, int.class, boolean.class, int.class, int.class);
+
+		Class<?> p = StubPanel.class;
+		Reflection.drawPanelHandle = handle(p, "drawPanel", byte.class);
+		Reflection.setFocusHandle = handle(p, "setFocus", int.class, int.class);
+		Reflection.handleMouseHandle = handle(p, "handleMouse", int.class, int.class, int.class, int.class, int.class);
+		Reflection.handleKeyHandle = handle(p, "handleKey", int.class, int.class);
+		Reflection.isSelectedHandle = handle(p, "isSelected", byte.class, int.class);
+		Reflection.isToggleHandle = handle(p, "isToggle", int.class, int.class);
+		Reflection.addButtonBackHandle = handle(p, "addButtonBack", int.class, int.class, int.class, int.class, int.class);
+		Reflection.addButtonHandle = handle(p, "addButton", int.class, int.class, int.class, int.class, int.class);
+		Reflection.addInputHandle = handle(p, "addInput", int.class, int.class, int.class, boolean.class, int.class, int.class, int.class, boolean.class, int.class);
+		Reflection.setControlTextHandle = handle(p, "setControlText", int.class, String.class, int.class);
+		Reflection.getControlTextHandle = handle(p, "getControlText", int.class, int.class);
+		Reflection.addCenterTextHandle = handle(p, "addCenterText", boolean.class, byte.class, int.class, int.class, String.class, int.class);
+		Reflection.menuRenderer = field(p, "renderer");
+		Reflection.colorLeftRight = field(p, "colorLeftRight");
+		Reflection.colorTopBottom = field(p, "colorTopBottom");
+		Reflection.menuToggled = field(p, "toggled");
+	}
+
+	@After
+	public void tearDown() {
+		Client.instance = clientInstance;
+		Client.clientStream = clientStream;
+		Renderer.instance = rendererInstance;
+		Client.state = clientState;
+	}
+
+	private static MethodHandle handle(Class<?> c, String name, Class<?>... params) throws Exception {
+		Method method = c.getDeclaredMethod(name, params);
+		return Reflection.unreflect(method);
+	}
+
+	private static Field field(Class<?> c, String name) throws Exception {
+		Field field = c.getDeclaredField(name);
+		field.setAccessible(true);
+		return field;
+	}
+
+	@Test
+	public void testClientHooks() {
+		Client.gameModelRotate(new StubModel(), 1);
+		Client.gameModelSetLight(new StubModel());
+		assertTrue(Client.showNativeInputPopup(0, new String[] { "a" }, true));
+		Client.state = Client.STATE_GAME;
+		Client.displayMessage("message", 0);
+		Client.closeConnection(true);
+		Client.loseConnection(true);
+		Client.login(false, "user", "pass");
+		Client.logout();
+		assertEquals("value", Client.getParameter("name"));
+		Client.clearScreen();
+		Client.drawGraphics();
+		Client.preGameDisplay();
+		Client.resetTimings();
+		assertEquals("text", Client.formatText("text", 4));
+
+		assertEquals(Arrays.asList("rotate", "setLight", "showInputPopup", "displayMessage",
+				"closeConnection", "loseConnection", "login", "logout", "getParameter", "clearScreen",
+				"drawGraphics", "preGameDisplay", "resetTimings", "formatText"), calls);
+	}
+
+	@Test
+	public void testPanelHooks() {
+		StubPanel panel = new StubPanel();
+		panel.toggled[1] = 1;
+		Panel.drawPanel(panel);
+		Panel.drawCheckBox(panel, 1, 0, 0, 1, 1);
+		Panel.setFocus(panel, 1);
+		Panel.handleMouse(panel, 0, 0, 0, 0);
+		Panel.handleKey(panel, 0);
+		assertTrue(Panel.isSelected(panel, 1));
+		assertEquals(2, Panel.isToggle(panel, 1));
+		assertEquals(3, Panel.addButtonBackTo(panel, 0, 0, 1, 1));
+		assertEquals(4, Panel.addButtonTo(panel, 0, 0, 1, 1));
+		assertEquals(5, Panel.addInputTo(panel, 0, 0, 1, 1, 1, 1, false, false));
+		Panel.setControlText(panel, 1, "text");
+		assertEquals("text", Panel.getControlText(panel, 1));
+		assertEquals(6, Panel.addCenterTextTo(panel, 0, 0, "text", 1, false));
+
+		assertEquals(Arrays.asList("drawPanel", "drawBox", "drawLineHoriz", "drawLineVert",
+				"drawLineHoriz", "drawLineVert", "drawLineHoriz", "drawLineHoriz", "setFocus",
+				"handleMouse", "handleKey", "isSelected", "isToggle", "addButtonBack", "addButton",
+				"addInput", "setControlText", "getControlText", "addCenterText"), calls);
+	}
+
+}
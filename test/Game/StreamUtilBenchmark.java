@@ -0,0 +1,63 @@
+package Game;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+
+/**
+ * Times one buffer method called through Method.invoke, the way StreamUtil used to, against the
+ * MethodHandle it calls now. Run with "ant benchmark".
+ */
+public class StreamUtilBenchmark {
+
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 10;
+	private static final int CALLS = 5000000;
+
+	/** Shaped like the client's buffer class tb */
+	static class StubBuffer {
+		int offset;
+		byte[] data = new byte[256];
+
+		final void putByte(int n, int unused) {
+			data[offset++ & 0xFF] = (byte) n;
+		}
+	}
+
+	public static void main(String[] args) throws Throwable {
+		StubBuffer buffer = new StubBuffer();
+		Method method = StubBuffer.class.getDeclaredMethod("putByte", int.class, int.class);
+		method.setAccessible(true);
+		MethodHandle handle = Reflection.unreflect(method);
+
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			reflect(method, buffer);
+			invokeExact(handle, buffer);
+		}
+
+		long reflect = 0;
+		long invokeExact = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			reflect += reflect(method, buffer);
+			invokeExact += invokeExact(handle, buffer);
+		}
+
+		System.out.println(
+				String.format("Method.invoke: %.2f ns/call", (double) reflect / ROUNDS / CALLS));
+		System.out.println(
+				String.format("invokeExact:   %.2f ns/call", (double) invokeExact / ROUNDS / CALLS));
+		System.out.println("(offset " + buffer.offset + ")");
+	}
+
+	private static long reflect(Method method, Object buffer) throws Exception {
+		long start = System.nanoTime();
+		for (int i = 0; i < CALLS; i++) method.invoke(buffer, i, -117);
+		return System.nanoTime() - start;
+	}
+
+	private static long invokeExact(MethodHandle handle, Object buffer) throws Throwable {
+		long start = System.nanoTime();
+		for (int i = 0; i < CALLS; i++) handle.invokeExact(buffer, i, -117);
+		return System.nanoTime() - start;
+	}
+
+}
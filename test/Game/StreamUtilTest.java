@@ -0,0 +1,147 @@
+package Game;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Binds every StreamUtil handle to a stub with the same shape as the client method it replaces, so
+ * a call site that doesn't match its handle fails here instead of being ignored in game.
+ */
+public class StreamUtilTest {
+
+	private static final List<String> calls = new ArrayList<String>();
+
+	/** Shaped like the client's stream classes b and da */
+	static class StubStream {
+		StubBuffer buffer = new StubBuffer();
+
+		final void newPacket(int id, int unused) { calls.add("newPacket"); }
+		final void sendPacket(int unused) { calls.add("sendPacket"); }
+		final void flushPacket(int unused) { calls.add("flushPacket"); }
+		final void initIsaac(byte unused, int[] keys) { calls.add("initIsaac"); }
+		final int readResponse(boolean unused) { calls.add("readResponse"); return 7; }
+		final void readBytes(byte[] dest, int length, int offset, int unused) { calls.add("readBytes"); }
+	}
+
+	/** Shaped like the client's buffer class tb */
+	static class StubBuffer {
+		int offset;
+		byte[] data = new byte[16];
+
+		final int getUnsignedByte(byte unused) { calls.add("getUnsignedByte"); return 1; }
+		final int getUnsignedShort(int unused) { calls.add("getUnsignedShort"); return 2; }
+		final int getUnsignedInt3(int unused) { calls.add("getUnsignedInt3"); return 3; }
+		final void putByte(int n, int unused) { calls.add("putByte"); }
+		final void putShort(int unused, int n) { calls.add("putShort"); }
+		final void putInt(int unused, int n) { calls.add("putInt"); }
+		final void putStr(byte unused, String s) { calls.add("putStr"); }
+		final void putInt3Byte(int n, byte unused) { calls.add("putInt3Byte"); }
+		final void putBytes(int start, int unused, int offset, byte[] block) { calls.add("putBytes"); }
+		final void setBlockLength(int length, int unused) { calls.add("setBlockLength"); }
+		final void encrypt(BigInteger modulus, int unused, BigInteger exponent) { calls.add("encrypt"); }
+		final void xteaEncrypt(byte unused, int start, int[] keys, int end) { calls.add("xteaEncrypt"); }
+
+		static final void putRandom(int unused, StubBuffer buffer) { calls.add("putRandom"); }
+	}
+
+	private StubStream stream;
+
+	@Before
+	public void setUp() throws Exception {
+		calls.clear();
+		stream = new StubStream();
+		Client.clientStream = stream;
+
+		Class<?> s = StubStream.class;
+		Class<?> b = StubBuffer.class;
+		Reflection.newPacketHandle = handle(s, "newPacket", int.class, int.class);
+		Reflection.sendPacketHandle = handle(s, "sendPacket", int.class);
+		Reflection.flushPacketHandle = handle(s, "flushPacket", int.class);
+		Reflection.initIsaacHandle = handle(s, "initIsaac", byte.class, int[].class);
+		Reflection.readResponseHandle = handle(s, "readResponse", boolean.class);
+		Reflection.readBytesHandle = handle(s, "readBytes", byte[].class, int.class, int.class, int.class);
+		Reflection.getUnsignedByteHandle = handle(b, "getUnsignedByte", byte.class);
+		Reflection.getUnsignedShortHandle = handle(b, "getUnsignedShort", int.class);
+		Reflection.getUnsignedInt3Handle = handle(b, "getUnsignedInt3", int.class);
+		Reflection.putByteHandle = handle(b, "putByte", int.class, int.class);
+		Reflection.putShortHandle = handle(b, "putShort", int.class, int.class);
+		Reflection.putIntHandle = handle(b, "putInt", int.class, int.class);
+		Reflection.putStrHandle = handle(b, "putStr", byte.class, String.class);
+		Reflection.putInt3ByteHandle = handle(b, "putInt3Byte", int.class, byte.class);
+		Reflection.putBytesHandle = handle(b, "putBytes", int.class, int.class, int.class, byte[].class);
+		Reflection.setBlockLengthHandle = handle(b, "setBlockLength", int.class, int.class);
+		Reflection.encryptHandle = handle(b, "encrypt", BigInteger.class, int.class, BigInteger.class);
+		Reflection.xteaEncryptHandle = handle(b, "xteaEncrypt", byte.class, int.class, int[].class, int.class);
+		Reflection.putRandomHandle = handle(b, "putRandom", int.class, StubBuffer.class);
+		Reflection.getBufferField = Reflection.unreflectGetter(field(s, "buffer"));
+		Reflection.getBufferOffset = Reflection.unreflectGetter(field(b, "offset"));
+		Reflection.setBufferOffset = Reflection.unreflectSetter(field(b, "offset"));
+		Reflection.getBufferByteArray = Reflection.unreflectGetter(field(b, "data"));
+	}
+
+	private static java.lang.invoke.MethodHandle handle(Class<?> c, String name, Class<?>... params)
+			throws Exception {
+		Method method = c.getDeclaredMethod(name, params);
+		return Reflection.unreflect(accessible(method));
+	}
+
+	private static Field field(Class<?> c, String name) throws Exception {
+		return accessible(c.getDeclaredField(name));
+	}
+
+	private static <T extends AccessibleObject> T accessible(T member) {
+		member.setAccessible(true);
+		return member;
+	}
+
+	@Test
+	public void testStreamCalls() {
+		StreamUtil.newPacket(1);
+		StreamUtil.sendPacket();
+		StreamUtil.flushPacket();
+		StreamUtil.initIsaac(new int[4]);
+		assertEquals(7, StreamUtil.readByte());
+		StreamUtil.readBytes(new byte[4], 4);
+		assertSame(stream.buffer, StreamUtil.getStreamBuffer());
+
+		assertEquals(Arrays.asList("newPacket", "sendPacket", "flushPacket", "initIsaac",
+				"readResponse", "readBytes"), calls);
+	}
+
+	@Test
+	public void testBufferCalls() {
+		StubBuffer buffer = stream.buffer;
+		StreamUtil.setBufferOffset(buffer, 5);
+		assertEquals(5, StreamUtil.getBufferOffset(buffer));
+		assertArrayEquals(buffer.data, StreamUtil.getBufferByteArray(buffer));
+
+		assertEquals(1, StreamUtil.getUnsignedByte(buffer));
+		assertEquals(2, StreamUtil.getUnsignedShort(buffer));
+		assertEquals(3, StreamUtil.getUnsignedInt3(buffer));
+		StreamUtil.putByteTo(buffer, (byte) 1);
+		StreamUtil.putShortTo(buffer, (short) 1);
+		StreamUtil.putIntTo(buffer, 1);
+		StreamUtil.putStrTo(buffer, "a");
+		StreamUtil.putInt3ByteTo(buffer, 1);
+		StreamUtil.putBytesTo(buffer, new byte[1], 0, 1);
+		StreamUtil.setBufferLength(buffer, 0);
+		StreamUtil.encrypt(buffer, BigInteger.ONE, BigInteger.ONE);
+		StreamUtil.xteaEncrypt(buffer, 0, new int[4]);
+		StreamUtil.putRandom(buffer);
+
+		assertEquals(Arrays.asList("getUnsignedByte", "getUnsignedShort", "getUnsignedInt3",
+				"putByte", "putShort", "putInt", "putStr", "putInt3Byte", "putBytes", "setBlockLength",
+				"encrypt", "xteaEncrypt", "putRandom"), calls);
+	}
+
+}
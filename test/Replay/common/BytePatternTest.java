@@ -0,0 +1,41 @@
+package Replay.common;
+
+import static org.junit.Assert.assertArrayEquals;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BytePatternTest {
+
+	private BytePattern pattern;
+
+	@Before
+	public void setUp() throws Exception {
+		pattern = new BytePattern(new byte[] { 1, 2, 0, 3, 2 }).any(1).allow(2, 1);
+	}
+
+	@Test
+	public void testFindAll() {
+		byte[] data = { 1, 9, 0, 3, 2, 1, 2, 1, 3, 2, 1, 2, 0, 3 };
+
+		assertArrayEquals(new int[] { 0, 5 }, pattern.findAll(data, 0));
+		assertArrayEquals(new int[] { 5 }, pattern.findAll(data, 1));
+	}
+
+	@Test
+	public void testFindAllMatchesNaiveSearch() {
+		Random random = new Random(0);
+		byte[] data = new byte[10000];
+		for (int i = 0; i < data.length; i++) data[i] = (byte) random.nextInt(4);
+
+		int[] expected = new int[data.length];
+		int count = 0;
+		for (int i = 0; i < data.length; i++) {
+			if (pattern.matches(data, i)) expected[count++] = i;
+		}
+
+		assertArrayEquals(Arrays.copyOf(expected, count), pattern.findAll(data, 0));
+	}
+
+}
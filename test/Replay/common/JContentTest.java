@@ -0,0 +1,145 @@
+package Replay.common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JContentTest {
+
+	private byte[] plain;
+	private byte[] packed;
+	private File file;
+	private JContent content;
+
+	@Before
+	public void setUp() throws Exception {
+		Random random = new Random(0);
+		plain = new byte[300];
+		random.nextBytes(plain);
+		packed = new byte[5000];
+		for (int i = 0; i < packed.length; i++) packed[i] = (byte) random.nextInt(3);
+
+		file = File.createTempFile("content", ".jag");
+		content = new JContent();
+	}
+
+	@After
+	public void tearDown() {
+		content.close();
+		file.delete();
+	}
+
+	@Test
+	public void testUnpackRepeatedly() throws Exception {
+		writeArchive(false);
+		assertTrue(content.open(file.getPath()));
+
+		for (int i = 0; i < 3; i++) {
+			assertArrayEquals(plain, read(content.unpack("plain.dat"), plain.length));
+			assertArrayEquals(packed, read(content.unpack("PACKED.DAT"), packed.length));
+		}
+		assertNull(content.unpack("missing.dat"));
+	}
+
+	@Test
+	public void testUnpackFromCompressedArchive() throws Exception {
+		writeArchive(true);
+		assertTrue(content.open(file.getPath()));
+
+		assertArrayEquals(plain, read(content.unpack("plain.dat"), plain.length));
+		assertArrayEquals(packed, read(content.unpack("packed.dat"), packed.length));
+	}
+
+	@Test
+	public void testUnpackFromThreads() throws Exception {
+		writeArchive(false);
+		assertTrue(content.open(file.getPath()));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		ArrayList<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+		for (int i = 0; i < 32; i++) {
+			results.add(executor.submit(new Callable<byte[]>() {
+				@Override
+				public byte[] call() {
+					return read(content.unpack("packed.dat"), packed.length);
+				}
+			}));
+		}
+		for (Future<byte[]> result : results) assertArrayEquals(packed, result.get());
+		executor.shutdown();
+	}
+
+	private void writeArchive(boolean compressed) throws Exception {
+		byte[] packedData = compress(packed);
+
+		ByteArrayOutputStream archive = new ByteArrayOutputStream();
+		writeShort(archive, 2);
+		writeEntry(archive, "plain.dat", plain.length, plain.length);
+		writeEntry(archive, "packed.dat", packed.length, packedData.length);
+		archive.write(plain);
+		archive.write(packedData);
+		byte[] data = archive.toByteArray();
+		byte[] stored = compressed ? compress(data) : data;
+
+		FileOutputStream out = new FileOutputStream(file);
+		writeMedium(out, data.length);
+		writeMedium(out, stored.length);
+		out.write(stored);
+		out.close();
+	}
+
+	private static void writeEntry(OutputStream out, String name, int length, int compressedLength)
+			throws IOException {
+		int hash = 0;
+		for (char c : name.toUpperCase().toCharArray()) hash = 61 * hash + (c - 32);
+		writeShort(out, hash >>> 16);
+		writeShort(out, hash);
+		writeMedium(out, length);
+		writeMedium(out, compressedLength);
+	}
+
+	private static void writeShort(OutputStream out, int value) throws IOException {
+		out.write(value >> 8);
+		out.write(value);
+	}
+
+	private static void writeMedium(OutputStream out, int value) throws IOException {
+		out.write(value >> 16);
+		out.write(value >> 8);
+		out.write(value);
+	}
+
+	// Content archives store BZip2 data without its header
+	private static byte[] compress(byte[] data) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BZip2CompressorOutputStream bzip = new BZip2CompressorOutputStream(out, 1);
+		bzip.write(data);
+		bzip.close();
+		byte[] compressed = out.toByteArray();
+		byte[] headerless = new byte[compressed.length - 4];
+		System.arraycopy(compressed, 4, headerless, 0, headerless.length);
+		return headerless;
+	}
+
+	private static byte[] read(JContentFile file, int length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) data[i] = file.readByte();
+		return data;
+	}
+
+}
@@ -0,0 +1,76 @@
+package Replay.common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import Replay.game.constants.Game;
+import java.io.File;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JGameDataTest {
+
+	private File cache;
+
+	@Before
+	public void setUp() throws Exception {
+		cache = File.createTempFile("landscape", ".bin");
+		cache.delete();
+	}
+
+	@After
+	public void tearDown() {
+		JGameData.regionCollisionMask = null;
+		JGameData.regionDirection = null;
+		cache.delete();
+	}
+
+	@Test
+	public void testLandscapeCacheRoundTrip() {
+		int size = JGameData.getRegionOffset(JGameData.REGION_COUNT_X, 0, 0);
+		byte[] collisionMask = new byte[size];
+		byte[] direction = new byte[size];
+		Random random = new Random(0);
+		for (int i = 0; i < size; i += 97) {
+			collisionMask[i] = (byte) random.nextInt(8);
+			direction[i] = (byte) random.nextInt(8);
+		}
+		JGameData.regionCollisionMask = collisionMask;
+		JGameData.regionDirection = direction;
+
+		assertTrue(JGameData.saveLandscapeCache(cache.getPath(), true));
+		JGameData.regionCollisionMask = null;
+		JGameData.regionDirection = null;
+
+		assertFalse(JGameData.loadLandscapeCache(cache.getPath(), false));
+		assertTrue(JGameData.loadLandscapeCache(cache.getPath(), true));
+		assertArrayEquals(collisionMask, JGameData.regionCollisionMask);
+		assertArrayEquals(direction, JGameData.regionDirection);
+	}
+
+	@Test
+	public void testLandscapeCacheSourceMismatch() {
+		int size = JGameData.getRegionOffset(JGameData.REGION_COUNT_X, 0, 0);
+		JGameData.regionCollisionMask = new byte[size];
+		JGameData.regionDirection = new byte[size];
+
+		assertTrue(JGameData.saveLandscapeCache(cache.getPath(), false, 1234L));
+		assertFalse(JGameData.loadLandscapeCache(cache.getPath(), false, 1235L));
+		assertTrue(JGameData.loadLandscapeCache(cache.getPath(), false, 1234L));
+	}
+
+	@Test
+	public void testRegionOffsets() {
+		int lastRegion = JGameData.getRegionOffset(JGameData.REGION_COUNT_X - 1,
+				JGameData.REGION_COUNT_Y - 1, Game.REGION_FLOORS - 1);
+
+		assertEquals(Game.REGION_SIZE, JGameData.getRegionOffset(0, 0, 1));
+		assertEquals(Game.REGION_SIZE * Game.REGION_FLOORS, JGameData.getRegionOffset(0, 1, 0));
+		assertEquals(JGameData.getRegionOffset(JGameData.REGION_COUNT_X, 0, 0),
+				lastRegion + Game.REGION_SIZE);
+	}
+
+}
@@ -0,0 +1,42 @@
+package Replay.scraper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReplayPacketStoreTest {
+
+	private ReplayPacketStore store;
+
+	@Before
+	public void setUp() throws Exception {
+		store = new ReplayPacketStore(1, 1);
+		for (int i = 0; i < 100; i++) {
+			byte[] data = (i % 3 == 0) ? null : new byte[] { (byte) i, (byte) (i + 1) };
+			store.add(i / 2 * 10, i, data, 0);
+		}
+	}
+
+	@Test
+	public void testIndexedAccess() {
+		assertEquals(100, store.size());
+		assertNull(store.getData(0));
+		assertArrayEquals(new byte[] { 1, 2 }, store.getData(1));
+		assertArrayEquals(new byte[] { 98, 99 }, store.get(98).data);
+		assertEquals(98, store.get(98).opcode);
+		assertEquals(490, store.getTimestamp(99));
+	}
+
+	@Test
+	public void testTimestampSearch() {
+		assertEquals(0, store.findFirstAtOrAfter(0));
+		assertEquals(2, store.findFirstAtOrAfter(5));
+		assertEquals(2, store.findFirstAtOrAfter(10));
+		assertEquals(100, store.findFirstAtOrAfter(491));
+		assertEquals(3, store.findLastAtOrBefore(15));
+		assertEquals(-1, store.findLastAtOrBefore(-1));
+	}
+
+}